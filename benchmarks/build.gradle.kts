@@ -13,6 +13,8 @@ dependencies {
     compile(project(":compiler:frontend"))
     compile(projectTests(":compiler:tests-common"))
     compile(project(":compiler:cli"))
+    compile(project(":compiler:ir.tree.impl"))
+    compile(project(":kotlin-reflect"))
     compile(intellijCoreDep()) { includeJars("intellij-core") }
     compile(jpsStandalone()) { includeJars("jps-model") }
     compile(intellijPluginDep("java"))
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.benchmarks
+
+import org.openjdk.jmh.annotations.*
+import org.openjdk.jmh.infra.Blackhole
+import java.util.concurrent.TimeUnit
+
+/**
+ * Calls which require subtyping against the top of a deep generic hierarchy, i.e. finding supertypes of a class type
+ * with the given type constructor.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+open class DeepHierarchySubtypingBenchmark : AbstractSimpleFileBenchmark() {
+
+    @Param("1000")
+    private var size: Int = 0
+
+    @Param("10", "50")
+    private var depth: Int = 0
+
+    @Benchmark
+    fun benchmark(bh: Blackhole) {
+        analyzeGreenFile(bh)
+    }
+
+    override fun buildText(): String =
+        """
+        |interface I0<T>
+        |${(1 until depth).joinToString("\n") { "interface I$it<T> : I${it - 1}<T>" }}
+        |class C<T> : I${depth - 1}<T>
+        |
+        |fun <T> take(x: I0<T>, y: T) {}
+        |
+        |fun bar(c: C<String>) {
+        |${(1..size).joinToString("\n") { "    take(c, \"\")" }}
+        |}
+        """.trimMargin()
+}
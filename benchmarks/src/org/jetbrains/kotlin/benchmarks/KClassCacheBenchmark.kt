@@ -0,0 +1,44 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.benchmarks
+
+import org.openjdk.jmh.annotations.*
+import org.openjdk.jmh.infra.Blackhole
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
+
+/**
+ * Access to KClass instances of Java classes with kotlin-reflect on the classpath, e.g. `Foo::class` or `foo.javaClass.kotlin`,
+ * which goes through the cache of KClass instances. Classes are accessed from one and several threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+open class KClassCacheBenchmark {
+    private val classes: Array<Class<*>> = arrayOf(
+        String::class.java, Int::class.javaObjectType, Long::class.javaObjectType, List::class.java, Map::class.java,
+        ArrayList::class.java, HashMap::class.java, StringBuilder::class.java, Thread::class.java, Runnable::class.java,
+        KClassCacheBenchmark::class.java, Blackhole::class.java, TimeUnit::class.java, Unit::class.java, Pair::class.java
+    )
+
+    @Benchmark
+    @Threads(1)
+    fun classLiteral(bh: Blackhole) {
+        bh.consume(KClassCacheBenchmark::class)
+    }
+
+    @Benchmark
+    @Threads(1)
+    fun differentClasses(bh: Blackhole) {
+        bh.consume(classes[ThreadLocalRandom.current().nextInt(classes.size)].kotlin)
+    }
+
+    @Benchmark
+    @Threads(8)
+    fun differentClassesContended(bh: Blackhole) {
+        bh.consume(classes[ThreadLocalRandom.current().nextInt(classes.size)].kotlin)
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.benchmarks
+
+import org.jetbrains.kotlin.descriptors.ClassDescriptor
+import org.jetbrains.kotlin.descriptors.DeclarationDescriptor
+import org.jetbrains.kotlin.ir.declarations.impl.IrFactoryImpl
+import org.jetbrains.kotlin.ir.util.IdSignature
+import org.jetbrains.kotlin.ir.util.IdSignatureComposer
+import org.jetbrains.kotlin.ir.util.SymbolTable
+import org.openjdk.jmh.annotations.*
+import org.openjdk.jmh.infra.Blackhole
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
+
+/**
+ * References to symbols of the same table from several threads, as in parallel generation or lowering of IR.
+ * Most references are to symbols which already exist, [newSymbolsPercent] of them create a new symbol.
+ * Compare results of [referenceSingleThread] and [referenceContended] to see how the table scales.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+open class SymbolTableBenchmark {
+
+    @Param("10000")
+    private var size: Int = 0
+
+    @Param("0", "10")
+    private var newSymbolsPercent: Int = 0
+
+    private lateinit var symbolTable: SymbolTable
+    private lateinit var signatures: Array<IdSignature>
+
+    @Setup(Level.Iteration)
+    fun setUp() {
+        symbolTable = SymbolTable(NoSignatures, IrFactoryImpl)
+        signatures = Array(size) { IdSignature.PublicSignature("benchmark", "C$it", null, 0) }
+        for (signature in signatures) {
+            symbolTable.referenceClassFromLinker(signature)
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    fun referenceSingleThread(bh: Blackhole) {
+        reference(bh)
+    }
+
+    @Benchmark
+    @Threads(8)
+    fun referenceContended(bh: Blackhole) {
+        reference(bh)
+    }
+
+    private fun reference(bh: Blackhole) {
+        val random = ThreadLocalRandom.current()
+        val signature =
+            if (random.nextInt(100) < newSymbolsPercent) IdSignature.PublicSignature("benchmark", "N${random.nextLong()}", null, 0)
+            else signatures[random.nextInt(size)]
+        bh.consume(symbolTable.referenceClassFromLinker(signature))
+    }
+
+    private object NoSignatures : IdSignatureComposer {
+        override fun composeSignature(descriptor: DeclarationDescriptor): IdSignature? = null
+        override fun composeEnumEntrySignature(descriptor: ClassDescriptor): IdSignature? = null
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.incremental
+
+import gnu.trove.TObjectIntHashMap
+
+/**
+ * Lookups without positions, encoded as (file, scope, name) triples of ids of interned strings and stored in a growable int array.
+ *
+ * The same lookup is usually recorded many times, so lookups are appended without checking for duplicates,
+ * and duplicates are removed in batches: when the buffer is full (before growing it) and before lookups are read.
+ * Lookups may be recorded from several threads.
+ */
+class InternedLookups {
+    private val stringIds = TObjectIntHashMap<String>()
+    private val strings = ArrayList<String>()
+
+    private var buffer = IntArray(INITIAL_CAPACITY * TRIPLE_SIZE)
+
+    // number of recorded lookups, including duplicates
+    private var count = 0
+
+    // number of lookups at the beginning of the buffer which are known to be distinct
+    private var distinctCount = 0
+
+    @Synchronized
+    fun add(filePath: String, scopeFqName: String, name: String) {
+        if ((count + 1) * TRIPLE_SIZE > buffer.size) {
+            removeDuplicates()
+            // grow only if removing duplicates didn't free enough space, so that the buffer isn't compacted too often
+            if (count * TRIPLE_SIZE * 2 > buffer.size) {
+                buffer = buffer.copyOf(buffer.size * 2)
+            }
+        }
+
+        val offset = count * TRIPLE_SIZE
+        buffer[offset + FILE] = idOf(filePath)
+        buffer[offset + SCOPE] = idOf(scopeFqName)
+        buffer[offset + NAME] = idOf(name)
+        count++
+    }
+
+    @get:Synchronized
+    val isEmpty: Boolean
+        get() = count == 0
+
+    // number of lookups in the buffer, including duplicates which weren't removed yet
+    @get:Synchronized
+    val recordedCount: Int
+        get() = count
+
+    @get:Synchronized
+    val stringCount: Int
+        get() = strings.size
+
+    @get:Synchronized
+    val size: Int
+        get() {
+            removeDuplicates()
+            return count
+        }
+
+    @Synchronized
+    fun string(id: Int): String = strings[id]
+
+    /**
+     * Ids of paths of all files which have lookups.
+     */
+    @Synchronized
+    fun filePathIds(): IntArray {
+        removeDuplicates()
+        val seen = BooleanArray(strings.size)
+        val result = IntArray(count)
+        var size = 0
+        for (i in 0 until count) {
+            val file = buffer[i * TRIPLE_SIZE + FILE]
+            if (!seen[file]) {
+                seen[file] = true
+                result[size++] = file
+            }
+        }
+        return result.copyOf(size)
+    }
+
+    /**
+     * Calls [action] for each distinct lookup with ids of its strings.
+     */
+    @Synchronized
+    fun forEach(action: (filePathId: Int, scopeFqNameId: Int, nameId: Int) -> Unit) {
+        removeDuplicates()
+        for (i in 0 until count) {
+            val offset = i * TRIPLE_SIZE
+            action(buffer[offset + FILE], buffer[offset + SCOPE], buffer[offset + NAME])
+        }
+    }
+
+    /**
+     * Calls [action] for each distinct looked up symbol with ids of paths of files where it was looked up, in the order of recording.
+     * Symbols are reported in the order of their scopes and then names, like sorted [LookupSymbol]s.
+     * They are grouped with two passes of counting sort by ranks of their strings, which are dense.
+     */
+    @Synchronized
+    fun forEachSymbol(action: (scopeFqName: String, name: String, filePathIds: IntArray) -> Unit) {
+        removeDuplicates()
+        val ranks = stringRanks()
+        val order = sortBy(SCOPE, ranks, sortBy(NAME, ranks, IntArray(count) { it }))
+
+        var start = 0
+        while (start < order.size) {
+            val scope = buffer[order[start] * TRIPLE_SIZE + SCOPE]
+            val name = buffer[order[start] * TRIPLE_SIZE + NAME]
+            var end = start + 1
+            while (end < order.size && buffer[order[end] * TRIPLE_SIZE + SCOPE] == scope && buffer[order[end] * TRIPLE_SIZE + NAME] == name) {
+                end++
+            }
+            action(strings[scope], strings[name], IntArray(end - start) { buffer[order[start + it] * TRIPLE_SIZE + FILE] })
+            start = end
+        }
+    }
+
+    @Synchronized
+    fun strings(fromId: Int, toId: Int): List<String> = ArrayList(strings.subList(fromId, toId))
+
+    /**
+     * Removes all lookups and returns them as (file, scope, name) triples of ids of their strings.
+     * Interned strings are kept, so strings of lookups recorded later have the same ids.
+     */
+    @Synchronized
+    fun drain(): IntArray {
+        removeDuplicates()
+        val result = buffer.copyOf(count * TRIPLE_SIZE)
+        count = 0
+        distinctCount = 0
+        return result
+    }
+
+    @Synchronized
+    fun clear() {
+        stringIds.clear()
+        strings.clear()
+        buffer = IntArray(INITIAL_CAPACITY * TRIPLE_SIZE)
+        count = 0
+        distinctCount = 0
+    }
+
+    private fun idOf(string: String): Int {
+        val id = stringIds.get(string)
+        // TObjectIntHashMap returns 0 for absent keys, so ids are shifted by one in the map
+        if (id != 0) return id - 1
+
+        strings.add(string)
+        stringIds.put(string, strings.size)
+        return strings.size - 1
+    }
+
+    // stable: the first occurrence of each lookup is kept in its place relative to other lookups
+    private fun removeDuplicates() {
+        if (distinctCount == count) return
+
+        val table = IntArray(Integer.highestOneBit(count * 2 - 1) shl 1)
+        val mask = table.size - 1
+        var newCount = 0
+        for (i in 0 until count) {
+            val offset = i * TRIPLE_SIZE
+            val file = buffer[offset + FILE]
+            val scope = buffer[offset + SCOPE]
+            val name = buffer[offset + NAME]
+
+            val hash = ((file * 31 + scope) * 31 + name) * -0x61c88647
+            var slot = (hash xor (hash ushr 16)) and mask
+            while (true) {
+                // table contains indices of distinct lookups plus one, 0 is a free slot
+                val existing = table[slot] - 1
+                if (existing < 0) {
+                    val newOffset = newCount * TRIPLE_SIZE
+                    buffer[newOffset + FILE] = file
+                    buffer[newOffset + SCOPE] = scope
+                    buffer[newOffset + NAME] = name
+                    table[slot] = ++newCount
+                    break
+                }
+                val existingOffset = existing * TRIPLE_SIZE
+                if (buffer[existingOffset + FILE] == file && buffer[existingOffset + SCOPE] == scope && buffer[existingOffset + NAME] == name) {
+                    break
+                }
+                slot = (slot + 1) and mask
+            }
+        }
+
+        count = newCount
+        distinctCount = newCount
+    }
+
+    // positions of strings in the sorted list of all strings, by their ids
+    private fun stringRanks(): IntArray {
+        val ranks = IntArray(strings.size)
+        strings.indices.sortedBy { strings[it] }.forEachIndexed { rank, id -> ranks[id] = rank }
+        return ranks
+    }
+
+    // stable counting sort of lookups in [order] by ranks of their strings
+    private fun sortBy(component: Int, ranks: IntArray, order: IntArray): IntArray {
+        val starts = IntArray(strings.size + 1)
+        for (i in order) {
+            starts[ranks[buffer[i * TRIPLE_SIZE + component]] + 1]++
+        }
+        for (rank in 1 until starts.size) {
+            starts[rank] += starts[rank - 1]
+        }
+        val result = IntArray(order.size)
+        for (i in order) {
+            result[starts[ranks[buffer[i * TRIPLE_SIZE + component]]]++] = i
+        }
+        return result
+    }
+
+    private companion object {
+        const val INITIAL_CAPACITY = 1024
+
+        const val TRIPLE_SIZE = 3
+        const val FILE = 0
+        const val SCOPE = 1
+        const val NAME = 2
+    }
+}
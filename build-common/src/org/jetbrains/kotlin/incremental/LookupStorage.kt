@@ -16,15 +16,12 @@
 
 package org.jetbrains.kotlin.incremental
 
-import com.intellij.util.containers.MultiMap
 import org.jetbrains.annotations.TestOnly
 import org.jetbrains.kotlin.incremental.components.LookupTracker
 import org.jetbrains.kotlin.incremental.components.Position
 import org.jetbrains.kotlin.incremental.components.ScopeKind
 import org.jetbrains.kotlin.incremental.storage.*
 import org.jetbrains.kotlin.utils.Printer
-import org.jetbrains.kotlin.utils.createStringInterner
-import org.jetbrains.kotlin.utils.keysToMap
 import java.io.File
 import java.io.IOException
 import java.util.*
@@ -36,6 +33,7 @@ open class LookupStorage(
     companion object {
         private val DELETED_TO_SIZE_TRESHOLD = 0.5
         private val MINIMUM_GARBAGE_COLLECTIBLE_SIZE = 10000
+        private val MINIMUM_COMPACTIBLE_SIZE = 100000
     }
 
     private val countersFile = "counters".storageFile
@@ -49,12 +47,22 @@ open class LookupStorage(
     @Volatile
     private var deletedCount: Int = 0
 
+    // number of file ids appended to lookups since the last compaction, they may duplicate already stored ones
+    @Volatile
+    private var appendedCount: Long = 0
+
+    // number of file ids in lookups after the last compaction
+    @Volatile
+    private var compactedCount: Long = 0
+
     init {
         try {
             if (countersFile.exists()) {
                 val lines = countersFile.readLines()
                 size = lines[0].toInt()
                 deletedCount = lines[1].toInt()
+                appendedCount = lines.getOrNull(2)?.toLong() ?: 0
+                compactedCount = lines.getOrNull(3)?.toLong() ?: 0
             }
         } catch (e: Exception) {
             throw IOException("Could not read $countersFile", e)
@@ -74,15 +82,20 @@ open class LookupStorage(
     }
 
     @Synchronized
-    fun addAll(lookups: MultiMap<LookupSymbol, String>, allPaths: Set<String>) {
-        val pathToId = allPaths.sorted().keysToMap { addFileIfNeeded(File(it)) }
-
-        for (lookupSymbol in lookups.keySet().sorted()) {
-            val key = LookupSymbolKey(lookupSymbol.name, lookupSymbol.scope)
-            val paths = lookups[lookupSymbol]
-            val fileIds = paths.mapTo(TreeSet()) { pathToId[it]!! }
-            fileIds.addAll(lookupMap[key] ?: emptySet())
-            lookupMap[key] = fileIds
+    fun addAll(lookups: InternedLookups) {
+        // file ids by ids of interned paths
+        val filePathIds = lookups.filePathIds()
+        val pathIdToFileId = IntArray((filePathIds.maxOrNull() ?: -1) + 1)
+        for (pathId in filePathIds.sortedBy { lookups.string(it) }) {
+            pathIdToFileId[pathId] = addFileIfNeeded(File(lookups.string(pathId)))
+        }
+
+        // existing values are not read here: new file ids are appended to them and merged on read or by compaction
+        lookups.forEachSymbol { scopeFqName, name, filePathIds ->
+            // sorted, so that the stored values don't depend on the order of lookups
+            val fileIds = IntArray(filePathIds.size) { pathIdToFileId[filePathIds[it]] }.apply { sort() }
+            lookupMap.append(LookupSymbolKey(name, scopeFqName), fileIds)
+            appendedCount += fileIds.size
         }
     }
 
@@ -104,6 +117,8 @@ open class LookupStorage(
 
         size = 0
         deletedCount = 0
+        appendedCount = 0
+        compactedCount = 0
 
         super.clean()
     }
@@ -112,6 +127,7 @@ open class LookupStorage(
     override fun flush(memoryCachesOnly: Boolean) {
         try {
             removeGarbageIfNeeded()
+            compactIfNeeded()
 
             if (size > 0) {
                 if (!countersFile.exists()) {
@@ -119,7 +135,7 @@ open class LookupStorage(
                     countersFile.createNewFile()
                 }
 
-                countersFile.writeText("$size\n$deletedCount")
+                countersFile.writeText("$size\n$deletedCount\n$appendedCount\n$compactedCount")
             }
         }
         finally {
@@ -143,9 +159,29 @@ open class LookupStorage(
         }
     }
 
+    // appended segments may duplicate file ids of previous builds, so values are rewritten from time to time,
+    // all at once, to keep the storage from growing with each build
+    private fun compactIfNeeded() {
+        if (appendedCount > MINIMUM_COMPACTIBLE_SIZE && appendedCount > compactedCount) {
+            doCompact()
+        }
+    }
+
+    private fun doCompact() {
+        var count = 0L
+        for (lookup in lookupMap.keys) {
+            val fileIds = lookupMap[lookup]!!
+            lookupMap[lookup] = fileIds
+            count += fileIds.size
+        }
+
+        appendedCount = 0
+        compactedCount = count
+    }
+
     private fun doRemoveGarbage() {
         for (hash in lookupMap.keys) {
-            lookupMap[hash] = lookupMap[hash]!!.filter { it in idToFile }.toSet()
+            lookupMap[hash] = lookupMap[hash]!!.filter { it in idToFile }.toIntArray()
         }
 
         val oldFileToId = fileToId.toMap()
@@ -160,16 +196,21 @@ open class LookupStorage(
             oldIdToNewId[oldId] = newId
         }
 
+        var count = 0L
         for (lookup in lookupMap.keys) {
-            val fileIds = lookupMap[lookup]!!.mapNotNull { oldIdToNewId[it] }.toSet()
+            val fileIds = lookupMap[lookup]!!.mapNotNull { oldIdToNewId[it] }.sorted().toIntArray()
 
             if (fileIds.isEmpty()) {
                 lookupMap.remove(lookup)
             }
             else {
                 lookupMap[lookup] = fileIds
+                count += fileIds.size
             }
         }
+
+        appendedCount = 0
+        compactedCount = count
     }
 
     @TestOnly fun forceGC() {
@@ -210,20 +251,14 @@ open class LookupStorage(
 }
 
 class LookupTrackerImpl(private val delegate: LookupTracker) : LookupTracker {
-    val lookups = MultiMap.createSet<LookupSymbol, String>()
-    val pathInterner = createStringInterner()
-    private val interner = createStringInterner()
+    val lookups = InternedLookups()
 
     override val requiresPosition: Boolean
         get() = delegate.requiresPosition
 
     override fun record(filePath: String, position: Position, scopeFqName: String, scopeKind: ScopeKind, name: String) {
-        val internedScopeFqName = interner.intern(scopeFqName)
-        val internedName = interner.intern(name)
-        val internedFilePath = pathInterner.intern(filePath)
-
-        lookups.putValue(LookupSymbol(internedName, internedScopeFqName), internedFilePath)
-        delegate.record(internedFilePath, position, internedScopeFqName, scopeKind, internedName)
+        lookups.add(filePath, scopeFqName, name)
+        delegate.record(filePath, position, scopeFqName, scopeKind, name)
     }
 }
 
@@ -131,7 +131,7 @@ fun LookupStorage.update(
 
     removeLookupsFrom(filesToCompile.asSequence() + removedFiles.asSequence())
 
-    addAll(lookupTracker.lookups, lookupTracker.pathInterner.values)
+    addAll(lookupTracker.lookups)
 }
 
 data class DirtyData(
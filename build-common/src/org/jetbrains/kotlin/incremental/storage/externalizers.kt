@@ -200,3 +200,42 @@ open class CollectionExternalizer<T>(
 object StringCollectionExternalizer : CollectionExternalizer<String>(EnumeratorStringDescriptor(), { HashSet() })
 
 object IntCollectionExternalizer : CollectionExternalizer<Int>(IntExternalizer, { HashSet() })
+
+/**
+ * Reads ints until the end of the value as a sorted array without duplicates.
+ * Values may be appended to ([LazyStorage.append]) without reading them first, so the stored data
+ * may consist of several (possibly overlapping) segments, which are merged on read.
+ */
+object IntSetExternalizer : DataExternalizer<IntArray> {
+    override fun read(input: DataInput): IntArray {
+        val stream = input as DataInputStream
+        var result = IntArray(stream.available() / 4)
+        var size = 0
+
+        while (stream.available() > 0) {
+            if (size == result.size) {
+                result = result.copyOf(maxOf(size * 2, 4))
+            }
+            result[size++] = stream.readInt()
+        }
+
+        return sortedUnique(result, size)
+    }
+
+    override fun save(output: DataOutput, value: IntArray) {
+        value.forEach { output.writeInt(it) }
+    }
+
+    private fun sortedUnique(array: IntArray, size: Int): IntArray {
+        array.sort(0, size)
+
+        var uniqueSize = 0
+        for (i in 0 until size) {
+            if (uniqueSize == 0 || array[uniqueSize - 1] != array[i]) {
+                array[uniqueSize++] = array[i]
+            }
+        }
+
+        return if (uniqueSize == array.size) array else array.copyOf(uniqueSize)
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.incremental
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.*
+
+class InternedLookupsTest {
+    private data class Lookup(val filePath: String, val scopeFqName: String, val name: String)
+
+    @Test
+    fun testEmpty() {
+        val lookups = InternedLookups()
+        assertTrue(lookups.isEmpty)
+        assertEquals(0, lookups.size)
+        assertEquals(0, lookups.filePathIds().size)
+        assertEquals(emptyList<Lookup>(), lookups.toList())
+        assertEquals(emptyList<Pair<LookupSymbol, List<String>>>(), lookups.symbols())
+        assertEquals(0, lookups.drain().size)
+    }
+
+    @Test
+    fun testDuplicatesAreRemoved() {
+        val lookups = InternedLookups()
+        val recorded = listOf(
+            Lookup("b.kt", "foo", "x"),
+            Lookup("a.kt", "foo", "x"),
+            Lookup("b.kt", "foo", "x"),
+            Lookup("a.kt", "bar", "y"),
+            Lookup("a.kt", "foo", "x"),
+        )
+        recorded.forEach { lookups.add(it) }
+
+        assertEquals(5, lookups.recordedCount)
+        assertEquals(3, lookups.size)
+        // the first occurrence of each lookup is kept in place
+        assertEquals(recorded.distinct(), lookups.toList())
+        assertEquals(listOf("b.kt", "a.kt"), lookups.filePathIds().map { lookups.string(it) })
+    }
+
+    @Test
+    fun testGrowthAndRehash() {
+        val lookups = InternedLookups()
+        val recorded = ArrayList<Lookup>()
+        // enough lookups to fill the initial buffer several times, with many duplicates removed on the way
+        for (i in 0 until 20_000) {
+            val lookup = Lookup("file${i % 3}.kt", "scope${i % 5}", "name${i % 7}")
+            recorded.add(lookup)
+            lookups.add(lookup)
+        }
+        // and then a lot of distinct lookups, so that the buffer has to grow
+        for (i in 0 until 5_000) {
+            val lookup = Lookup("file$i.kt", "scope", "name$i")
+            recorded.add(lookup)
+            lookups.add(lookup)
+        }
+
+        assertEquals(recorded.distinct(), lookups.toList())
+        assertEquals(expectedSymbols(recorded), lookups.symbols())
+    }
+
+    @Test
+    fun testSymbolsOrderMatchesLookupTrackerImpl() {
+        val lookups = InternedLookups()
+        val recorded = listOf(
+            Lookup("c.kt", "z.scope", "b"),
+            Lookup("a.kt", "a.scope", "z"),
+            Lookup("b.kt", "z.scope", "a"),
+            Lookup("a.kt", "z.scope", "b"),
+            Lookup("c.kt", "a.scope", "z"),
+            Lookup("b.kt", "a.scope", "a"),
+            Lookup("c.kt", "z.scope", "b"),
+            // a string used both as a name and as a scope
+            Lookup("a.kt", "b", "z.scope"),
+        )
+        recorded.forEach { lookups.add(it) }
+
+        assertEquals(expectedSymbols(recorded), lookups.symbols())
+    }
+
+    @Test
+    fun testDrainKeepsStrings() {
+        val lookups = InternedLookups()
+        lookups.add(Lookup("a.kt", "foo", "x"))
+        lookups.add(Lookup("a.kt", "foo", "x"))
+        val stringCount = lookups.stringCount
+
+        val drained = lookups.drain()
+        assertEquals(3, drained.size)
+        assertEquals(listOf("a.kt", "foo", "x"), drained.map { lookups.string(it) })
+        assertTrue(lookups.isEmpty)
+
+        lookups.add(Lookup("a.kt", "foo", "y"))
+        assertEquals(stringCount + 1, lookups.stringCount)
+        assertEquals(listOf(Lookup("a.kt", "foo", "y")), lookups.toList())
+    }
+
+    private fun InternedLookups.add(lookup: Lookup) {
+        add(lookup.filePath, lookup.scopeFqName, lookup.name)
+    }
+
+    private fun InternedLookups.toList(): List<Lookup> {
+        val result = ArrayList<Lookup>()
+        forEach { file, scope, name -> result.add(Lookup(string(file), string(scope), string(name))) }
+        return result
+    }
+
+    private fun InternedLookups.symbols(): List<Pair<LookupSymbol, List<String>>> {
+        val result = ArrayList<Pair<LookupSymbol, List<String>>>()
+        forEachSymbol { scopeFqName, name, filePathIds ->
+            result.add(LookupSymbol(name, scopeFqName) to filePathIds.map { string(it) })
+        }
+        return result
+    }
+
+    // the order in which LookupTrackerImpl used to report lookups: sorted symbols with files in the order of recording
+    private fun expectedSymbols(recorded: List<Lookup>): List<Pair<LookupSymbol, List<String>>> {
+        val filesBySymbol = LinkedHashMap<LookupSymbol, LinkedHashSet<String>>()
+        for (lookup in recorded) {
+            filesBySymbol.getOrPut(LookupSymbol(lookup.name, lookup.scopeFqName)) { LinkedHashSet() }.add(lookup.filePath)
+        }
+        return filesBySymbol.keys.sorted().map { it to filesBySymbol.getValue(it).toList() }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.incremental
+
+import org.jetbrains.kotlin.TestWithWorkingDir
+import org.jetbrains.kotlin.incremental.storage.FileToCanonicalPathConverter
+import org.junit.Test
+import java.io.File
+
+class LookupStorageTest : TestWithWorkingDir() {
+    private val x = LookupSymbol(name = "x", scope = "foo")
+    private val y = LookupSymbol(name = "y", scope = "foo")
+
+    private val storageDir: File
+        get() = workingDir.resolve("storage")
+
+    private val countersFile: File
+        get() = storageDir.resolve("counters.tab")
+
+    @Test
+    fun testAppendedSegmentsAreMergedOnRead() {
+        withStorage {
+            addAll(x to listOf("b.kt", "a.kt"))
+            addAll(x to listOf("c.kt", "a.kt"))
+            addAll(x to listOf("b.kt", "c.kt"), y to listOf("c.kt"))
+
+            assertEquals(paths("a.kt", "b.kt", "c.kt"), get(x))
+            assertEquals(paths("c.kt"), get(y))
+            flush(false)
+        }
+
+        withStorage {
+            assertEquals(paths("a.kt", "b.kt", "c.kt"), get(x))
+            assertEquals(paths("c.kt"), get(y))
+            assertEquals("3\n0\n7\n0", countersFile.readText())
+        }
+    }
+
+    @Test
+    fun testRemovedFilesInSegmentedValues() {
+        withStorage {
+            addAll(x to listOf("a.kt", "b.kt"), y to listOf("b.kt"))
+            addAll(x to listOf("b.kt", "c.kt"))
+
+            removeLookupsFrom(sequenceOf(file("b.kt")))
+            assertEquals(paths("a.kt", "c.kt"), get(x))
+            assertEquals(emptyList<String>(), get(y))
+
+            // ids are renumbered, and lookups only from removed files are dropped
+            forceGC()
+            assertEquals(paths("a.kt", "c.kt"), get(x))
+            assertEquals(emptyList<String>(), get(y))
+            assertEquals("2\n0\n0\n2", countersFile.readText())
+            val dump = dump(setOf(x, y))
+            assertTrue(dump, "foo#x -> 0, 1" in dump)
+            assertFalse(dump, "foo#y" in dump)
+        }
+
+        withStorage {
+            assertEquals(paths("a.kt", "c.kt"), get(x))
+            assertEquals(emptyList<String>(), get(y))
+        }
+    }
+
+    @Test
+    fun testCompaction() {
+        // more than MINIMUM_COMPACTIBLE_SIZE file ids in one build
+        val files = (0 until 1000).map { "src$it.kt" }
+        val symbols = (0..100).map { LookupSymbol(name = "s$it", scope = "foo") }
+        val lookups = symbols.map { it to files }.toTypedArray()
+        val compactedCount = symbols.size.toLong() * files.size
+
+        withStorage {
+            addAll(*lookups)
+            flush(false)
+            assertEquals("1000\n0\n0\n$compactedCount", countersFile.readText())
+
+            // the same lookups again are not compacted until there are more appended ids than compacted ones
+            addAll(*lookups)
+            flush(false)
+            assertEquals("1000\n0\n$compactedCount\n$compactedCount", countersFile.readText())
+            assertEquals(paths(files), get(symbols.first()).sorted())
+        }
+
+        withStorage {
+            addAll(*lookups)
+            flush(false)
+            // values are rewritten without duplicates
+            assertEquals("1000\n0\n0\n$compactedCount", countersFile.readText())
+            for (symbol in symbols) {
+                assertEquals(paths(files), get(symbol).sorted())
+            }
+        }
+    }
+
+    @Test
+    fun testCounters() {
+        withStorage {
+            addAll(x to listOf("a.kt", "b.kt"))
+            flush(false)
+        }
+
+        // counters of previous versions have no appended and compacted counts
+        countersFile.writeText("2\n0")
+        withStorage {
+            assertEquals(paths("a.kt", "b.kt"), get(x))
+            addAll(x to listOf("c.kt"))
+            flush(false)
+            assertEquals("3\n0\n1\n0", countersFile.readText())
+        }
+
+        withStorage {
+            removeLookupsFrom(sequenceOf(file("a.kt")))
+            flush(false)
+            assertEquals("3\n1\n1\n0", countersFile.readText())
+        }
+
+        withStorage {
+            flush(false)
+            assertEquals("3\n1\n1\n0", countersFile.readText())
+            assertEquals(paths("b.kt", "c.kt"), get(x))
+        }
+    }
+
+    private fun withStorage(action: LookupStorage.() -> Unit) {
+        val storage = LookupStorage(storageDir, FileToCanonicalPathConverter)
+        try {
+            storage.action()
+        } finally {
+            storage.close()
+        }
+    }
+
+    private fun LookupStorage.addAll(vararg lookups: Pair<LookupSymbol, List<String>>) {
+        val internedLookups = InternedLookups()
+        for ((symbol, paths) in lookups) {
+            for (path in paths) {
+                internedLookups.add(file(path).path, symbol.scope, symbol.name)
+            }
+        }
+        addAll(internedLookups)
+    }
+
+    private fun file(path: String): File = workingDir.canonicalFile.resolve(path)
+
+    private fun paths(vararg names: String): List<String> = paths(names.toList())
+
+    private fun paths(names: List<String>): List<String> = names.map { file(it).path }.sorted()
+}
@@ -7,6 +7,7 @@ package org.jetbrains.kotlin.incremental.storage
 
 import com.intellij.util.containers.MultiMap
 import org.jetbrains.kotlin.TestWithWorkingDir
+import org.jetbrains.kotlin.incremental.InternedLookups
 import org.jetbrains.kotlin.incremental.LookupStorage
 import org.jetbrains.kotlin.incremental.LookupSymbol
 import org.jetbrains.kotlin.incremental.testingUtils.assertEqualDirectories
@@ -67,7 +68,15 @@ class RelocatableCachesTest : TestWithWorkingDir() {
 
         val filesToAdd = if (reverseFiles) files.reversedSet() else files
         val lookupsToAdd = if (reverseLookups) lookups.reversedMultiMap() else lookups
-        lookupStorage.addAll(lookupsToAdd, filesToAdd)
+        val internedLookups = InternedLookups()
+        for (file in filesToAdd) {
+            for ((symbol, paths) in lookupsToAdd.entrySet()) {
+                if (file in paths) {
+                    internedLookups.add(file, symbol.scope, symbol.name)
+                }
+            }
+        }
+        lookupStorage.addAll(internedLookups)
         lookupStorage.flush(memoryCachesOnly = false)
     }
 
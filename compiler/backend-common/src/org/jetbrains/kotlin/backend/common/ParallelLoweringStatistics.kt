@@ -0,0 +1,35 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.backend.common
+
+import java.util.concurrent.ConcurrentLinkedQueue
+
+/**
+ * Wall time of phases which process files in parallel and the time each thread was busy during them,
+ * which shows how well the work was balanced between threads.
+ */
+class ParallelLoweringStatistics {
+    class Phase(
+        val phaseName: String,
+        val files: Int,
+        val wallTimeNanos: Long,
+        // the busiest threads go first
+        val threadBusyTimeNanos: List<Long>
+    ) {
+        // busy time of each thread relative to the wall time of the phase, in percents
+        val threadUtilization: List<Int>
+            get() = threadBusyTimeNanos.map { if (wallTimeNanos == 0L) 0 else (it * 100 / wallTimeNanos).toInt() }
+    }
+
+    private val recordedPhases = ConcurrentLinkedQueue<Phase>()
+
+    val phases: List<Phase>
+        get() = recordedPhases.toList()
+
+    fun record(phaseName: String, files: Int, wallTimeNanos: Long, threadBusyTimeNanos: Collection<Long>) {
+        recordedPhases.add(Phase(phaseName, files, wallTimeNanos, threadBusyTimeNanos.sortedDescending()))
+    }
+}
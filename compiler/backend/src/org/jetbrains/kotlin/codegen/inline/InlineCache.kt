@@ -16,26 +16,27 @@
 
 package org.jetbrains.kotlin.codegen.inline
 
-import com.intellij.util.containers.SLRUMap
 import org.jetbrains.kotlin.name.ClassId
 import org.jetbrains.org.objectweb.asm.commons.Method
 
 data class MethodId(val ownerInternalName: String, val method: Method)
 
-class InlineCache {
-    val classBytes: SLRUMap<ClassId, ByteArray> = SLRUMap(30, 20)
-    val methodNodeById: SLRUMap<MethodId, SMAPAndMethodNode> = SLRUMap(60, 50)
-}
+class InlineCache(maxWeightInBytes: Long = DEFAULT_MAX_WEIGHT) {
+    val classBytes: WeightedCache<ClassId, ByteArray> =
+        WeightedCache("Inline cache (class files)", maxWeightInBytes / 2) { bytes -> bytes.size.toLong() }
 
-inline fun <K, V : Any> SLRUMap<K, V>.getOrPut(key: K, defaultValue: () -> V): V {
-    synchronized(this) {
-        val value = get(key)
-        return if (value == null) {
-            val answer = defaultValue()
-            put(key, answer)
-            answer
-        } else {
-            value
+    val methodNodeById: WeightedCache<MethodId, SMAPAndMethodNode> =
+        WeightedCache("Inline cache (method nodes)", maxWeightInBytes / 2) { (node) ->
+            // rough estimation of the retained size of a parsed method
+            (node.instructions.size() + node.tryCatchBlocks.size + node.localVariables.orEmpty().size + 1) * ESTIMATED_NODE_SIZE
         }
+
+    companion object {
+        const val DEFAULT_MAX_WEIGHT = 32L * 1024 * 1024
+
+        private const val ESTIMATED_NODE_SIZE = 48L
     }
 }
+
+inline fun <K : Any, V : Any> WeightedCache<K, V>.getOrPut(key: K, crossinline defaultValue: () -> V): V =
+    getOrCompute(key) { defaultValue() }
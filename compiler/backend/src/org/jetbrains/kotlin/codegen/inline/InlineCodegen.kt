@@ -619,13 +619,34 @@ abstract class InlineCodegen<out T : BaseExpressionCodegen>(
                 KotlinTypeMapper.getContainingClassesForDeserializedCallable(callableDescriptor as DescriptorWithContainerSource)
 
             val containerId = containingClasses.implClassId
+            val classType = AsmUtil.asmTypeByClassId(containerId)
 
-            val bytes = state.inlineCache.classBytes.getOrPut(containerId) {
-                findVirtualFile(state, containerId)?.contentsToByteArray()
-                    ?: throw IllegalStateException("Couldn't find declaration file for $containerId")
+            val persistentCache = state.persistentInlineFunctionCache
+            if (persistentCache == null) {
+                val bytes = state.inlineCache.classBytes.getOrPut(containerId) {
+                    findVirtualFile(state, containerId)?.contentsToByteArray()
+                        ?: throw IllegalStateException("Couldn't find declaration file for $containerId")
+                }
+                return doCreateMethodNodeFromClassFile(callableDescriptor, asmMethod, classType, bytes)
             }
 
-            val classType = AsmUtil.asmTypeByClassId(containerId)
+            val classFile = findVirtualFile(state, containerId)
+                ?: throw IllegalStateException("Couldn't find declaration file for $containerId")
+            return persistentCache.getOrPut(
+                classFile,
+                MethodId(classType.internalName, asmMethod),
+                classBytes = { state.inlineCache.classBytes.getOrPut(containerId) { classFile.contentsToByteArray() } }
+            ) { bytes ->
+                doCreateMethodNodeFromClassFile(callableDescriptor, asmMethod, classType, bytes)
+            }
+        }
+
+        private fun doCreateMethodNodeFromClassFile(
+            callableDescriptor: CallableMemberDescriptor,
+            asmMethod: Method,
+            classType: Type,
+            bytes: ByteArray
+        ): SMAPAndMethodNode? {
             val methodNode = getMethodNode(bytes, asmMethod.name, asmMethod.descriptor, classType)
             if (methodNode == null && requiresFunctionNameManglingForReturnType(callableDescriptor)) {
                 val nameWithoutManglingSuffix = asmMethod.name.stripManglingSuffixOrNull()
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen.inline
+
+import com.intellij.openapi.vfs.StandardFileSystems
+import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.util.io.URLUtil
+import org.jetbrains.org.objectweb.asm.*
+import org.jetbrains.org.objectweb.asm.tree.MethodNode
+import java.io.File
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Keeps bodies of inline functions from library jars on disk, so that they can be reused by all modules of a build
+ * (and by subsequent builds) without reading and parsing the whole containing class file again.
+ *
+ * Each body is stored as a minimal class file which consists of the containing class name, its source file and SMAP, and the single
+ * method, in a directory corresponding to the jar it was loaded from. Jars are identified by their path, size and modification time,
+ * so a changed jar never gets stale bodies. Classes which are not loaded from jars (e.g. output directories of other modules)
+ * are not cached, because they change too often.
+ *
+ * Directories of jars which weren't used for the longest time are deleted when the cache gets bigger than [maxSize],
+ * which is checked at most once per [CLEAN_UP_INTERVAL_MILLIS].
+ */
+class PersistentInlineFunctionCache(private val cacheDirectory: File, private val maxSize: Long = DEFAULT_MAX_SIZE) {
+    private val jarDirectories = ConcurrentHashMap<String, File>()
+
+    private val hitCounter = AtomicLong()
+    private val missCounter = AtomicLong()
+
+    val hits: Long get() = hitCounter.get()
+    val misses: Long get() = missCounter.get()
+
+    init {
+        cleanUpIfNeeded()
+    }
+
+    fun getOrPut(
+        classFile: VirtualFile,
+        methodId: MethodId,
+        classBytes: () -> ByteArray,
+        compute: (ByteArray) -> SMAPAndMethodNode?
+    ): SMAPAndMethodNode? {
+        if (classFile.fileSystem.protocol != StandardFileSystems.JAR_PROTOCOL) return compute(classBytes())
+        return getOrPut(File(classFile.path.substringBefore(URLUtil.JAR_SEPARATOR)), methodId, classBytes, compute)
+    }
+
+    fun getOrPut(
+        jar: File,
+        methodId: MethodId,
+        classBytes: () -> ByteArray,
+        compute: (ByteArray) -> SMAPAndMethodNode?
+    ): SMAPAndMethodNode? {
+        // bodies read with different flags (e.g. without debug info) are stored separately
+        val key = methodId.ownerInternalName + "." + methodId.method.name + methodId.method.descriptor + ":" + METHOD_NODE_READER_FLAGS
+        val file = File(getJarDirectory(jar), sha1(key) + ".class")
+
+        load(file, methodId.ownerInternalName)?.let {
+            hitCounter.incrementAndGet()
+            return it
+        }
+        missCounter.incrementAndGet()
+
+        val bytes = classBytes()
+        return compute(bytes)?.also { store(file, methodId.ownerInternalName, classVersion(bytes), it) }
+    }
+
+    private fun getJarDirectory(jar: File): File =
+        jarDirectories.getOrPut(jar.path) {
+            File(cacheDirectory, sha1("${jar.path}:${jar.length()}:${jar.lastModified()}")).also { directory ->
+                // the modification time of a directory is the time it was last used, see cleanUp
+                if (directory.isDirectory) {
+                    directory.setLastModified(System.currentTimeMillis())
+                }
+            }
+        }
+
+    private fun load(file: File, classInternalName: String): SMAPAndMethodNode? {
+        val bytes = try {
+            if (!file.isFile) return null
+            file.readBytes()
+        } catch (e: IOException) {
+            return null
+        }
+
+        var source: String? = null
+        var debug: String? = null
+        var node: MethodNode? = null
+        ClassReader(bytes).accept(object : ClassVisitor(Opcodes.API_VERSION) {
+            override fun visitSource(source1: String?, debug1: String?) {
+                source = source1
+                debug = debug1
+            }
+
+            override fun visitMethod(
+                access: Int,
+                name: String,
+                desc: String,
+                signature: String?,
+                exceptions: Array<String>?
+            ): MethodVisitor = MethodNode(Opcodes.API_VERSION, access, name, desc, signature, exceptions).also { node = it }
+        }, METHOD_NODE_READER_FLAGS)
+
+        val methodNode = node ?: return null
+        val (first, last) = listOf(methodNode).lineNumberRange()
+        return SMAPAndMethodNode(methodNode, SMAPParser.parseOrCreateDefault(debug, source, classInternalName, first, last))
+    }
+
+    private fun store(file: File, classInternalName: String, classVersion: Int, result: SMAPAndMethodNode) {
+        val writer = ClassWriter(0)
+        // the version of the original class, so that the method's instructions stay valid for it
+        writer.visit(classVersion, Opcodes.ACC_PUBLIC or Opcodes.ACC_SUPER, classInternalName, null, "java/lang/Object", null)
+        // an empty SMAP is stored without source, so that it's not replaced with the default one on load
+        val fileMappings = result.classSMAP.fileMappings
+        writer.visitSource(fileMappings.firstOrNull()?.name, SMAPBuilder.build(fileMappings, backwardsCompatibleSyntax = false))
+        result.node.accept(writer)
+        writer.visitEnd()
+
+        try {
+            file.parentFile.mkdirs()
+            val tempFile = File.createTempFile(file.name, ".tmp", file.parentFile)
+            tempFile.writeBytes(writer.toByteArray())
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+        } catch (e: IOException) {
+            // the cache is only an optimization, the body will be stored next time it's requested
+        }
+    }
+
+    private fun cleanUpIfNeeded() {
+        val marker = File(cacheDirectory, CLEAN_UP_MARKER)
+        val now = System.currentTimeMillis()
+        if (marker.exists() && now - marker.lastModified() < CLEAN_UP_INTERVAL_MILLIS) return
+
+        cleanUp()
+
+        try {
+            cacheDirectory.mkdirs()
+            if (!marker.createNewFile()) {
+                marker.setLastModified(now)
+            }
+        } catch (e: IOException) {
+            // the cache will be cleaned up by the next compilation
+        }
+    }
+
+    // deletes directories of jars which weren't used for the longest time, until the cache fits into maxSize
+    fun cleanUp() {
+        val directories = cacheDirectory.listFiles { file -> file.isDirectory } ?: return
+        val sizes = directories.associateWith { directory -> directory.listFiles()?.fold(0L) { size, file -> size + file.length() } ?: 0L }
+        var totalSize = sizes.values.sum()
+        for (directory in directories.sortedBy { it.lastModified() }) {
+            if (totalSize <= maxSize) break
+            // a directory which is being written to by another compilation may fail to be deleted, it's deleted next time
+            if (directory.deleteRecursively()) {
+                totalSize -= sizes.getValue(directory)
+            }
+        }
+    }
+
+    private fun sha1(value: String): String =
+        MessageDigest.getInstance("SHA-1").digest(value.toByteArray()).joinToString("") { "%02x".format(it) }
+
+    companion object {
+        const val DEFAULT_MAX_SIZE = 512L * 1024 * 1024
+
+        private const val CLEAN_UP_INTERVAL_MILLIS = 24L * 60 * 60 * 1000
+        private const val CLEAN_UP_MARKER = "last-clean-up"
+
+        // minor_version and major_version of the class file, in the format of ClassVisitor.visit
+        private fun classVersion(bytes: ByteArray): Int {
+            fun readUnsignedShort(offset: Int): Int = (bytes[offset].toInt() and 0xff shl 8) or (bytes[offset + 1].toInt() and 0xff)
+            return (readUnsignedShort(4) shl 16) or readUnsignedShort(6)
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen.inline
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A thread-safe cache bounded by the total weight (usually the estimated size in bytes) of its values.
+ *
+ * Each value is computed at most once while it is in the cache: concurrent requests for the same key wait for the first computation
+ * instead of repeating it, requests for other keys are not blocked. When the total weight exceeds [maxWeight], values are evicted
+ * in the insertion order, except the ones which were accessed since the previous eviction pass ("second chance" policy).
+ */
+class WeightedCache<K : Any, V : Any>(
+    val name: String,
+    private val maxWeight: Long,
+    private val weigher: (V) -> Long
+) {
+    private inner class Entry(val key: K) {
+        @Volatile
+        var value: V? = null
+
+        @Volatile
+        var weight: Long = 0
+
+        @Volatile
+        var recentlyUsed: Boolean = false
+    }
+
+    private val entries = ConcurrentHashMap<K, Entry>()
+    private val evictionQueue = ConcurrentLinkedQueue<Entry>()
+    private val totalWeight = AtomicLong()
+
+    private val hitCounter = AtomicLong()
+    private val missCounter = AtomicLong()
+    private val evictionCounter = AtomicLong()
+
+    val hits: Long get() = hitCounter.get()
+    val misses: Long get() = missCounter.get()
+    val evictions: Long get() = evictionCounter.get()
+    val weight: Long get() = totalWeight.get()
+
+    fun getOrCompute(key: K, compute: (K) -> V): V {
+        val entry = entries.computeIfAbsent(key) { Entry(it) }
+        entry.value?.let { value ->
+            entry.recentlyUsed = true
+            hitCounter.incrementAndGet()
+            return value
+        }
+
+        val computed = synchronized(entry) {
+            entry.value?.let { value ->
+                // computed by another thread while we were waiting
+                hitCounter.incrementAndGet()
+                return value
+            }
+            missCounter.incrementAndGet()
+            val value = try {
+                compute(key)
+            } catch (e: Throwable) {
+                // don't leave an empty entry behind, threads waiting for this entry will compute the value again
+                entries.remove(key, entry)
+                throw e
+            }
+            entry.weight = weigher(value)
+            entry.value = value
+            value
+        }
+
+        if (entries[key] === entry) {
+            evictionQueue.add(entry)
+            if (totalWeight.addAndGet(entry.weight) > maxWeight) {
+                evict()
+            }
+        }
+        return computed
+    }
+
+    fun clear() {
+        entries.clear()
+        evictionQueue.clear()
+        totalWeight.set(0)
+    }
+
+    private fun evict() {
+        // each entry gets at most one second chance per pass, so the loop terminates even if all entries were recently used
+        var remainingSecondChances = evictionQueue.size
+        while (totalWeight.get() > maxWeight) {
+            val entry = evictionQueue.poll() ?: return
+            if (entry.recentlyUsed && remainingSecondChances-- > 0) {
+                entry.recentlyUsed = false
+                evictionQueue.add(entry)
+                continue
+            }
+            if (entries.remove(entry.key, entry)) {
+                totalWeight.addAndGet(-entry.weight)
+                evictionCounter.incrementAndGet()
+            }
+        }
+    }
+}
@@ -84,6 +84,8 @@ private const val INLINE_MARKER_AFTER_INLINE_SUSPEND_ID = 7
 private const val INLINE_MARKER_BEFORE_UNBOX_INLINE_CLASS = 8
 private const val INLINE_MARKER_AFTER_UNBOX_INLINE_CLASS = 9
 
+internal const val METHOD_NODE_READER_FLAGS = ClassReader.SKIP_FRAMES or if (GENERATE_SMAP) 0 else ClassReader.SKIP_DEBUG
+
 internal fun getMethodNode(
     classData: ByteArray,
     methodName: String,
@@ -124,7 +126,7 @@ internal fun getMethodNode(
             node = MethodNode(Opcodes.API_VERSION, access, name, desc, signature, exceptions)
             return node!!
         }
-    }, ClassReader.SKIP_FRAMES or if (GENERATE_SMAP) 0 else ClassReader.SKIP_DEBUG)
+    }, METHOD_NODE_READER_FLAGS)
 
     if (node == null) {
         return null
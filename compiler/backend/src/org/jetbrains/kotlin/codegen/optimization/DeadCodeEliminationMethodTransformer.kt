@@ -17,6 +17,7 @@
 package org.jetbrains.kotlin.codegen.optimization
 
 import org.jetbrains.kotlin.codegen.inline.remove
+import org.jetbrains.kotlin.codegen.optimization.common.BasicBlockFramesAnalyzer
 import org.jetbrains.kotlin.codegen.optimization.common.OptimizationBasicInterpreter
 import org.jetbrains.kotlin.codegen.optimization.common.removeEmptyCatchBlocks
 import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer
@@ -31,6 +32,12 @@ class DeadCodeEliminationMethodTransformer : MethodTransformer() {
     }
 
     fun transformWithResult(internalClassName: String, methodNode: MethodNode): Result {
+        if (!OptimizationMethodVisitor.canBeOptimized(methodNode)) {
+            // only reachability is needed here, so frames of all instructions are not kept for big methods
+            val analyzer = BasicBlockFramesAnalyzer(internalClassName, methodNode, OptimizationBasicInterpreter()).analyze()
+            val reachable = Array<Any?>(methodNode.instructions.size()) { if (analyzer.isReachable(it)) true else null }
+            return removeDeadCodeByFrames(methodNode, reachable)
+        }
         val frames = analyze(internalClassName, methodNode, OptimizationBasicInterpreter())
         return removeDeadCodeByFrames(methodNode, frames)
     }
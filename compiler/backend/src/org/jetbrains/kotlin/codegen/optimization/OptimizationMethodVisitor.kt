@@ -20,10 +20,12 @@ import org.jetbrains.kotlin.codegen.TransformationMethodVisitor
 import org.jetbrains.kotlin.codegen.optimization.boxing.PopBackwardPropagationTransformer
 import org.jetbrains.kotlin.codegen.optimization.boxing.RedundantBoxingMethodTransformer
 import org.jetbrains.kotlin.codegen.optimization.boxing.StackPeepholeOptimizationsTransformer
+import org.jetbrains.kotlin.codegen.optimization.common.BasicBlockFramesAnalyzer
 import org.jetbrains.kotlin.codegen.optimization.common.prepareForEmitting
 import org.jetbrains.kotlin.codegen.optimization.nullCheck.RedundantNullCheckMethodTransformer
 import org.jetbrains.kotlin.codegen.optimization.transformer.CompositeMethodTransformer
 import org.jetbrains.kotlin.codegen.state.GenerationState
+import org.jetbrains.kotlin.util.PerformanceCounter
 import org.jetbrains.org.objectweb.asm.MethodVisitor
 import org.jetbrains.org.objectweb.asm.tree.MethodNode
 
@@ -39,31 +41,63 @@ class OptimizationMethodVisitor(
     private val constructorCallNormalizationTransformer =
         UninitializedStoresMethodTransformer(generationState.constructorCallNormalizationMode)
 
+    private val statistics = generationState.bytecodeOptimizationStatistics
+
     val normalizationMethodTransformer = CompositeMethodTransformer(
-        FixStackWithLabelNormalizationMethodTransformer(),
-        MethodVerifier("AFTER mandatory stack transformations")
+        listOf(
+            FixStackWithLabelNormalizationMethodTransformer(),
+            MethodVerifier("AFTER mandatory stack transformations")
+        ),
+        statistics,
+        "Normalization"
     )
 
     val optimizationTransformer = CompositeMethodTransformer(
-        CapturedVarsOptimizationMethodTransformer(),
-        RedundantNullCheckMethodTransformer(generationState),
-        RedundantCheckCastEliminationMethodTransformer(),
-        ConstantConditionEliminationMethodTransformer(),
-        RedundantBoxingMethodTransformer(generationState),
-        StackPeepholeOptimizationsTransformer(),
-        PopBackwardPropagationTransformer(),
-        DeadCodeEliminationMethodTransformer(),
-        RedundantGotoMethodTransformer(),
-        RedundantNopsCleanupMethodTransformer(),
-        MethodVerifier("AFTER optimizations")
+        listOf(
+            CapturedVarsOptimizationMethodTransformer(),
+            RedundantNullCheckMethodTransformer(generationState),
+            RedundantCheckCastEliminationMethodTransformer(),
+            ConstantConditionEliminationMethodTransformer(),
+            RedundantBoxingMethodTransformer(generationState),
+            StackPeepholeOptimizationsTransformer(),
+            PopBackwardPropagationTransformer(),
+            DeadCodeEliminationMethodTransformer(),
+            RedundantGotoMethodTransformer(),
+            RedundantNopsCleanupMethodTransformer(),
+            MethodVerifier("AFTER optimizations")
+        ),
+        statistics,
+        "Optimization"
+    )
+
+    // Optimizations which don't need frames of all instructions at once, see BasicBlockFramesAnalyzer
+    val largeMethodOptimizationTransformer = CompositeMethodTransformer(
+        listOf(
+            RedundantCheckCastEliminationMethodTransformer(),
+            ConstantConditionEliminationMethodTransformer(),
+            StackPeepholeOptimizationsTransformer(),
+            DeadCodeEliminationMethodTransformer(),
+            RedundantGotoMethodTransformer(),
+            RedundantNopsCleanupMethodTransformer(),
+            MethodVerifier("AFTER optimizations")
+        ),
+        statistics,
+        "Large method optimization"
     )
 
     override fun performTransformations(methodNode: MethodNode) {
         normalizationMethodTransformer.transform("fake", methodNode)
         constructorCallNormalizationTransformer.transform("fake", methodNode)
 
-        if (canBeOptimized(methodNode) && !generationState.disableOptimization) {
-            optimizationTransformer.transform("fake", methodNode)
+        if (!generationState.disableOptimization) {
+            if (canBeOptimized(methodNode)) {
+                optimizationTransformer.transform("fake", methodNode)
+            } else if (canBeOptimizedWithBasicBlockFrames(methodNode)) {
+                basicBlockFramesMethodsCounter.increment()
+                largeMethodOptimizationTransformer.transform("fake", methodNode)
+            } else {
+                tooBigMethodsCounter.increment()
+            }
         }
 
         DeadCodeEliminationMethodTransformer().transform("fake", methodNode)
@@ -74,11 +108,21 @@ class OptimizationMethodVisitor(
     companion object {
         private val MEMORY_LIMIT_BY_METHOD_MB = 50
 
+        private val tooBigMethodsCounter = PerformanceCounter.create("Methods too big for bytecode optimization")
+        private val basicBlockFramesMethodsCounter =
+            PerformanceCounter.create("Methods optimized with basic block frames (too big for full bytecode optimization)")
+
         fun canBeOptimized(node: MethodNode): Boolean {
             val totalFramesSizeMb = node.instructions.size() * (node.maxLocals + node.maxStack) / (1024 * 1024)
             return totalFramesSizeMb < MEMORY_LIMIT_BY_METHOD_MB
         }
 
+        fun canBeOptimizedWithBasicBlockFrames(node: MethodNode): Boolean {
+            val frameSize = (node.maxLocals + node.maxStack).toLong()
+            val totalFramesSizeMb = BasicBlockFramesAnalyzer.countBasicBlocks(node) * frameSize / (1024 * 1024)
+            return totalFramesSizeMb < MEMORY_LIMIT_BY_METHOD_MB
+        }
+
         fun canBeOptimizedUsingSourceInterpreter(node: MethodNode): Boolean {
             val frameSize = node.maxLocals + node.maxStack
             val methodSize = node.instructions.size().toLong()
@@ -18,6 +18,7 @@ package org.jetbrains.kotlin.codegen.optimization
 
 import org.jetbrains.kotlin.codegen.inline.ReifiedTypeInliner
 import org.jetbrains.kotlin.codegen.optimization.common.OptimizationBasicInterpreter
+import org.jetbrains.kotlin.codegen.optimization.common.forEachFrame
 import org.jetbrains.kotlin.codegen.optimization.fixStack.top
 import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer
 import org.jetbrains.org.objectweb.asm.Opcodes
@@ -33,22 +34,19 @@ class RedundantCheckCastEliminationMethodTransformer : MethodTransformer() {
 
         val redundantCheckCasts = ArrayList<TypeInsnNode>()
 
-        val frames = analyze(internalClassName, methodNode, OptimizationBasicInterpreter())
-        for (i in insns.indices) {
-            val valueType = frames[i]?.top()?.type ?: continue
-            val insn = insns[i]
+        forEachFrame(internalClassName, methodNode, OptimizationBasicInterpreter()) { i, frame ->
+            val insn = insns[i] as? TypeInsnNode ?: return@forEachFrame
+            val valueType = frame.top()?.type ?: return@forEachFrame
 
-            if (insn is TypeInsnNode) {
-                val insnType = Type.getObjectType(insn.desc)
-                if (!isTrivialSubtype(insnType, valueType)) continue
+            val insnType = Type.getObjectType(insn.desc)
+            if (!isTrivialSubtype(insnType, valueType)) return@forEachFrame
 
-                //Keep casts to multiarray types cause dex doesn't recognize ANEWARRAY [Ljava/lang/Object; as Object [][], but Object [] type
-                //It's not clear is it bug in dex or not and maybe best to distinguish such types from MULTINEWARRRAY ones in method analyzer
-                if (isMultiArrayType(insnType)) continue
+            //Keep casts to multiarray types cause dex doesn't recognize ANEWARRAY [Ljava/lang/Object; as Object [][], but Object [] type
+            //It's not clear is it bug in dex or not and maybe best to distinguish such types from MULTINEWARRRAY ones in method analyzer
+            if (isMultiArrayType(insnType)) return@forEachFrame
 
-                if (insn.opcode == Opcodes.CHECKCAST) {
-                    redundantCheckCasts.add(insn)
-                }
+            if (insn.opcode == Opcodes.CHECKCAST) {
+                redundantCheckCasts.add(insn)
             }
         }
 
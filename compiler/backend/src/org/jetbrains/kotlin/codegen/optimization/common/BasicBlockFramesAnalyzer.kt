@@ -0,0 +1,240 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization.common
+
+import org.jetbrains.kotlin.codegen.inline.insnText
+import org.jetbrains.kotlin.codegen.optimization.OptimizationMethodVisitor
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer
+import org.jetbrains.org.objectweb.asm.Opcodes
+import org.jetbrains.org.objectweb.asm.Type
+import org.jetbrains.org.objectweb.asm.tree.*
+import org.jetbrains.org.objectweb.asm.tree.analysis.AnalyzerException
+import org.jetbrains.org.objectweb.asm.tree.analysis.Frame
+import org.jetbrains.org.objectweb.asm.tree.analysis.Interpreter
+import org.jetbrains.org.objectweb.asm.tree.analysis.Value
+
+/**
+ * Data flow analysis which keeps frames only at the beginning of basic blocks, so its memory usage is proportional
+ * to the number of basic blocks rather than to the number of instructions (as in [MethodAnalyzer] or ASM Analyzer).
+ * Frames of other instructions are recomputed by [forEachFrame], which replays each basic block from its first instruction.
+ *
+ * Computed frames are the same as ones computed by ASM Analyzer with the same interpreter.
+ */
+class BasicBlockFramesAnalyzer<V : Value>(
+    private val owner: String,
+    private val method: MethodNode,
+    private val interpreter: Interpreter<V>
+) {
+    private val insns: Array<AbstractInsnNode> = method.instructions.toArray()
+    private val nInsns = insns.size
+
+    // indices of the first instructions of basic blocks, sorted
+    private val blockStarts: IntArray = computeBlockStarts()
+    private val blockFrames: Array<Frame<V>?> = arrayOfNulls(blockStarts.size)
+
+    private val handlers: Array<MutableList<TryCatchBlockNode>?> = arrayOfNulls(nInsns)
+
+    private val queued = BooleanArray(blockStarts.size)
+    private val queue = IntArray(blockStarts.size)
+    private var top = 0
+
+    fun analyze(): BasicBlockFramesAnalyzer<V> {
+        if (nInsns == 0) return this
+
+        computeExceptionHandlersForEachInsn()
+
+        val current = Frame<V>(method.maxLocals, method.maxStack)
+        initEntryFrame(current)
+        mergeIntoBlock(0, current)
+
+        val handler = Frame<V>(method.maxLocals, method.maxStack)
+        while (top > 0) {
+            val block = queue[--top]
+            queued[block] = false
+            current.init(blockFrames[block]!!)
+            executeBlock(block, current, handler)
+        }
+
+        return this
+    }
+
+    fun isReachable(insnIndex: Int): Boolean =
+        blockFrames[blockOf(insnIndex)] != null
+
+    /**
+     * Calls [action] for each reachable instruction, in the order of instructions, with the frame before the instruction.
+     * The frame is reused between calls, so it must not be stored.
+     */
+    fun forEachFrame(action: (Int, Frame<V>) -> Unit) {
+        val current = Frame<V>(method.maxLocals, method.maxStack)
+        for (block in blockStarts.indices) {
+            val entryFrame = blockFrames[block] ?: continue
+            current.init(entryFrame)
+            for (index in blockStarts[block] until blockEnd(block)) {
+                action(index, current)
+                execute(index, current)
+            }
+        }
+    }
+
+    private fun executeBlock(block: Int, current: Frame<V>, handler: Frame<V>) {
+        val end = blockEnd(block)
+        for (index in blockStarts[block] until end) {
+            handlers[index]?.forEach { tcb ->
+                handler.init(current)
+                handler.clearStack()
+                handler.push(interpreter.newValue(Type.getObjectType(tcb.type ?: "java/lang/Throwable")))
+                mergeIntoBlock(blockOf(method.instructions.indexOf(tcb.handler)), handler)
+            }
+            execute(index, current)
+        }
+
+        val last = insns[end - 1]
+        when {
+            last is JumpInsnNode -> {
+                if (last.opcode != Opcodes.GOTO) mergeIntoInsn(end, current)
+                mergeIntoInsn(method.instructions.indexOf(last.label), current)
+            }
+            last is TableSwitchInsnNode -> {
+                mergeIntoInsn(method.instructions.indexOf(last.dflt), current)
+                last.labels.forEach { mergeIntoInsn(method.instructions.indexOf(it), current) }
+            }
+            last is LookupSwitchInsnNode -> {
+                mergeIntoInsn(method.instructions.indexOf(last.dflt), current)
+                last.labels.forEach { mergeIntoInsn(method.instructions.indexOf(it), current) }
+            }
+            !last.isTerminating() ->
+                mergeIntoInsn(end, current)
+        }
+    }
+
+    private fun execute(index: Int, current: Frame<V>) {
+        val insn = insns[index]
+        val type = insn.type
+        if (type == AbstractInsnNode.LABEL || type == AbstractInsnNode.LINE || type == AbstractInsnNode.FRAME) return
+
+        try {
+            current.execute(insn, interpreter)
+        } catch (e: AnalyzerException) {
+            throw AnalyzerException(e.node, "Error at instruction #$index ${insn.insnText}: ${e.message}", e)
+        } catch (e: Exception) {
+            throw AnalyzerException(insn, "Error at instruction #$index ${insn.insnText}: ${e.message}", e)
+        }
+    }
+
+    private fun mergeIntoInsn(insnIndex: Int, frame: Frame<V>) {
+        if (insnIndex < nInsns) {
+            mergeIntoBlock(blockOf(insnIndex), frame)
+        }
+    }
+
+    private fun mergeIntoBlock(block: Int, frame: Frame<V>) {
+        val oldFrame = blockFrames[block]
+        val changes =
+            if (oldFrame != null)
+                oldFrame.merge(frame, interpreter)
+            else {
+                blockFrames[block] = Frame<V>(method.maxLocals, method.maxStack).apply { init(frame) }
+                true
+            }
+        if (changes && !queued[block]) {
+            queued[block] = true
+            queue[top++] = block
+        }
+    }
+
+    private fun blockOf(insnIndex: Int): Int {
+        val index = blockStarts.binarySearch(insnIndex)
+        return if (index >= 0) index else -index - 2
+    }
+
+    private fun blockEnd(block: Int): Int =
+        if (block + 1 < blockStarts.size) blockStarts[block + 1] else nInsns
+
+    private fun computeBlockStarts(): IntArray {
+        if (nInsns == 0) return IntArray(0)
+
+        val isBlockStart = BooleanArray(nInsns + 1)
+        isBlockStart[0] = true
+        for ((index, insn) in insns.withIndex()) {
+            val targets = when (insn) {
+                is JumpInsnNode -> listOf(insn.label)
+                is TableSwitchInsnNode -> insn.labels + insn.dflt
+                is LookupSwitchInsnNode -> insn.labels + insn.dflt
+                else -> if (insn.isTerminating()) emptyList() else null
+            } ?: continue
+
+            for (target in targets) {
+                isBlockStart[method.instructions.indexOf(target)] = true
+            }
+            // instruction after a jump starts a new block even if it's not a jump target, e.g. the "else" branch of IFEQ
+            isBlockStart[index + 1] = true
+        }
+        for (tcb in method.tryCatchBlocks) {
+            isBlockStart[method.instructions.indexOf(tcb.handler)] = true
+        }
+
+        return (0 until nInsns).filter { isBlockStart[it] }.toIntArray()
+    }
+
+    private fun computeExceptionHandlersForEachInsn() {
+        for (tcb in method.tryCatchBlocks) {
+            val begin = method.instructions.indexOf(tcb.start)
+            val end = method.instructions.indexOf(tcb.end)
+            for (j in begin until end) {
+                (handlers[j] ?: ArrayList<TryCatchBlockNode>().also { handlers[j] = it }).add(tcb)
+            }
+        }
+    }
+
+    private fun initEntryFrame(current: Frame<V>) {
+        current.setReturn(interpreter.newValue(Type.getReturnType(method.desc)))
+        var local = 0
+        if ((method.access and Opcodes.ACC_STATIC) == 0) {
+            current.setLocal(local++, interpreter.newValue(Type.getObjectType(owner)))
+        }
+        for (arg in Type.getArgumentTypes(method.desc)) {
+            current.setLocal(local++, interpreter.newValue(arg))
+            if (arg.size == 2) {
+                current.setLocal(local++, interpreter.newValue(null))
+            }
+        }
+        while (local < method.maxLocals) {
+            current.setLocal(local++, interpreter.newValue(null))
+        }
+    }
+
+    companion object {
+        fun countBasicBlocks(method: MethodNode): Int =
+            method.instructions.asSequence().count {
+                it is LabelNode || it is JumpInsnNode || it is TableSwitchInsnNode || it is LookupSwitchInsnNode || it.isTerminating()
+            } + 1
+    }
+}
+
+private fun AbstractInsnNode.isTerminating(): Boolean =
+    opcode == Opcodes.ATHROW || opcode in Opcodes.IRETURN..Opcodes.RETURN
+
+/**
+ * Calls [action] with the frame before each reachable instruction of [methodNode], in the order of instructions.
+ * For methods which are too big to keep frames for all instructions at once, frames are computed block by block
+ * using [BasicBlockFramesAnalyzer]; in this case the frame is reused between calls, so it must not be stored.
+ */
+fun <V : Value> forEachFrame(
+    internalClassName: String,
+    methodNode: MethodNode,
+    interpreter: Interpreter<V>,
+    action: (Int, Frame<V>) -> Unit
+) {
+    if (OptimizationMethodVisitor.canBeOptimized(methodNode)) {
+        val frames = MethodTransformer.analyze(internalClassName, methodNode, interpreter)
+        for (i in frames.indices) {
+            action(i, frames[i] ?: continue)
+        }
+    } else {
+        BasicBlockFramesAnalyzer(internalClassName, methodNode, interpreter).analyze().forEachFrame(action)
+    }
+}
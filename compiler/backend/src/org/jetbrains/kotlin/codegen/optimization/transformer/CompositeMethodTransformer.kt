@@ -18,11 +18,21 @@ package org.jetbrains.kotlin.codegen.optimization.transformer
 
 import org.jetbrains.org.objectweb.asm.tree.MethodNode
 
-open class CompositeMethodTransformer(private val transformers: List<MethodTransformer>) : MethodTransformer() {
+open class CompositeMethodTransformer(
+    private val transformers: List<MethodTransformer>,
+    private val statistics: MethodTransformerStatistics? = null,
+    private val pipelineName: String = ""
+) : MethodTransformer() {
     constructor(vararg transformers: MethodTransformer?) : this(transformers.filterNotNull())
 
     override fun transform(internalClassName: String, methodNode: MethodNode) {
-        transformers.forEach { it.transform(internalClassName, methodNode) }
+        if (statistics != null) {
+            transformers.forEachIndexed { position, transformer ->
+                statistics.transform(pipelineName, position, transformer, internalClassName, methodNode)
+            }
+        } else {
+            transformers.forEach { it.transform(internalClassName, methodNode) }
+        }
     }
 
     companion object {
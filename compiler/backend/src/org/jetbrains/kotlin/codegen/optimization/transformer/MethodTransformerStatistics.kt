@@ -0,0 +1,64 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization.transformer
+
+import org.jetbrains.org.objectweb.asm.tree.MethodNode
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Time spent in each [MethodTransformer] of the bytecode optimization pipelines and the effect it had on the methods,
+ * aggregated over all methods of the module. Transformers are told apart by their pipeline and position in it, since each method
+ * gets new transformer instances and the same transformer class may be used several times. Methods may be transformed in parallel,
+ * so all counters are atomic.
+ */
+class MethodTransformerStatistics {
+    class Entry(val transformerName: String) {
+        private val timeNanosCounter = AtomicLong()
+        private val methodsCounter = AtomicLong()
+        private val changedMethodsCounter = AtomicLong()
+        private val instructionsBeforeCounter = AtomicLong()
+        private val instructionsAfterCounter = AtomicLong()
+
+        val timeNanos: Long get() = timeNanosCounter.get()
+        val methods: Long get() = methodsCounter.get()
+
+        // methods in which the number of instructions was changed by the transformer
+        val changedMethods: Long get() = changedMethodsCounter.get()
+        val instructionsBefore: Long get() = instructionsBeforeCounter.get()
+        val instructionsAfter: Long get() = instructionsAfterCounter.get()
+
+        internal fun record(timeNanos: Long, instructionsBefore: Int, instructionsAfter: Int) {
+            timeNanosCounter.addAndGet(timeNanos)
+            methodsCounter.incrementAndGet()
+            if (instructionsBefore != instructionsAfter) {
+                changedMethodsCounter.incrementAndGet()
+            }
+            instructionsBeforeCounter.addAndGet(instructionsBefore.toLong())
+            instructionsAfterCounter.addAndGet(instructionsAfter.toLong())
+        }
+    }
+
+    private data class Key(val pipelineName: String, val position: Int, val transformerClass: Class<*>)
+
+    private val entries = ConcurrentHashMap<Key, Entry>()
+
+    // the slowest transformers go first
+    val transformers: List<Entry>
+        get() = entries.values.sortedByDescending { it.timeNanos }
+
+    fun transform(pipelineName: String, position: Int, transformer: MethodTransformer, internalClassName: String, methodNode: MethodNode) {
+        val entry = entries.computeIfAbsent(Key(pipelineName, position, transformer.javaClass)) { key ->
+            // anonymous transformers have no simple name
+            val className = key.transformerClass.simpleName.ifEmpty { key.transformerClass.name }
+            Entry("$pipelineName #${position + 1} $className")
+        }
+        val instructionsBefore = methodNode.instructions.size()
+        val start = System.nanoTime()
+        transformer.transform(internalClassName, methodNode)
+        entry.record(System.nanoTime() - start, instructionsBefore, methodNode.instructions.size())
+    }
+}
@@ -8,6 +8,7 @@ package org.jetbrains.kotlin.codegen.state
 import com.intellij.openapi.project.Project
 import com.intellij.openapi.util.ModificationTracker
 import com.intellij.psi.PsiElement
+import org.jetbrains.kotlin.backend.common.ParallelLoweringStatistics
 import org.jetbrains.kotlin.codegen.*
 import org.jetbrains.kotlin.codegen.`when`.MappingsClassesForWhenByEnum
 import org.jetbrains.kotlin.codegen.binding.CodegenBinding
@@ -16,8 +17,10 @@ import org.jetbrains.kotlin.codegen.context.RootContext
 import org.jetbrains.kotlin.codegen.extensions.ClassBuilderInterceptorExtension
 import org.jetbrains.kotlin.codegen.inline.GlobalInlineContext
 import org.jetbrains.kotlin.codegen.inline.InlineCache
+import org.jetbrains.kotlin.codegen.inline.PersistentInlineFunctionCache
 import org.jetbrains.kotlin.codegen.intrinsics.IntrinsicMethods
 import org.jetbrains.kotlin.codegen.optimization.OptimizationClassBuilderFactory
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformerStatistics
 import org.jetbrains.kotlin.codegen.serialization.JvmSerializationBindings
 import org.jetbrains.kotlin.config.*
 import org.jetbrains.kotlin.config.LanguageVersion.*
@@ -147,7 +150,11 @@ class GenerationState private constructor(
         }
     }
 
-    val inlineCache: InlineCache = InlineCache()
+    val inlineCache: InlineCache =
+        InlineCache(configuration.get(JVMConfigurationKeys.INLINE_CACHE_SIZE_LIMIT) ?: InlineCache.DEFAULT_MAX_WEIGHT)
+
+    val persistentInlineFunctionCache: PersistentInlineFunctionCache? =
+        configuration.get(JVMConfigurationKeys.INLINE_FUNCTION_CACHE_DIRECTORY)?.let { PersistentInlineFunctionCache(it) }
 
     val incrementalCacheForThisTarget: IncrementalCache?
     val packagesWithObsoleteParts: Set<FqName>
@@ -319,6 +326,11 @@ class GenerationState private constructor(
 
     val disableOptimization = configuration.get(JVMConfigurationKeys.DISABLE_OPTIMIZATION, false)
 
+    val bytecodeOptimizationStatistics: MethodTransformerStatistics? =
+        if (configuration.get(JVMConfigurationKeys.PROFILE_BYTECODE_OPTIMIZATIONS, false)) MethodTransformerStatistics() else null
+
+    val parallelLoweringStatistics = ParallelLoweringStatistics()
+
     val metadataVersion =
         configuration.get(CommonConfigurationKeys.METADATA_VERSION)
             ?: LANGUAGE_TO_METADATA_VERSION.getValue(languageVersionSettings.languageVersion)
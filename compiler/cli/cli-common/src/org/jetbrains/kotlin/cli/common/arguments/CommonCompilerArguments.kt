@@ -317,6 +317,13 @@ abstract class CommonCompilerArguments : CommonToolArguments() {
     )
     var useFirExtendedCheckers: Boolean by FreezableVar(false)
 
+    @Argument(
+        value = "-Xfir-soft-rebuildable-scopes",
+        description = "When using Front-end IR, keep scopes which can be built again on demand (such as default importing scopes)\n" +
+                "only via soft references, so that they can be collected under memory pressure"
+    )
+    var firSoftRebuildableScopes: Boolean by FreezableVar(false)
+
     @Argument(
         value = "-Xdisable-ultra-light-classes",
         description = "Do not use the ultra light classes implementation"
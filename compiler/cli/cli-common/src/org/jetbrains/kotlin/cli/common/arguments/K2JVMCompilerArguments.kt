@@ -126,6 +126,52 @@ class K2JVMCompilerArguments : CommonCompilerArguments() {
     )
     var parallelBackendThreads: String by FreezableVar("1")
 
+    @Argument(
+        value = "-Xparallel-backend-shadow-copies",
+        description = "When running lowerings in parallel, lower files in place and copy only declarations referenced from other files,\n" +
+                "instead of copying the whole module"
+    )
+    var parallelBackendShadowCopies: Boolean by FreezableVar(false)
+
+    @Argument(
+        value = "-Xfir-parallel-body-resolve-threads",
+        valueDescription = "<N>",
+        description = "When using Front-end IR, resolve bodies of different files in N parallel threads.\n" +
+                "0 means use a thread per processor core.\n" +
+                "Default value is 1"
+    )
+    var firParallelBodyResolveThreads: String by FreezableVar("1")
+
+    @Argument(
+        value = "-Xclasspath-package-index-cache",
+        valueDescription = "<path>",
+        description = "Cache packages contained in classpath jars in the given file and reuse them in subsequent compilations\n" +
+                "while the jars are unchanged (same size and modification time)"
+    )
+    var classpathPackageIndexCache: String? by NullableStringFreezableVar(null)
+
+    @Argument(
+        value = "-Xcompact-binding-context",
+        description = "Store the binding context of the old frontend in a separate table for each kind of binding\n" +
+                "instead of a map of bindings for each element (experimental)"
+    )
+    var compactBindingContext: Boolean by FreezableVar(false)
+
+    @Argument(
+        value = "-Xinline-cache-size",
+        valueDescription = "<megabytes>",
+        description = "Maximum size of class files and parsed method bodies of inline functions from dependencies\n" +
+                "kept in memory during code generation. Default value is 32"
+    )
+    var inlineCacheSize: String? by NullableStringFreezableVar(null)
+
+    @Argument(
+        value = "-Xinline-function-cache-dir",
+        valueDescription = "<path>",
+        description = "Cache bodies of inline functions from library jars in the given directory and reuse them in subsequent compilations"
+    )
+    var inlineFunctionCacheDirectory: String? by NullableStringFreezableVar(null)
+
     @Argument(value = "-Xmodule-path", valueDescription = "<path>", description = "Paths where to find Java 9+ modules")
     var javaModulePath: String? by NullableStringFreezableVar(null)
 
@@ -158,6 +204,13 @@ class K2JVMCompilerArguments : CommonCompilerArguments() {
     @Argument(value = "-Xno-optimize", description = "Disable optimizations")
     var noOptimize: Boolean by FreezableVar(false)
 
+    @Argument(
+        value = "-Xprofile-bytecode-optimizations",
+        description = "Report time spent in each bytecode optimization pass and its effect on the number of instructions.\n" +
+                "Has effect only together with -Xreport-perf or -Xdump-perf"
+    )
+    var profileBytecodeOptimizations: Boolean by FreezableVar(false)
+
     @Argument(
         value = "-Xnormalize-constructor-calls",
         valueDescription = "{disable|enable}",
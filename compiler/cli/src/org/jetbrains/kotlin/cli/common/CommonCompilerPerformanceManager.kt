@@ -34,6 +34,8 @@ abstract class CommonCompilerPerformanceManager(private val presentableName: Str
 
     fun getMeasurementResults(): List<PerformanceMeasurement> = measurements
 
+    val isCollectingPerformanceStatistics: Boolean get() = isEnabled
+
     fun enableCollectingPerformanceStatistics() {
         isEnabled = true
         PerformanceCounter.setTimeCounterEnabled(true)
@@ -115,6 +117,35 @@ abstract class CommonCompilerPerformanceManager(private val presentableName: Str
         )
     }
 
+    open fun notifyCacheStatistics(cacheName: String, hits: Long, misses: Long, evictions: Long, sizeInBytes: Long) {
+        if (!isEnabled) return
+        measurements += CacheMeasurement(cacheName, hits, misses, evictions, sizeInBytes)
+    }
+
+    open fun notifyBytecodeOptimizationStatistics(
+        transformerName: String,
+        timeNanos: Long,
+        methods: Long,
+        changedMethods: Long,
+        instructionsBefore: Long,
+        instructionsAfter: Long
+    ) {
+        if (!isEnabled) return
+        measurements += BytecodeOptimizationMeasurement(
+            transformerName, TimeUnit.NANOSECONDS.toMillis(timeNanos), methods, changedMethods, instructionsBefore, instructionsAfter
+        )
+    }
+
+    open fun notifyParallelLoweringStatistics(phaseName: String, files: Int, wallTimeNanos: Long, threadUtilization: List<Int>) {
+        if (!isEnabled) return
+        measurements += ParallelLoweringMeasurement(phaseName, files, TimeUnit.NANOSECONDS.toMillis(wallTimeNanos), threadUtilization)
+    }
+
+    open fun notifyScopeSessionStatistics(scopes: Int, rebuiltScopes: Long) {
+        if (!isEnabled) return
+        measurements += ScopeSessionMeasurement(scopes, rebuiltScopes)
+    }
+
     fun dumpPerformanceReport(destination: File) {
         destination.writeBytes(createPerformanceReport())
     }
@@ -152,7 +183,10 @@ abstract class CommonCompilerPerformanceManager(private val presentableName: Str
 
     private fun createPerformanceReport(): ByteArray = buildString {
         append("$presentableName performance report\n")
-        measurements.map { it.render() }.sorted().forEach { append("$it\n") }
+        measurements.filter { it !is BytecodeOptimizationMeasurement }.map { it.render() }.sorted().forEach { append("$it\n") }
+        // per-pass statistics are reported the slowest passes first rather than alphabetically
+        measurements.filterIsInstance<BytecodeOptimizationMeasurement>().sortedByDescending { it.milliseconds }
+            .forEach { append("${it.render()}\n") }
     }.toByteArray()
 
     open fun notifyRepeat(total: Int, number: Int) {}
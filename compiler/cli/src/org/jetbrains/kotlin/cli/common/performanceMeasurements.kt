@@ -33,6 +33,47 @@ class PerformanceCounterMeasurement(private val counterReport: String) : Perform
     override fun render(): String = counterReport
 }
 
+class CacheMeasurement(
+    val cacheName: String,
+    val hits: Long,
+    val misses: Long,
+    val evictions: Long,
+    val sizeInBytes: Long
+) : PerformanceMeasurement {
+    override fun render(): String {
+        val requests = hits + misses
+        val hitRate = if (requests == 0L) 0.0 else hits * 100.0 / requests
+        return "CACHE: $cacheName: $hits hits, $misses misses (%.1f%% hit rate), $evictions evictions, $sizeInBytes bytes".format(hitRate)
+    }
+}
+
+class BytecodeOptimizationMeasurement(
+    val transformerName: String,
+    val milliseconds: Long,
+    val methods: Long,
+    val changedMethods: Long,
+    val instructionsBefore: Long,
+    val instructionsAfter: Long
+) : PerformanceMeasurement {
+    override fun render(): String =
+        "OPTIMIZATION: $transformerName: $milliseconds ms, $methods methods ($changedMethods changed), " +
+                "$instructionsBefore -> $instructionsAfter instructions"
+}
+
+class ParallelLoweringMeasurement(
+    val phaseName: String,
+    val files: Int,
+    val milliseconds: Long,
+    val threadUtilization: List<Int>
+) : PerformanceMeasurement {
+    override fun render(): String =
+        "PARALLEL LOWERING: $phaseName: $files files in $milliseconds ms, thread utilization ${threadUtilization.joinToString { "$it%" }}"
+}
+
+class ScopeSessionMeasurement(val scopes: Int, val rebuiltScopes: Long) : PerformanceMeasurement {
+    override fun render(): String = "SCOPE SESSION: $scopes scopes, $rebuiltScopes rebuilt"
+}
+
 class IRMeasurement(val lines: Int?, val milliseconds: Long, val kind: Kind) : PerformanceMeasurement {
     override fun render(): String = formatMeasurement("IR $kind", milliseconds, lines)
 
@@ -14,6 +14,7 @@ import org.jetbrains.kotlin.psi.KtPsiUtil
 import org.jetbrains.kotlin.resolve.BindingContext
 import org.jetbrains.kotlin.resolve.BindingTrace
 import org.jetbrains.kotlin.resolve.BindingTraceContext
+import org.jetbrains.kotlin.resolve.BindingTraceFilter
 import org.jetbrains.kotlin.resolve.jvm.JvmCodeAnalyzerInitializer
 import org.jetbrains.kotlin.resolve.lazy.KotlinCodeAnalyzer
 import org.jetbrains.kotlin.util.slicedMap.ReadOnlySlice
@@ -55,7 +56,7 @@ class CliTraceHolder : JvmCodeAnalyzerInitializer() {
 
 
 // TODO: needs better name + list of keys to skip somewhere
-class NoScopeRecordCliBindingTrace : CliBindingTrace() {
+class NoScopeRecordCliBindingTrace(perSliceMap: Boolean = false) : CliBindingTrace(perSliceMap) {
     override fun <K, V> record(slice: WritableSlice<K, V>, key: K, value: V) {
         if (slice == BindingContext.LEXICAL_SCOPE || slice == BindingContext.DATA_FLOW_INFO_BEFORE) {
             // In the compiler there's no need to keep scopes
@@ -69,7 +70,9 @@ class NoScopeRecordCliBindingTrace : CliBindingTrace() {
     }
 }
 
-open class CliBindingTrace @TestOnly constructor() : BindingTraceContext() {
+open class CliBindingTrace @TestOnly constructor(
+    perSliceMap: Boolean = false
+) : BindingTraceContext(BindingTraceFilter.ACCEPT_ALL, false, perSliceMap) {
     private var kotlinCodeAnalyzer: KotlinCodeAnalyzer? = null
 
     override fun toString(): String {
@@ -226,9 +226,19 @@ class KotlinCoreEnvironment private constructor(
         val (roots, singleJavaFileRoots) =
             initialRoots.partition { (file) -> file.isDirectory || file.extension != JavaFileType.DEFAULT_EXTENSION }
 
+        val packageIndexCache = configuration.get(JVMConfigurationKeys.CLASSPATH_PACKAGE_INDEX_CACHE)?.let(::ClasspathPackageIndexCache)
+
+        // class lookups may happen concurrently when the backend runs in several threads
+        val createIndex: (List<JavaRoot>) -> JvmDependenciesIndex =
+            if ((configuration.get(CommonConfigurationKeys.PARALLEL_BACKEND_THREADS) ?: 1) > 1) {
+                { newRoots -> JvmDependenciesConcurrentIndexImpl(newRoots, packageIndexCache) }
+            } else {
+                { newRoots -> JvmDependenciesIndexImpl(newRoots, packageIndexCache) }
+            }
+
         // REPL and kapt2 update classpath dynamically
-        rootsIndex = JvmDependenciesDynamicCompoundIndex().apply {
-            addIndex(JvmDependenciesIndexImpl(roots))
+        rootsIndex = JvmDependenciesDynamicCompoundIndex(createIndex).apply {
+            addIndex(createIndex(roots))
             updateClasspathFromRootsIndex(this)
         }
 
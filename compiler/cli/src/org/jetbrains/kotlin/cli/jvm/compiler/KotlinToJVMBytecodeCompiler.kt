@@ -33,6 +33,7 @@ import org.jetbrains.kotlin.backend.jvm.JvmGeneratorExtensionsImpl
 import org.jetbrains.kotlin.backend.jvm.JvmIrCodegenFactory
 import org.jetbrains.kotlin.backend.jvm.jvmPhases
 import org.jetbrains.kotlin.cli.common.CLIConfigurationKeys
+import org.jetbrains.kotlin.cli.common.CommonCompilerPerformanceManager
 import org.jetbrains.kotlin.cli.common.checkKotlinPackageUsage
 import org.jetbrains.kotlin.cli.common.config.addKotlinSourceRoot
 import org.jetbrains.kotlin.cli.common.messages.AnalyzerWithCompilerReport
@@ -58,6 +59,7 @@ import org.jetbrains.kotlin.fir.backend.jvm.FirJvmBackendClassResolver
 import org.jetbrains.kotlin.fir.backend.jvm.FirJvmBackendExtension
 import org.jetbrains.kotlin.fir.checkers.registerExtendedCommonCheckers
 import org.jetbrains.kotlin.fir.createSessionWithDependencies
+import org.jetbrains.kotlin.fir.resolve.correspondingSupertypesCache
 import org.jetbrains.kotlin.ir.backend.jvm.jvmResolveLibraries
 import org.jetbrains.kotlin.javac.JavacWrapper
 import org.jetbrains.kotlin.load.kotlin.ModuleVisibilityManager
@@ -71,6 +73,8 @@ import org.jetbrains.kotlin.resolve.CompilerEnvironment
 import org.jetbrains.kotlin.resolve.diagnostics.SimpleGenericDiagnostics
 import org.jetbrains.kotlin.resolve.jvm.KotlinJavaPsiFacade
 import org.jetbrains.kotlin.resolve.lazy.declarations.FileBasedDeclarationProviderFactory
+import org.jetbrains.kotlin.types.CorrespondingSupertypesCacheStatistics
+import org.jetbrains.kotlin.types.checker.ClassicCorrespondingSupertypes
 import org.jetbrains.kotlin.utils.newLinkedHashMapWithExpectedSize
 import java.io.File
 
@@ -330,6 +334,7 @@ object KotlinToJVMBytecodeCompiler {
             val librariesScope = ProjectScope.getLibrariesScope(project)
 
             val languageVersionSettings = moduleConfiguration.languageVersionSettings
+            val bodyResolveThreads = moduleConfiguration.get(CommonConfigurationKeys.FIR_PARALLEL_BODY_RESOLVE_THREADS) ?: 1
             val session = createSessionWithDependencies(
                 module,
                 project,
@@ -344,17 +349,27 @@ object KotlinToJVMBytecodeCompiler {
                         environment.createPackagePartProvider(it),
                         targetIds.map(incrementalComponents::getIncrementalCache)
                     )
-                }
+                },
+                concurrentResolve = bodyResolveThreads > 1
             ) {
                 if (extendedAnalysisMode) {
                     registerExtendedCommonCheckers()
                 }
             }
 
-            val firAnalyzerFacade = FirAnalyzerFacade(session, languageVersionSettings, ktFiles)
+            val supertypesStatistics = performanceManager?.createCorrespondingSupertypesStatistics()
+            session.correspondingSupertypesCache.statistics = supertypesStatistics
+
+            val firAnalyzerFacade = FirAnalyzerFacade(
+                session, languageVersionSettings, ktFiles,
+                bodyResolveThreads = bodyResolveThreads,
+                softRebuildableScopes = moduleConfiguration.getBoolean(CommonConfigurationKeys.FIR_SOFT_REBUILDABLE_SCOPES)
+            )
 
             firAnalyzerFacade.runResolution()
             val firDiagnostics = firAnalyzerFacade.runCheckers().values.flatten()
+            firAnalyzerFacade.scopeSession.let { performanceManager?.notifyScopeSessionStatistics(it.size, it.rebuiltScopes) }
+            supertypesStatistics?.let { performanceManager?.notifyCorrespondingSupertypesStatistics(it) }
             AnalyzerWithCompilerReport.reportDiagnostics(
                 SimpleGenericDiagnostics(firDiagnostics),
                 environment.messageCollector
@@ -425,6 +440,9 @@ object KotlinToJVMBytecodeCompiler {
 
             performanceManager?.notifyIRGenerationFinished()
             performanceManager?.notifyGenerationFinished()
+            performanceManager?.notifyInlineCacheStatistics(generationState)
+            performanceManager?.notifyBytecodeOptimizationStatistics(generationState)
+            performanceManager?.notifyParallelLoweringStatistics(generationState)
             ProgressIndicatorAndCompilationCanceledStatus.checkCanceled()
             outputs[module] = generationState
         }
@@ -514,6 +532,8 @@ object KotlinToJVMBytecodeCompiler {
         // Can be null for Scripts/REPL
         val performanceManager = environment.configuration.get(CLIConfigurationKeys.PERF_MANAGER)
         performanceManager?.notifyAnalysisStarted()
+        val supertypesStatistics = performanceManager?.createCorrespondingSupertypesStatistics()
+        ClassicCorrespondingSupertypes.statistics = supertypesStatistics
 
         val resolvedKlibs = environment.configuration.get(JVMConfigurationKeys.KLIB_PATHS)?.let { klibPaths ->
             jvmResolveLibraries(klibPaths, collector.toLogger())
@@ -532,7 +552,7 @@ object KotlinToJVMBytecodeCompiler {
             TopDownAnalyzerFacadeForJVM.analyzeFilesWithJavaIntegration(
                 project,
                 sourceFiles,
-                NoScopeRecordCliBindingTrace(),
+                NoScopeRecordCliBindingTrace(environment.configuration.getBoolean(JVMConfigurationKeys.COMPACT_BINDING_CONTEXT)),
                 environment.configuration,
                 environment::createPackagePartProvider,
                 sourceModuleSearchScope = scope,
@@ -541,6 +561,10 @@ object KotlinToJVMBytecodeCompiler {
         }
 
         performanceManager?.notifyAnalysisFinished()
+        if (supertypesStatistics != null) {
+            ClassicCorrespondingSupertypes.statistics = null
+            performanceManager?.notifyCorrespondingSupertypesStatistics(supertypesStatistics)
+        }
 
         val analysisResult = analyzerWithCompilerReport.analysisResult
 
@@ -610,6 +634,9 @@ object KotlinToJVMBytecodeCompiler {
         KotlinCodegenFacade.compileCorrectFiles(generationState)
 
         performanceManager?.notifyGenerationFinished()
+        performanceManager?.notifyInlineCacheStatistics(generationState)
+        performanceManager?.notifyBytecodeOptimizationStatistics(generationState)
+        performanceManager?.notifyParallelLoweringStatistics(generationState)
 
         ProgressIndicatorAndCompilationCanceledStatus.checkCanceled()
 
@@ -627,4 +654,38 @@ object KotlinToJVMBytecodeCompiler {
 
     private val KotlinCoreEnvironment.messageCollector: MessageCollector
         get() = configuration.getNotNull(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY)
+
+    private fun CommonCompilerPerformanceManager.notifyInlineCacheStatistics(generationState: GenerationState) {
+        val inlineCache = generationState.inlineCache
+        for (cache in listOf(inlineCache.classBytes, inlineCache.methodNodeById)) {
+            notifyCacheStatistics(cache.name, cache.hits, cache.misses, cache.evictions, cache.weight)
+        }
+        generationState.persistentInlineFunctionCache?.let { cache ->
+            notifyCacheStatistics("Persistent inline function cache", cache.hits, cache.misses, 0, 0)
+        }
+    }
+
+    // supertypes are counted on a hot path of the type checker, so only when performance is reported
+    private fun CommonCompilerPerformanceManager.createCorrespondingSupertypesStatistics(): CorrespondingSupertypesCacheStatistics? =
+        if (isCollectingPerformanceStatistics) CorrespondingSupertypesCacheStatistics() else null
+
+    private fun CommonCompilerPerformanceManager.notifyCorrespondingSupertypesStatistics(statistics: CorrespondingSupertypesCacheStatistics) {
+        val misses = statistics.computationCount
+        notifyCacheStatistics("Corresponding supertypes", statistics.queryCount - misses, misses, 0, 0)
+    }
+
+    private fun CommonCompilerPerformanceManager.notifyBytecodeOptimizationStatistics(generationState: GenerationState) {
+        val statistics = generationState.bytecodeOptimizationStatistics ?: return
+        for (entry in statistics.transformers) {
+            notifyBytecodeOptimizationStatistics(
+                entry.transformerName, entry.timeNanos, entry.methods, entry.changedMethods, entry.instructionsBefore, entry.instructionsAfter
+            )
+        }
+    }
+
+    private fun CommonCompilerPerformanceManager.notifyParallelLoweringStatistics(generationState: GenerationState) {
+        for (phase in generationState.parallelLoweringStatistics.phases) {
+            notifyParallelLoweringStatistics(phase.phaseName, phase.files, phase.wallTimeNanos, phase.threadUtilization)
+        }
+    }
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.cli.jvm.index
+
+import com.intellij.openapi.vfs.StandardFileSystems
+import com.intellij.util.io.URLUtil
+import java.io.*
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.util.*
+import java.util.zip.ZipFile
+
+// Persists the set of packages contained in each jar of the classpath between compilations, so that JvmDependenciesIndex
+// does not have to look into jars for packages which they do not contain.
+// Entries are keyed by the jar path and are considered up-to-date while the jar's size and modification time are unchanged.
+// The cache file is read once with a stream, so that it isn't kept open, and rewritten (atomically) only if some jar was (re)indexed.
+class ClasspathPackageIndexCache(private val cacheFile: File) {
+    private class Entry(val lastModified: Long, val length: Long, val packages: Set<String>)
+
+    private val entries: MutableMap<String, Entry> = load()
+
+    private var isDirty = false
+
+    // returns null if the root can't be indexed (directories, source roots, roots with prefix) or if the jar can't be read
+    fun getPackages(root: JavaRoot): Set<String>? {
+        if (root.type != JavaRoot.RootType.BINARY || root.prefixFqName != null) return null
+        if (root.file.fileSystem.protocol != StandardFileSystems.JAR_PROTOCOL) return null
+
+        return getJarPackages(File(root.file.path.substringBefore(URLUtil.JAR_SEPARATOR)))
+    }
+
+    @Synchronized
+    fun getJarPackages(jar: File): Set<String>? {
+        val lastModified = jar.lastModified()
+        val length = jar.length()
+
+        val cached = entries[jar.path]
+        if (cached != null && cached.lastModified == lastModified && cached.length == length) return cached.packages
+
+        val packages = try {
+            readPackages(jar)
+        } catch (e: IOException) {
+            return null
+        }
+
+        entries[jar.path] = Entry(lastModified, length, packages)
+        isDirty = true
+        return packages
+    }
+
+    fun createPackageRootsIndex(roots: List<JavaRoot>): PackageRootsIndex {
+        val packageRoots = HashMap<String, BitSet>()
+        val rootsWithUnknownPackages = BitSet(roots.size)
+
+        for ((rootIndex, root) in roots.withIndex()) {
+            val packages = getPackages(root)
+            if (packages == null) {
+                rootsWithUnknownPackages.set(rootIndex)
+                continue
+            }
+            for (packageFqName in packages) {
+                packageRoots.getOrPut(packageFqName) { BitSet(roots.size) }.set(rootIndex)
+            }
+        }
+
+        save()
+
+        return PackageRootsIndex(packageRoots, rootsWithUnknownPackages)
+    }
+
+    @Synchronized
+    fun save() {
+        if (!isDirty) return
+
+        // jars which were removed since the last compilation are not needed anymore
+        entries.keys.removeIf { !File(it).exists() }
+
+        try {
+            cacheFile.parentFile?.mkdirs()
+            val tempFile = File.createTempFile(cacheFile.name, ".tmp", cacheFile.absoluteFile.parentFile)
+            DataOutputStream(BufferedOutputStream(FileOutputStream(tempFile))).use { output ->
+                output.writeInt(VERSION)
+                output.writeInt(entries.size)
+                for ((path, entry) in entries) {
+                    output.writeString(path)
+                    output.writeLong(entry.lastModified)
+                    output.writeLong(entry.length)
+                    output.writeInt(entry.packages.size)
+                    for (packageFqName in entry.packages) {
+                        output.writeString(packageFqName)
+                    }
+                }
+            }
+            Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+            isDirty = false
+        } catch (e: IOException) {
+            // the cache is only an optimization, the next compilation will try to write it again
+        }
+    }
+
+    private fun load(): MutableMap<String, Entry> {
+        val result = HashMap<String, Entry>()
+        if (!cacheFile.isFile) return result
+
+        try {
+            DataInputStream(BufferedInputStream(FileInputStream(cacheFile))).use { input ->
+                if (input.readInt() != VERSION) return result
+
+                repeat(input.readInt()) {
+                    val path = input.readString()
+                    val lastModified = input.readLong()
+                    val length = input.readLong()
+                    val packages = HashSet<String>()
+                    repeat(input.readInt()) {
+                        packages.add(input.readString())
+                    }
+                    result[path] = Entry(lastModified, length, packages)
+                }
+            }
+        } catch (e: IOException) {
+            // the file is corrupted (e.g. truncated, in which case EOFException is thrown), it will be rewritten
+            result.clear()
+        }
+
+        return result
+    }
+
+    private fun DataOutputStream.writeString(value: String) {
+        val bytes = value.toByteArray(Charsets.UTF_8)
+        writeInt(bytes.size)
+        write(bytes)
+    }
+
+    private fun DataInputStream.readString(): String {
+        val size = readInt()
+        if (size < 0 || size > MAX_STRING_SIZE) throw IOException("Corrupted string of $size bytes")
+        val bytes = ByteArray(size)
+        readFully(bytes)
+        return String(bytes, Charsets.UTF_8)
+    }
+
+    companion object {
+        private const val VERSION = 1
+
+        // longer strings (which aren't paths or package names) mean that the file is corrupted
+        private const val MAX_STRING_SIZE = 1 shl 16
+
+        // every directory of the jar is a package candidate, even if it contains only resources (e.g. .kotlin_builtins files)
+        private fun readPackages(jar: File): Set<String> {
+            val packages = HashSet<String>()
+            ZipFile(jar).use { zipFile ->
+                for (entry in zipFile.entries()) {
+                    var directory = entry.name.trimEnd('/')
+                    if (!entry.isDirectory) {
+                        directory = directory.substringBeforeLast('/', "")
+                    }
+                    while (directory.isNotEmpty() && packages.add(directory.replace('/', '.'))) {
+                        directory = directory.substringBeforeLast('/', "")
+                    }
+                }
+            }
+            return packages
+        }
+    }
+}
+
+// for each package, the set of roots which contain it. Roots whose content is unknown are considered to contain every package
+class PackageRootsIndex(private val packageRoots: Map<String, BitSet>, private val rootsWithUnknownPackages: BitSet) {
+    fun mayContainPackage(rootIndex: Int, packageFqName: String): Boolean =
+        rootsWithUnknownPackages[rootIndex] || packageRoots[packageFqName]?.get(rootIndex) == true
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.cli.jvm.index
+
+import com.intellij.ide.highlighter.JavaClassFileType
+import com.intellij.ide.highlighter.JavaFileType
+import com.intellij.openapi.vfs.VfsUtilCore
+import com.intellij.openapi.vfs.VirtualFile
+import org.jetbrains.kotlin.name.ClassId
+import org.jetbrains.kotlin.name.FqName
+import org.jetbrains.kotlin.name.Name
+import java.util.concurrent.ConcurrentHashMap
+
+// thread-safe counterpart of JvmDependenciesIndexImpl, used when the compiler is allowed to run several threads
+// for each package we compute (at most once) directories corresponding to it in all roots, ordered by root index.
+// Sub-packages are only looked up in roots which are known to contain the parent package, so the file system is traversed lazily,
+// and already computed packages are read without any locking
+class JvmDependenciesConcurrentIndexImpl(
+    _roots: List<JavaRoot>,
+    private val packageIndexCache: ClasspathPackageIndexCache? = null
+) : JvmDependenciesIndex {
+    //these fields are computed based on _roots passed to constructor which are filled in later
+    private val roots: List<JavaRoot> by lazy { _roots.toList() }
+
+    // packages known to be contained in jar roots, allows not to look for a package in roots which do not contain it
+    private val packageRootsIndex: PackageRootsIndex? by lazy { packageIndexCache?.createPackageRootsIndex(roots) }
+
+    private val prefixPathSegments: List<List<Name>?> by lazy { roots.map { it.prefixFqName?.pathSegments() } }
+
+    // rootIndices[i] is the index of the root in which directories[i] was found
+    private class PackageDirectories(val rootIndices: IntArray, val directories: Array<VirtualFile>)
+
+    // DefaultPackage exists in every root. Roots with non-default fqname are also listed here but
+    // they will be ignored on requests with invalid fqname prefix.
+    private val defaultPackageDirectories: PackageDirectories by lazy {
+        PackageDirectories(IntArray(roots.size) { it }, Array(roots.size) { roots[it].file })
+    }
+
+    private val packageDirectories = ConcurrentHashMap<FqName, PackageDirectories>()
+
+    // holds the request and the result last time we searched for class in the current thread
+    // helps improve several scenarios, LazyJavaResolverContext.findClassInJava being the most important
+    private val lastClassSearch = ThreadLocal<Pair<FindClassRequest, SearchResult>>()
+
+    override val indexedRoots by lazy { roots.asSequence() }
+
+    override fun traverseDirectoriesInPackage(
+        packageFqName: FqName,
+        acceptedRootTypes: Set<JavaRoot.RootType>,
+        continueSearch: (VirtualFile, JavaRoot.RootType) -> Boolean
+    ) {
+        search(TraverseRequest(packageFqName, acceptedRootTypes)) { dir, rootType ->
+            if (continueSearch(dir, rootType)) null else Unit
+        }
+    }
+
+    // findClassGivenDirectory MUST check whether the class with this classId exists in given package
+    override fun <T : Any> findClass(
+        classId: ClassId,
+        acceptedRootTypes: Set<JavaRoot.RootType>,
+        findClassGivenDirectory: (VirtualFile, JavaRoot.RootType) -> T?
+    ): T? {
+        // make a decision based on information saved from last class search
+        val lastSearch = lastClassSearch.get()
+        if (lastSearch?.first?.classId != classId) {
+            return search(FindClassRequest(classId, acceptedRootTypes), findClassGivenDirectory)
+        }
+
+        val (cachedRequest, cachedResult) = lastSearch
+        return when (cachedResult) {
+            is SearchResult.NotFound -> {
+                val limitedRootTypes = acceptedRootTypes - cachedRequest.acceptedRootTypes
+                if (limitedRootTypes.isEmpty()) {
+                    null
+                } else {
+                    search(FindClassRequest(classId, limitedRootTypes), findClassGivenDirectory)
+                }
+            }
+            is SearchResult.Found -> {
+                if (cachedRequest.acceptedRootTypes == acceptedRootTypes) {
+                    findClassGivenDirectory(cachedResult.packageDirectory, cachedResult.root.type)
+                } else {
+                    search(FindClassRequest(classId, acceptedRootTypes), findClassGivenDirectory)
+                }
+            }
+        }
+    }
+
+    private fun <T : Any> search(request: SearchRequest, handler: (VirtualFile, JavaRoot.RootType) -> T?): T? {
+        val packageDirectories = getPackageDirectories(request.packageFqName)
+
+        for (i in packageDirectories.rootIndices.indices) {
+            val root = roots[packageDirectories.rootIndices[i]]
+            if (root.type !in request.acceptedRootTypes) continue
+
+            val directory = packageDirectories.directories[i]
+            val result = handler(directory, root.type)
+            if (result != null) {
+                if (request is FindClassRequest) {
+                    lastClassSearch.set(Pair(request, SearchResult.Found(directory, root)))
+                }
+                return result
+            }
+        }
+
+        if (request is FindClassRequest) {
+            lastClassSearch.set(Pair(request, SearchResult.NotFound))
+        }
+        return null
+    }
+
+    private fun getPackageDirectories(packageFqName: FqName): PackageDirectories {
+        if (packageFqName.isRoot) return defaultPackageDirectories
+        packageDirectories[packageFqName]?.let { return it }
+
+        // parent is computed first (and outside of computeIfAbsent) because ConcurrentHashMap forbids recursive updates
+        val parentDirectories = getPackageDirectories(packageFqName.parent())
+        return packageDirectories.computeIfAbsent(packageFqName) {
+            computeSubPackageDirectories(parentDirectories, packageFqName, packageFqName.pathSegments().size - 1)
+        }
+    }
+
+    // only roots which contain the parent package can contain its sub-package
+    private fun computeSubPackageDirectories(parent: PackageDirectories, packageFqName: FqName, pathIndex: Int): PackageDirectories {
+        val subPackageName = packageFqName.shortName().asString()
+        val packageRootsIndex = packageRootsIndex
+        val rootIndices = ArrayList<Int>(parent.rootIndices.size)
+        val directories = ArrayList<VirtualFile>(parent.rootIndices.size)
+
+        for (i in parent.rootIndices.indices) {
+            val rootIndex = parent.rootIndices[i]
+            val prefix = prefixPathSegments[rootIndex]
+            val directory = if (prefix != null && pathIndex < prefix.size) {
+                // Traverse prefix first instead of traversing real directories
+                if (prefix[pathIndex].identifier != subPackageName) null else parent.directories[i]
+            } else if (packageRootsIndex?.mayContainPackage(rootIndex, packageFqName.asString()) == false) {
+                null
+            } else {
+                parent.directories[i].findChildPackage(subPackageName, roots[rootIndex].type)
+            }
+
+            if (directory != null) {
+                rootIndices.add(rootIndex)
+                directories.add(directory)
+            }
+        }
+
+        return PackageDirectories(rootIndices.toIntArray(), directories.toTypedArray())
+    }
+
+    private fun VirtualFile.findChildPackage(subPackageName: String, rootType: JavaRoot.RootType): VirtualFile? {
+        val childDirectory = findChild(subPackageName) ?: return null
+
+        val fileExtension = when (rootType) {
+            JavaRoot.RootType.BINARY -> JavaClassFileType.INSTANCE.defaultExtension
+            JavaRoot.RootType.SOURCE -> JavaFileType.INSTANCE.defaultExtension
+        }
+
+        // If in addition to a directory "foo" there's a class file "foo.class" AND there are no classes anywhere in the directory "foo",
+        // then we ignore the directory and let the resolution choose the class "foo" instead.
+        if (findChild("$subPackageName.$fileExtension")?.isDirectory == false) {
+            if (VfsUtilCore.processFilesRecursively(childDirectory) { file -> file.extension != fileExtension }) {
+                return null
+            }
+        }
+
+        return childDirectory
+    }
+
+    private data class FindClassRequest(val classId: ClassId, override val acceptedRootTypes: Set<JavaRoot.RootType>) : SearchRequest {
+        override val packageFqName: FqName
+            get() = classId.packageFqName
+    }
+
+    private data class TraverseRequest(
+        override val packageFqName: FqName,
+        override val acceptedRootTypes: Set<JavaRoot.RootType>
+    ) : SearchRequest
+
+    private interface SearchRequest {
+        val packageFqName: FqName
+        val acceptedRootTypes: Set<JavaRoot.RootType>
+    }
+
+    private sealed class SearchResult {
+        class Found(val packageDirectory: VirtualFile, val root: JavaRoot) : SearchResult()
+
+        object NotFound : SearchResult()
+    }
+}
@@ -27,12 +27,18 @@ import org.jetbrains.kotlin.utils.IntArrayList
 import java.util.*
 
 // speeds up finding files/classes in classpath/java source roots
-// NOT THREADSAFE, needs to be adapted/removed if we want compiler to be multithreaded
+// NOT THREADSAFE, see JvmDependenciesConcurrentIndexImpl for the variant used when compiler is multithreaded
 // the main idea of this class is for each package to store roots which contains it to avoid excessive file system traversal
-class JvmDependenciesIndexImpl(_roots: List<JavaRoot>) : JvmDependenciesIndex {
+class JvmDependenciesIndexImpl(
+    _roots: List<JavaRoot>,
+    private val packageIndexCache: ClasspathPackageIndexCache? = null
+) : JvmDependenciesIndex {
     //these fields are computed based on _roots passed to constructor which are filled in later
     private val roots: List<JavaRoot> by lazy { _roots.toList() }
 
+    // packages known to be contained in jar roots, allows not to look for a package in roots which do not contain it
+    private val packageRootsIndex: PackageRootsIndex? by lazy { packageIndexCache?.createPackageRootsIndex(roots) }
+
     private val maxIndex: Int
         get() = roots.size
 
@@ -115,6 +121,8 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>) : JvmDependenciesIndex {
         val packagesPath = request.packageFqName.pathSegments().map { it.identifier }
         // a list of caches corresponding to packages, [default, "org", "org.jb", "org.jb.kotlin"]
         val caches = cachesPath(packagesPath)
+        // names of the packages on the path, ["org", "org.jb", "org.jb.kotlin"], only needed for packageRootsIndex
+        val packageNamesPath = if (packageRootsIndex != null) packageNamesPath(packagesPath) else null
 
         var processedRootsUpTo = -1
         // traverse caches starting from last, which contains most specific information
@@ -126,7 +134,7 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>) : JvmDependenciesIndex {
                 val rootIndex = cacheRootIndices[i]
                 if (rootIndex <= processedRootsUpTo) continue // roots with those indices have been processed by now
 
-                val directoryInRoot = travelPath(rootIndex, request.packageFqName, packagesPath, cacheIndex, caches) ?: continue
+                val directoryInRoot = travelPath(rootIndex, request.packageFqName, packagesPath, packageNamesPath, cacheIndex, caches) ?: continue
                 val root = roots[rootIndex]
                 if (root.type in request.acceptedRootTypes) {
                     val result = handler(directoryInRoot, root.type)
@@ -153,6 +161,7 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>) : JvmDependenciesIndex {
         rootIndex: Int,
         packageFqName: FqName,
         packagesPath: List<String>,
+        packageNamesPath: List<String>?,
         fillCachesAfter: Int,
         cachesPath: List<Cache>
     ): VirtualFile? {
@@ -166,11 +175,17 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>) : JvmDependenciesIndex {
         }
 
         return packageCache[rootIndex].getOrPut(packageFqName.asString()) {
-            doTravelPath(rootIndex, packagesPath, fillCachesAfter, cachesPath)
+            doTravelPath(rootIndex, packagesPath, packageNamesPath, fillCachesAfter, cachesPath)
         }
     }
 
-    private fun doTravelPath(rootIndex: Int, packagesPath: List<String>, fillCachesAfter: Int, cachesPath: List<Cache>): VirtualFile? {
+    private fun doTravelPath(
+        rootIndex: Int,
+        packagesPath: List<String>,
+        packageNamesPath: List<String>?,
+        fillCachesAfter: Int,
+        cachesPath: List<Cache>
+    ): VirtualFile? {
         val pathRoot = roots[rootIndex]
         val prefixPathSegments = pathRoot.prefixFqName?.pathSegments()
 
@@ -184,6 +199,9 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>) : JvmDependenciesIndex {
                     return null
                 }
             } else {
+                if (packageNamesPath != null && packageRootsIndex?.mayContainPackage(rootIndex, packageNamesPath[pathIndex]) == false) {
+                    return null
+                }
                 currentFile = currentFile.findChildPackage(subPackageName, pathRoot.type) ?: return null
             }
 
@@ -216,6 +234,17 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>) : JvmDependenciesIndex {
         return childDirectory
     }
 
+    private fun packageNamesPath(path: List<String>): List<String> {
+        val names = ArrayList<String>(path.size)
+        val name = StringBuilder()
+        for (subPackageName in path) {
+            if (name.isNotEmpty()) name.append('.')
+            name.append(subPackageName)
+            names.add(name.toString())
+        }
+        return names
+    }
+
     private fun cachesPath(path: List<String>): List<Cache> {
         val caches = ArrayList<Cache>(path.size + 1)
         caches.add(rootCache)
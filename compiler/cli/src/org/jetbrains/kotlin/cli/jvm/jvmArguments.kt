@@ -245,6 +245,10 @@ fun CompilerConfiguration.configureAdvancedJvmOptions(arguments: K2JVMCompilerAr
         arguments.noExceptionOnExplicitEqualsForBoxedNull
     )
     put(JVMConfigurationKeys.DISABLE_OPTIMIZATION, arguments.noOptimize)
+    put(
+        JVMConfigurationKeys.PROFILE_BYTECODE_OPTIMIZATIONS,
+        arguments.profileBytecodeOptimizations && (arguments.reportPerf || arguments.dumpPerf != null)
+    )
     put(JVMConfigurationKeys.EMIT_JVM_TYPE_ANNOTATIONS, arguments.emitJvmTypeAnnotations)
     put(JVMConfigurationKeys.NO_OPTIMIZED_CALLABLE_REFERENCES, arguments.noOptimizedCallableReferences)
     put(JVMConfigurationKeys.NO_KOTLIN_NOTHING_VALUE_EXCEPTION, arguments.noKotlinNothingValueException)
@@ -284,6 +288,7 @@ fun CompilerConfiguration.configureAdvancedJvmOptions(arguments: K2JVMCompilerAr
 
     put(CLIConfigurationKeys.ALLOW_KOTLIN_PACKAGE, arguments.allowKotlinPackage)
     put(JVMConfigurationKeys.USE_SINGLE_MODULE, arguments.singleModule)
+    put(JVMConfigurationKeys.COMPACT_BINDING_CONTEXT, arguments.compactBindingContext)
     put(JVMConfigurationKeys.USE_OLD_SPILLED_VAR_TYPE_ANALYSIS, arguments.useOldSpilledVarTypeAnalysis)
     put(JVMConfigurationKeys.USE_OLD_INLINE_CLASSES_MANGLING_SCHEME, arguments.useOldInlineClassesManglingScheme)
     put(JVMConfigurationKeys.ENABLE_JVM_PREVIEW, arguments.enableJvmPreview)
@@ -293,10 +298,26 @@ fun CompilerConfiguration.configureAdvancedJvmOptions(arguments: K2JVMCompilerAr
     }
 
     arguments.declarationsOutputPath?.let { put(JVMConfigurationKeys.DECLARATIONS_JSON_PATH, it) }
+    arguments.classpathPackageIndexCache?.let { put(JVMConfigurationKeys.CLASSPATH_PACKAGE_INDEX_CACHE, File(it)) }
+    arguments.inlineFunctionCacheDirectory?.let { put(JVMConfigurationKeys.INLINE_FUNCTION_CACHE_DIRECTORY, File(it)) }
+
+    arguments.inlineCacheSize?.let { sizeInMegabytes ->
+        val size = sizeInMegabytes.toLongOrNull()
+        if (size == null || size < 0) {
+            messageCollector.report(ERROR, "Unknown inline cache size: $sizeInMegabytes, expected a non-negative number of megabytes")
+        } else {
+            put(JVMConfigurationKeys.INLINE_CACHE_SIZE_LIMIT, size * 1024 * 1024)
+        }
+    }
 
     val nThreadsRaw = arguments.parallelBackendThreads.toIntOrNull() ?: 1
     val nThreads = if (nThreadsRaw == 0) Runtime.getRuntime().availableProcessors() else nThreadsRaw
     put(CommonConfigurationKeys.PARALLEL_BACKEND_THREADS, nThreads)
+    put(CommonConfigurationKeys.PARALLEL_BACKEND_SHADOW_COPIES, arguments.parallelBackendShadowCopies)
+
+    val firThreadsRaw = arguments.firParallelBodyResolveThreads.toIntOrNull() ?: 1
+    val firThreads = if (firThreadsRaw == 0) Runtime.getRuntime().availableProcessors() else firThreadsRaw
+    put(CommonConfigurationKeys.FIR_PARALLEL_BODY_RESOLVE_THREADS, firThreads)
 }
 
 fun CompilerConfiguration.configureKlibPaths(arguments: K2JVMCompilerArguments) {
@@ -60,6 +60,8 @@ public class JVMConfigurationKeys {
             CompilerConfigurationKey.create("do not throw NPE on explicit 'equals' call for null receiver of platform boxed primitive type");
     public static final CompilerConfigurationKey<Boolean> DISABLE_OPTIMIZATION =
             CompilerConfigurationKey.create("disable optimization");
+    public static final CompilerConfigurationKey<Boolean> PROFILE_BYTECODE_OPTIMIZATIONS =
+            CompilerConfigurationKey.create("collect time and instruction statistics for each bytecode optimization pass");
     public static final CompilerConfigurationKey<Boolean> USE_TYPE_TABLE =
             CompilerConfigurationKey.create("use type table in serializer");
 
@@ -84,6 +86,15 @@ public class JVMConfigurationKeys {
     public static final CompilerConfigurationKey<File> MODULE_XML_FILE =
             CompilerConfigurationKey.create("path to module.xml");
 
+    public static final CompilerConfigurationKey<File> CLASSPATH_PACKAGE_INDEX_CACHE =
+            CompilerConfigurationKey.create("file where packages of classpath jars are cached between compilations");
+
+    public static final CompilerConfigurationKey<Long> INLINE_CACHE_SIZE_LIMIT =
+            CompilerConfigurationKey.create("maximum size in bytes of cached bytecode of inline functions from binary dependencies");
+
+    public static final CompilerConfigurationKey<File> INLINE_FUNCTION_CACHE_DIRECTORY =
+            CompilerConfigurationKey.create("directory where bodies of inline functions from library jars are cached between compilations");
+
     public static final CompilerConfigurationKey<String> DECLARATIONS_JSON_PATH =
             CompilerConfigurationKey.create("path to declarations output");
 
@@ -152,4 +163,7 @@ public class JVMConfigurationKeys {
 
     public static final CompilerConfigurationKey<Boolean> NO_REFLECT =
             CompilerConfigurationKey.create("Don't automatically include kotlin-reflect.jar into the output if the output is a jar");
+
+    public static final CompilerConfigurationKey<Boolean> COMPACT_BINDING_CONTEXT =
+            CompilerConfigurationKey.create("Store the binding context in a separate table for each slice");
 }
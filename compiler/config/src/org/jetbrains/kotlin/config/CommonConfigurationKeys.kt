@@ -51,9 +51,21 @@ object CommonConfigurationKeys {
     @JvmField
     val USE_FIR_EXTENDED_CHECKERS = CompilerConfigurationKey.create<Boolean>("fir extended checkers")
 
+    @JvmField
+    val FIR_PARALLEL_BODY_RESOLVE_THREADS =
+        CompilerConfigurationKey.create<Int>("When using Front-end IR, resolve bodies of files in N parallel threads")
+
+    @JvmField
+    val FIR_SOFT_REBUILDABLE_SCOPES =
+        CompilerConfigurationKey.create<Boolean>("When using Front-end IR, allow GC to collect scopes which can be rebuilt")
+
     @JvmField
     val PARALLEL_BACKEND_THREADS =
         CompilerConfigurationKey.create<Int>("When using the IR backend, run lowerings by file in N parallel threads")
+
+    @JvmField
+    val PARALLEL_BACKEND_SHADOW_COPIES =
+        CompilerConfigurationKey.create<Boolean>("When running lowerings in parallel, copy only declarations referenced from other files")
 }
 
 var CompilerConfiguration.languageVersionSettings: LanguageVersionSettings
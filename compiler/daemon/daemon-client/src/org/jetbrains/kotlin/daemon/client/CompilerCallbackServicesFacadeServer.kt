@@ -20,6 +20,8 @@ import org.jetbrains.kotlin.daemon.common.*
 import org.jetbrains.kotlin.incremental.components.ExpectActualTracker
 import org.jetbrains.kotlin.incremental.components.LookupInfo
 import org.jetbrains.kotlin.incremental.components.LookupTracker
+import org.jetbrains.kotlin.incremental.components.Position
+import org.jetbrains.kotlin.incremental.components.ScopeKind
 import org.jetbrains.kotlin.incremental.js.IncrementalDataProvider
 import org.jetbrains.kotlin.incremental.js.IncrementalResultsConsumer
 import org.jetbrains.kotlin.incremental.js.JsInlineFunctionHash
@@ -95,6 +97,16 @@ open class CompilerCallbackServicesFacadeServer(
         }
     }
 
+    private val lookupsDecoder = EncodedLookups.Decoder()
+
+    override fun lookupTracker_recordEncoded(lookups: ByteArray) {
+        val lookupTracker = lookupTracker!!
+
+        lookupsDecoder.decode(lookups) { filePath, scopeFqName, name ->
+            lookupTracker.record(filePath, Position.NO_POSITION, scopeFqName, ScopeKind.CLASSIFIER, name)
+        }
+    }
+
     private val lookupTracker_isDoNothing: Boolean = lookupTracker === LookupTracker.DO_NOTHING
 
     override fun lookupTracker_isDoNothing(): Boolean = lookupTracker_isDoNothing
@@ -88,6 +88,10 @@ interface CompilerCallbackServicesFacade : Remote {
     @Throws(RemoteException::class)
     fun lookupTracker_record(lookups: Collection<LookupInfo>)
 
+    // batch of lookups without positions, see EncodedLookups
+    @Throws(RemoteException::class)
+    fun lookupTracker_recordEncoded(lookups: ByteArray)
+
     @Throws(RemoteException::class)
     fun lookupTracker_isDoNothing(): Boolean
 
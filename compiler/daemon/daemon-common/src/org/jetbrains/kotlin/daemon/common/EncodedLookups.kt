@@ -0,0 +1,78 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.daemon.common
+
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInput
+import java.io.DataInputStream
+import java.io.DataOutput
+import java.io.DataOutputStream
+
+/**
+ * Binary encoding of batches of lookups without positions, which the daemon sends to the client during compilation,
+ * see [CompilerCallbackServicesFacade.lookupTracker_recordEncoded].
+ *
+ * Strings are interned: a batch contains only strings which weren't sent in previous batches of the same compilation,
+ * and lookups are (file, scope, name) triples of indices of strings in the table of all strings sent so far.
+ * The first batch of a compilation starts a new table.
+ */
+object EncodedLookups {
+    fun encode(firstNewStringId: Int, newStrings: List<String>, lookups: IntArray): ByteArray {
+        val bytes = ByteArrayOutputStream(newStrings.sumBy { it.length } + lookups.size * 2)
+        DataOutputStream(bytes).use { output ->
+            output.writeVarInt(firstNewStringId)
+            output.writeVarInt(newStrings.size)
+            newStrings.forEach(output::writeUTF)
+            output.writeVarInt(lookups.size / 3)
+            lookups.forEach { output.writeVarInt(it) }
+        }
+        return bytes.toByteArray()
+    }
+
+    class Decoder {
+        private val strings = ArrayList<String>()
+
+        @Synchronized
+        fun decode(data: ByteArray, action: (filePath: String, scopeFqName: String, name: String) -> Unit) {
+            val input = DataInputStream(ByteArrayInputStream(data))
+
+            val firstNewStringId = input.readVarInt()
+            if (firstNewStringId == 0) {
+                strings.clear()
+            } else if (firstNewStringId != strings.size) {
+                throw IllegalStateException("Batch of lookups starts with string #$firstNewStringId, but ${strings.size} strings were received")
+            }
+            repeat(input.readVarInt()) {
+                strings.add(input.readUTF())
+            }
+
+            repeat(input.readVarInt()) {
+                action(strings[input.readVarInt()], strings[input.readVarInt()], strings[input.readVarInt()])
+            }
+        }
+    }
+
+    private fun DataOutput.writeVarInt(value: Int) {
+        var rest = value
+        while ((rest and 0x7f.inv()) != 0) {
+            writeByte((rest and 0x7f) or 0x80)
+            rest = rest ushr 7
+        }
+        writeByte(rest)
+    }
+
+    private fun DataInput.readVarInt(): Int {
+        var result = 0
+        var shift = 0
+        while (true) {
+            val byte = readByte().toInt()
+            result = result or ((byte and 0x7f) shl shift)
+            if ((byte and 0x80) == 0) return result
+            shift += 7
+        }
+    }
+}
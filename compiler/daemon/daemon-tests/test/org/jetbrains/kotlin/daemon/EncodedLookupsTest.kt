@@ -0,0 +1,101 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.daemon
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.daemon.common.EncodedLookups
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertTrue
+
+class EncodedLookupsTest : TestCase() {
+    private data class Lookup(val filePath: String, val scopeFqName: String, val name: String)
+
+    // interns strings the way the daemon does: ids are never reused until the end of a compilation
+    private class Encoder {
+        private val ids = LinkedHashMap<String, Int>()
+        private var sentStrings = 0
+
+        fun encode(lookups: List<Lookup>): ByteArray {
+            val batch = IntArray(lookups.size * 3)
+            lookups.forEachIndexed { i, lookup ->
+                batch[i * 3] = idOf(lookup.filePath)
+                batch[i * 3 + 1] = idOf(lookup.scopeFqName)
+                batch[i * 3 + 2] = idOf(lookup.name)
+            }
+            val firstNewStringId = sentStrings
+            val newStrings = ids.keys.drop(firstNewStringId)
+            sentStrings = ids.size
+            return EncodedLookups.encode(firstNewStringId, newStrings, batch)
+        }
+
+        fun flush() {
+            ids.clear()
+            sentStrings = 0
+        }
+
+        private fun idOf(string: String): Int = ids.getOrPut(string) { ids.size }
+    }
+
+    fun testEmptyBatch() {
+        assertEquals(emptyList(), decode(EncodedLookups.Decoder(), Encoder().encode(emptyList())))
+    }
+
+    fun testSingleBatch() {
+        val lookups = listOf(
+            Lookup("a.kt", "foo", "x"),
+            Lookup("b.kt", "foo", "x"),
+            Lookup("a.kt", "x", "foo"),
+            Lookup("a.kt", "", "ünïcödé"),
+        )
+        assertEquals(lookups, decode(EncodedLookups.Decoder(), Encoder().encode(lookups)))
+    }
+
+    fun testStringsAreSharedBetweenBatches() {
+        val encoder = Encoder()
+        val decoder = EncodedLookups.Decoder()
+
+        val first = listOf(Lookup("a.kt", "foo", "x"))
+        val second = listOf(Lookup("a.kt", "foo", "y"), Lookup("a.kt", "foo", "x"))
+        val firstBatch = encoder.encode(first)
+        val secondBatch = encoder.encode(second)
+        assertEquals(first, decode(decoder, firstBatch))
+        assertEquals(second, decode(decoder, secondBatch))
+
+        // the second batch only contains the new string and refers to the others by their ids
+        assertTrue(secondBatch.size < Encoder().encode(second).size)
+    }
+
+    fun testManyBatchesAndFlushes() {
+        val encoder = Encoder()
+        val decoder = EncodedLookups.Decoder()
+        // large ids need several bytes in the encoding
+        for (compilation in 0 until 3) {
+            for (batchIndex in 0 until 5) {
+                val lookups = (0 until 1000).map { i ->
+                    Lookup("file${i % 10}.kt", "scope${(i + batchIndex) % 300}", "name${compilation}_${batchIndex * 1000 + i}")
+                }
+                assertEquals(lookups, decode(decoder, encoder.encode(lookups)))
+            }
+            encoder.flush()
+        }
+    }
+
+    fun testMissedBatchIsDetected() {
+        val encoder = Encoder()
+        val decoder = EncodedLookups.Decoder()
+        decode(decoder, encoder.encode(listOf(Lookup("a.kt", "foo", "x"))))
+        encoder.encode(listOf(Lookup("a.kt", "foo", "y")))
+        val third = encoder.encode(listOf(Lookup("a.kt", "foo", "z")))
+        assertFailsWith<IllegalStateException> { decode(decoder, third) }
+    }
+
+    private fun decode(decoder: EncodedLookups.Decoder, data: ByteArray): List<Lookup> {
+        val result = ArrayList<Lookup>()
+        decoder.decode(data) { filePath, scopeFqName, name -> result.add(Lookup(filePath, scopeFqName, name)) }
+        return result
+    }
+}
@@ -16,17 +16,31 @@
 
 package org.jetbrains.kotlin.daemon
 
-import gnu.trove.THashMap
 import gnu.trove.THashSet
 import org.jetbrains.kotlin.daemon.common.DummyProfiler
+import org.jetbrains.kotlin.daemon.common.EncodedLookups
 import org.jetbrains.kotlin.daemon.common.Profiler
 import org.jetbrains.kotlin.daemon.common.withMeasure
+import org.jetbrains.kotlin.incremental.InternedLookups
 import org.jetbrains.kotlin.incremental.components.LookupInfo
 import org.jetbrains.kotlin.incremental.components.LookupTracker
 import org.jetbrains.kotlin.incremental.components.Position
 import org.jetbrains.kotlin.incremental.components.ScopeKind
-import org.jetbrains.kotlin.utils.createStringInterner
+import java.rmi.RemoteException
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.Semaphore
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
 
+/**
+ * Lookups without positions are sent to the client in batches during compilation, so that neither the daemon
+ * nor the client has to keep all lookups of a big module at once. Batches are sent by a separate thread
+ * in the order they were taken; if the client can't keep up, recording waits until a batch is sent.
+ * The same lookup may be sent in several batches, the client's tracker removes duplicates.
+ *
+ * Clients which don't support [lookupTracker_recordEncoded][org.jetbrains.kotlin.daemon.common.CompilerCallbackServicesFacade.lookupTracker_recordEncoded]
+ * get the batches via `lookupTracker_record` instead.
+ */
 class RemoteLookupTrackerClient(
     @Suppress("DEPRECATION") val facade: org.jetbrains.kotlin.daemon.common.CompilerCallbackServicesFacade,
     eventManager: EventManager,
@@ -34,52 +48,133 @@ class RemoteLookupTrackerClient(
 ) : LookupTracker {
     private val isDoNothing = profiler.withMeasure(this) { facade.lookupTracker_isDoNothing() }
 
-    // Map: FileName -> (ScopeFqName -> Set<Name[String] | LookupInfo>)
-    private val lookups = THashMap<String, MutableMap<String, MutableSet<Any>>>()
-    private val interner = createStringInterner()
+    private val lookups = InternedLookups()
+
+    // lookups with positions are only requested by tests
+    private val lookupsWithPositions = THashSet<LookupInfo>()
+
+    // the only thread exits when there is nothing to send, so the executor doesn't have to be shut down
+    private val sender = ThreadPoolExecutor(1, 1, SENDER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, LinkedBlockingQueue()) {
+        Thread(it, "Kotlin daemon lookups sender").apply { isDaemon = true }
+    }.apply { allowCoreThreadTimeOut(true) }
+
+    // guarded by this, reset together with the strings of lookups
+    private var sentStrings = 0
+
+    private val pendingBatches = Semaphore(MAX_PENDING_BATCHES)
+
+    @Volatile
+    private var isEncodingSupported = true
+
+    @Volatile
+    private var sendError: Throwable? = null
 
     override val requiresPosition: Boolean = profiler.withMeasure(this) { facade.lookupTracker_requiresPosition() }
 
     override fun record(filePath: String, position: Position, scopeFqName: String, scopeKind: ScopeKind, name: String) {
         if (isDoNothing) return
 
-        val internedSymbolFqName = interner.intern(scopeFqName)
-        val internedName = interner.intern(name)
-
-        val objectToPut: Any =
-            if (requiresPosition)
-                LookupInfo(filePath, position, scopeFqName, scopeKind, name)
-            else
-                internedName
-
-        lookups.getOrPut(filePath, ::THashMap).getOrPut(internedSymbolFqName, ::THashSet).add(objectToPut)
+        if (requiresPosition) {
+            synchronized(lookupsWithPositions) {
+                lookupsWithPositions.add(LookupInfo(filePath, position, scopeFqName, scopeKind, name))
+            }
+        } else {
+            lookups.add(filePath, scopeFqName, name)
+            if (lookups.recordedCount >= BATCH_SIZE) {
+                sendBatch()
+            }
+        }
     }
 
     init {
         eventManager.onCompilationFinished { flush() }
     }
 
-    private fun flush() {
-        if (isDoNothing || lookups.isEmpty) return
+    private fun sendBatch() {
+        // wait for a free slot before taking the monitor, so that other threads may record lookups meanwhile
+        pendingBatches.acquire()
+        if (!submitBatch()) {
+            pendingBatches.release()
+        }
+    }
 
-        profiler.withMeasure(this) {
-            facade.lookupTracker_record(
-                lookups.flatMap { (filePath, lookupsByFile) ->
-                    lookupsByFile.flatMap { (scopeFqName, lookupsByScopeFqName) ->
-                        lookupsByScopeFqName.map { lookupInfoOrString ->
-                            if (requiresPosition)
-                                lookupInfoOrString as LookupInfo
-                            else
-                                LookupInfo(
-                                    filePath, Position.NO_POSITION, scopeFqName, ScopeKind.CLASSIFIER,
-                                    lookupInfoOrString as String
-                                )
-                        }
-                    }
+    // batches are submitted under the monitor, so they are sent in the order in which their strings were interned
+    @Synchronized
+    private fun submitBatch(): Boolean {
+        val batch = lookups.drain()
+        if (batch.isEmpty()) return false
+
+        // all strings of the batch were interned before it was drained
+        val stringCount = lookups.stringCount
+        val firstNewStringId = sentStrings
+        val newStrings = lookups.strings(firstNewStringId, stringCount)
+        sentStrings = stringCount
+
+        sender.execute {
+            try {
+                if (sendError == null) {
+                    send(firstNewStringId, newStrings, batch)
                 }
+            } catch (e: Throwable) {
+                sendError = e
+            } finally {
+                pendingBatches.release()
+            }
+        }
+        return true
+    }
+
+    private fun send(firstNewStringId: Int, newStrings: List<String>, batch: IntArray) {
+        if (isEncodingSupported) {
+            try {
+                facade.lookupTracker_recordEncoded(EncodedLookups.encode(firstNewStringId, newStrings, batch))
+                return
+            } catch (e: AbstractMethodError) {
+                // the facade was compiled against an older version of the interface
+            } catch (e: RemoteException) {
+                // e.g. the client of an older version doesn't know the method, otherwise the fallback fails as well
+            }
+            isEncodingSupported = false
+        }
+
+        // strings are only cleared on flush, which waits until all batches are sent
+        facade.lookupTracker_record((batch.indices step 3).map { i ->
+            LookupInfo(
+                lookups.string(batch[i]), Position.NO_POSITION, lookups.string(batch[i + 1]), ScopeKind.CLASSIFIER,
+                lookups.string(batch[i + 2])
             )
+        })
+    }
+
+    private fun flush() {
+        if (isDoNothing) return
+
+        profiler.withMeasure(this) {
+            if (lookupsWithPositions.isNotEmpty()) {
+                facade.lookupTracker_record(ArrayList(lookupsWithPositions))
+            }
+
+            sendBatch()
+            // all batches are sent once all slots are free
+            pendingBatches.acquire(MAX_PENDING_BATCHES)
+            pendingBatches.release(MAX_PENDING_BATCHES)
+        }
+
+        synchronized(this) {
+            lookups.clear()
+            sentStrings = 0
+        }
+        lookupsWithPositions.clear()
+
+        sendError?.let {
+            sendError = null
+            throw it
         }
+    }
 
-        lookups.clear()
+    private companion object {
+        const val BATCH_SIZE = 100_000
+        const val MAX_PENDING_BATCHES = 2
+        const val SENDER_KEEP_ALIVE_SECONDS = 10L
     }
 }
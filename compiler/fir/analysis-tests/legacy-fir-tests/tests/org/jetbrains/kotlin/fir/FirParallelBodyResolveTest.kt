@@ -0,0 +1,75 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.fir
+
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.cli.jvm.compiler.TopDownAnalyzerFacadeForJVM
+import org.jetbrains.kotlin.config.LanguageVersionSettingsImpl
+import org.jetbrains.kotlin.fir.analysis.FirAnalyzerFacade
+import org.jetbrains.kotlin.psi.KtFile
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.kotlin.test.TestJdkKind
+import org.jetbrains.kotlin.test.util.KtTestUtil
+
+class FirParallelBodyResolveTest : AbstractFirResolveWithSessionTestCase() {
+    override fun createEnvironment(): KotlinCoreEnvironment =
+        createEnvironmentWithJdk(ConfigurationKind.ALL, TestJdkKind.FULL_JDK)
+
+    fun testParallelResolveGivesSameResult() {
+        val ktFiles = (0 until FILES).map { KtTestUtil.createFile("file$it.kt", fileText(it), project) }
+        val expected = resolve(ktFiles, bodyResolveThreads = 1)
+        repeat(5) {
+            assertEquals(expected, resolve(ktFiles, bodyResolveThreads = 4))
+        }
+    }
+
+    private fun resolve(ktFiles: List<KtFile>, bodyResolveThreads: Int): String {
+        val scope = TopDownAnalyzerFacadeForJVM.newModuleSearchScope(project, ktFiles)
+        val session = createSessionForTests(environment, scope, concurrentResolve = bodyResolveThreads > 1)
+        val facade = FirAnalyzerFacade(session, LanguageVersionSettingsImpl.DEFAULT, ktFiles, bodyResolveThreads = bodyResolveThreads)
+        val firFiles = facade.runResolution()
+        val diagnostics = facade.runCheckers()
+        return buildString {
+            for (firFile in firFiles) {
+                appendLine(firFile.render())
+                for (diagnostic in diagnostics.getValue(firFile).sortedBy { it.element.startOffset }) {
+                    appendLine("${diagnostic.factory.name} at ${diagnostic.element.startOffset}")
+                }
+            }
+        }
+    }
+
+    // files use declarations with implicit types from other files, so their bodies depend on each other's signatures
+    private fun fileText(index: Int): String {
+        val previous = (index + FILES - 1) % FILES
+        return """
+            package test
+
+            class Holder$index<T>(val value: T) {
+                fun <R> map(transform: (T) -> R) = Holder$index(transform(value))
+                override fun toString() = "Holder$index(${'$'}value)"
+            }
+
+            fun compute$index(n: Int) = if (n > 0) listOf(n, n * 2).map { it.toString() } else emptyList()
+
+            val property$index get() = compute$previous($index).firstOrNull()
+
+            fun use$index(): String {
+                val holder = Holder$previous(property$previous).map { it?.length ?: 0 }
+                val sum = compute$index($index).sumBy { it.length } + holder.value
+                val unresolved = missing$index(sum)
+                return when (sum) {
+                    0 -> "empty"
+                    else -> holder.toString() + unresolved
+                }
+            }
+        """.trimIndent()
+    }
+
+    private companion object {
+        const val FILES = 16
+    }
+}
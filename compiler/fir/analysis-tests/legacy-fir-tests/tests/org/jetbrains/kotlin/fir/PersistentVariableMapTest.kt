@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.fir
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.fir.resolve.dfa.Identifier
+import org.jetbrains.kotlin.fir.resolve.dfa.PersistentVariableMap
+import org.jetbrains.kotlin.fir.resolve.dfa.RealVariable
+import org.jetbrains.kotlin.fir.resolve.dfa.persistentVariableMapOf
+import org.jetbrains.kotlin.fir.symbols.impl.FirPropertySymbol
+import org.jetbrains.kotlin.name.Name
+import java.util.*
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+
+class PersistentVariableMapTest : TestCase() {
+    private val symbol = FirPropertySymbol(Name.identifier("x"))
+
+    private fun variable(index: Int) = RealVariable(Identifier(symbol, null, null), false, null, index)
+
+    fun testPutAndRemove() {
+        val variables = (1..3000).map { variable(it) }
+        var map = persistentVariableMapOf<RealVariable, Int>()
+        for (variable in variables) {
+            map = map.put(variable, variable.index)
+        }
+        assertEquals(variables.size, map.size)
+        for (variable in variables) {
+            assertEquals(variable.index, map[variable])
+        }
+        assertEquals(variables, map.keys.toList())
+
+        for (variable in variables.filter { it.index % 3 == 0 }) {
+            map -= variable
+        }
+        assertEquals(2000, map.size)
+        assertEquals(variables.filter { it.index % 3 != 0 }, map.keys.toList())
+        assertNull(map[variables[2]])
+        assertNull(map[variable(1)])
+
+        for (variable in variables) {
+            map -= variable
+        }
+        assertEquals(emptyMap(), map)
+    }
+
+    fun testUpdatesDontChangeOriginalMap() {
+        val variables = (1..100).map { variable(it) }
+        val original = variables.fold(persistentVariableMapOf<RealVariable, String>()) { map, variable -> map.put(variable, "a") }
+
+        val updated = original.put(variables[10], "b").remove(variables[20]).put(variable(1000), "c")
+        assertEquals(variables.associateWith { "a" }, original)
+        assertEquals("b", updated[variables[10]])
+        assertNull(updated[variables[20]])
+        assertEquals(100, updated.size)
+        assertEquals("a", original[variables[10]])
+    }
+
+    // variables of different storages may have the same index
+    fun testVariablesWithSameIndex() {
+        val first = variable(5)
+        val second = variable(5)
+        val third = variable(5)
+        var map = persistentVariableMapOf<RealVariable, Int>().put(first, 1).put(second, 2).put(third, 3)
+        assertEquals(3, map.size)
+        assertEquals(listOf(1, 2, 3), listOf(first, second, third).map { map[it] })
+
+        map = map.remove(first)
+        assertEquals(2, map.size)
+        assertNull(map[first])
+        assertEquals(listOf(2, 3), listOf(second, third).map { map[it] })
+
+        // the variable moves from collisions to the free slot
+        map = map.put(second, 4)
+        assertEquals(2, map.size)
+        assertEquals(listOf(4, 3), listOf(second, third).map { map[it] })
+        assertEquals(setOf(second, third), map.keys)
+    }
+
+    fun testRandomOperations() {
+        val random = Random(42)
+        val variables = (1..200).map { variable(random.nextInt(300)) }
+        val expected = IdentityHashMap<RealVariable, Int>()
+        var map = persistentVariableMapOf<RealVariable, Int>()
+        val maps = mutableListOf<Pair<PersistentVariableMap<RealVariable, Int>, Map<RealVariable, Int>>>()
+
+        repeat(10_000) { step ->
+            val variable = variables[random.nextInt(variables.size)]
+            if (random.nextInt(3) == 0) {
+                map = map.remove(variable)
+                expected.remove(variable)
+            } else {
+                map = map.put(variable, step)
+                expected[variable] = step
+            }
+            assertEquals(expected.size, map.size)
+            assertEquals(expected[variable], map[variable])
+            if (step % 1000 == 0) {
+                maps += map to HashMap(expected)
+            }
+        }
+
+        for ((oldMap, oldExpected) in maps + (map to expected)) {
+            for (variable in variables) {
+                assertEquals(oldExpected[variable], oldMap[variable])
+            }
+            assertEquals(oldExpected.size, oldMap.entries.size)
+            assertEquals(oldExpected.keys, oldMap.keys)
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.fir
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.fir.resolve.ScopeSession
+import org.jetbrains.kotlin.fir.resolve.ScopeSessionKey
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class ScopeSessionConcurrencyTest : TestCase() {
+    private class Scope(val id: Int, val nested: Scope?)
+
+    private object ScopeKey : ScopeSessionKey<Int, Scope>()
+
+    fun testScopesRequestingEachOtherInOppositeOrder() {
+        val scopeSession = ScopeSession()
+        val executor = Executors.newFixedThreadPool(THREADS)
+        try {
+            val start = CountDownLatch(1)
+            // threads with even indices build scope 0 which requests scope 1 and vice versa,
+            // with a lock held while building a scope this deadlocks
+            val tasks = (0 until THREADS).map { thread ->
+                Callable {
+                    start.await()
+                    (0 until IDS).map { i -> buildScope(scopeSession, (i + thread) % IDS, depth = 0) }
+                }
+            }
+            val futures = tasks.map { executor.submit(it) }
+            start.countDown()
+            val results = futures.map { it.get(30, TimeUnit.SECONDS).associateBy { scope -> scope.id } }
+
+            for (id in 0 until IDS) {
+                val expected = results.first().getValue(id)
+                for (result in results) {
+                    assertSame("All threads should get the same scope for $id", expected, result.getValue(id))
+                }
+                assertSame(expected, buildScope(scopeSession, id, depth = 0))
+            }
+            assertEquals(IDS, scopeSession.size)
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    private fun buildScope(scopeSession: ScopeSession, id: Int, depth: Int): Scope =
+        scopeSession.getOrBuild(id, ScopeKey) {
+            Thread.yield()
+            val nested = if (depth < 2) buildScope(scopeSession, (id + 1) % IDS, depth + 1) else null
+            Scope(id, nested)
+        }
+
+    private companion object {
+        const val THREADS = 8
+        const val IDS = 2
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.fir.java
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.fir.java.deserialization.SharedJvmMetadataCache
+import org.jetbrains.kotlin.load.kotlin.KotlinJvmBinaryClass
+import org.jetbrains.kotlin.load.kotlin.header.KotlinClassHeader
+import org.jetbrains.kotlin.metadata.jvm.deserialization.JvmMetadataVersion
+import org.jetbrains.kotlin.name.ClassId
+import org.jetbrains.kotlin.name.FqName
+import org.jetbrains.kotlin.name.Name
+import java.io.File
+import java.nio.file.Files
+import kotlin.test.assertEquals
+import kotlin.test.assertNotNull
+import kotlin.test.assertNotSame
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class SharedJvmMetadataCacheTest : TestCase() {
+    // a class file at the given location with the metadata of a class of the runtime, which is copied as if the file was read again
+    private class TestKotlinClass(override val location: String, klass: Class<*>) : KotlinJvmBinaryClass {
+        private val metadata = klass.getAnnotation(Metadata::class.java)
+
+        override val classId: ClassId = ClassId.topLevel(FqName(klass.name))
+
+        override val classHeader: KotlinClassHeader = KotlinClassHeader(
+            KotlinClassHeader.Kind.getById(metadata.kind), JvmMetadataVersion.INSTANCE,
+            metadata.data1.copyOf(), null, metadata.data2.copyOf(), null, 0, null
+        )
+
+        override fun loadClassAnnotations(visitor: KotlinJvmBinaryClass.AnnotationVisitor, cachedContents: ByteArray?) {
+            throw UnsupportedOperationException()
+        }
+
+        override fun visitMembers(visitor: KotlinJvmBinaryClass.MemberVisitor, cachedContents: ByteArray?) {
+            throw UnsupportedOperationException()
+        }
+    }
+
+    private lateinit var tmpDir: File
+    private val roots = SharedJvmMetadataCache.Roots()
+
+    override fun setUp() {
+        super.setUp()
+        tmpDir = Files.createTempDirectory("sharedJvmMetadataCache").toFile()
+    }
+
+    override fun tearDown() {
+        SharedJvmMetadataCache.clear()
+        tmpDir.deleteRecursively()
+        super.tearDown()
+    }
+
+    fun testSameClassIsParsedOnce() {
+        val jar = createJar("lib.jar")
+        val first = classData(TestKotlinClass("$jar!/kotlin/Pair.class", Pair::class.java))
+        assertEquals("kotlin/Pair", first.nameResolver.getQualifiedClassName(first.proto.fqName))
+        assertSame(first, classData(TestKotlinClass("$jar!/kotlin/Pair.class", Pair::class.java)))
+
+        // and by the next compilation while the jar is unchanged
+        assertSame(first, classData(TestKotlinClass("$jar!/kotlin/Pair.class", Pair::class.java), SharedJvmMetadataCache.Roots()))
+    }
+
+    fun testClassesFromDifferentJarsAreParsedSeparately() {
+        val first = classData(TestKotlinClass("${createJar("a.jar")}!/kotlin/Pair.class", Pair::class.java))
+        assertNotSame(first, classData(TestKotlinClass("${createJar("b.jar")}!/kotlin/Pair.class", Pair::class.java)))
+    }
+
+    fun testClassFromChangedJarIsParsedAgain() {
+        val jar = createJar("lib.jar")
+        val pair = classData(TestKotlinClass("$jar!/kotlin/Pair.class", Pair::class.java))
+
+        jar.writeText("changed")
+        jar.setLastModified(jar.lastModified() + 10_000)
+        // a jar is checked once per session, so the change is seen by the next one
+        val roots = SharedJvmMetadataCache.Roots()
+        val triple = classData(TestKotlinClass("$jar!/kotlin/Pair.class", Triple::class.java), roots)
+        assertEquals("kotlin/Triple", triple.nameResolver.getQualifiedClassName(triple.proto.fqName))
+        assertNotSame(pair, triple)
+        assertSame(triple, classData(TestKotlinClass("$jar!/kotlin/Pair.class", Triple::class.java), roots))
+    }
+
+    fun testClassesOutsideOfJarsAreNotCached() {
+        val location = File(tmpDir, "kotlin/Pair.class").path
+        assertNotSame(classData(TestKotlinClass(location, Pair::class.java)), classData(TestKotlinClass(location, Pair::class.java)))
+    }
+
+    fun testPackageParts() {
+        val jar = createJar("lib.jar")
+        val facade = Class.forName("kotlin.TuplesKt")
+        val data = assertNotNull(SharedJvmMetadataCache.getPackagePartData(TestKotlinClass("$jar!/kotlin/TuplesKt.class", facade), roots))
+        assertTrue(Name.identifier("to") in data.topLevelFunctionNameIndex)
+        assertSame(data, SharedJvmMetadataCache.getPackagePartData(TestKotlinClass("$jar!/kotlin/TuplesKt.class", facade), roots))
+
+        // a class and a package part at the same location don't replace each other
+        assertNotNull(SharedJvmMetadataCache.getClassData(TestKotlinClass("$jar!/kotlin/TuplesKt.class", Pair::class.java), roots))
+        assertSame(data, SharedJvmMetadataCache.getPackagePartData(TestKotlinClass("$jar!/kotlin/TuplesKt.class", facade), roots))
+    }
+
+    fun testClear() {
+        val jar = createJar("lib.jar")
+        val first = classData(TestKotlinClass("$jar!/kotlin/Pair.class", Pair::class.java))
+        SharedJvmMetadataCache.clear()
+        assertNotSame(first, classData(TestKotlinClass("$jar!/kotlin/Pair.class", Pair::class.java)))
+    }
+
+    // only the size and modification time of a jar matter
+    private fun createJar(name: String): File = File(tmpDir, name).apply { writeText(name) }
+
+    private fun classData(
+        kotlinClass: KotlinJvmBinaryClass,
+        roots: SharedJvmMetadataCache.Roots = this.roots
+    ): SharedJvmMetadataCache.ClassData =
+        SharedJvmMetadataCache.getClassData(kotlinClass, roots) ?: error("No metadata in $kotlinClass")
+}
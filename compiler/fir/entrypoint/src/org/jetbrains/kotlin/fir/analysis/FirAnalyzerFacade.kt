@@ -33,7 +33,10 @@ class FirAnalyzerFacade(
     val languageVersionSettings: LanguageVersionSettings,
     val ktFiles: Collection<KtFile> = emptyList(), // may be empty if light tree mode enabled
     val originalFiles: Collection<File> = emptyList(), // may be empty if light tree mode disabled
-    val useLightTree: Boolean = false
+    val useLightTree: Boolean = false,
+    val bodyResolveThreads: Int = 1,
+    val rawFirThreads: Int = bodyResolveThreads, // used only in light tree mode, which the CLI doesn't use
+    val softRebuildableScopes: Boolean = false
 ) {
     private var firFiles: List<FirFile>? = null
     private var _scopeSession: ScopeSession? = null
@@ -47,10 +50,8 @@ class FirAnalyzerFacade(
         val firProvider = (session.firProvider as FirProviderImpl)
         firFiles = if (useLightTree) {
             val builder = LightTree2Fir(session, firProvider.kotlinScopeProvider)
-            originalFiles.map {
-                builder.buildFirFile(it).also { firFile ->
-                    firProvider.recordFile(firFile)
-                }
+            builder.buildFirFiles(originalFiles.toList(), rawFirThreads) { _, firFile, _, _ ->
+                firProvider.recordFile(firFile)
             }
         } else {
             val builder = RawFirBuilder(session, firProvider.kotlinScopeProvider)
@@ -65,7 +66,7 @@ class FirAnalyzerFacade(
     fun runResolution(): List<FirFile> {
         if (firFiles == null) buildRawFir()
         if (_scopeSession != null) return firFiles!!
-        val resolveProcessor = FirTotalResolveProcessor(session)
+        val resolveProcessor = FirTotalResolveProcessor(session, bodyResolveThreads, softRebuildableScopes)
         resolveProcessor.process(firFiles!!)
         _scopeSession = resolveProcessor.scopeSession
         return firFiles!!
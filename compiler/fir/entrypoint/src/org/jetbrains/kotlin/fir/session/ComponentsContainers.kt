@@ -11,6 +11,7 @@ import org.jetbrains.kotlin.fir.*
 import org.jetbrains.kotlin.fir.analysis.CheckersComponent
 import org.jetbrains.kotlin.fir.analysis.checkers.declaration.FirNameConflictsTracker
 import org.jetbrains.kotlin.fir.caches.FirCachesFactory
+import org.jetbrains.kotlin.fir.caches.FirConcurrentCachesFactory
 import org.jetbrains.kotlin.fir.caches.FirThreadUnsafeCachesFactory
 import org.jetbrains.kotlin.fir.declarations.SealedClassInheritorsProvider
 import org.jetbrains.kotlin.fir.declarations.SealedClassInheritorsProviderImpl
@@ -53,6 +54,11 @@ fun FirSession.registerThreadUnsafeCaches() {
     register(FirCachesFactory::class, FirThreadUnsafeCachesFactory)
 }
 
+@OptIn(SessionConfiguration::class)
+fun FirSession.registerConcurrentCaches() {
+    register(FirCachesFactory::class, FirConcurrentCachesFactory)
+}
+
 @OptIn(SessionConfiguration::class)
 fun FirSession.registerSealedClassInheritorsProvider() {
     register(SealedClassInheritorsProvider::class, SealedClassInheritorsProviderImpl)
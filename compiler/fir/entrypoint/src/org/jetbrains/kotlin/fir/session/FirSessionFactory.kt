@@ -70,10 +70,11 @@ object FirSessionFactory {
         dependenciesProvider: FirSymbolProvider? = null,
         languageVersionSettings: LanguageVersionSettings = LanguageVersionSettingsImpl.DEFAULT,
         lookupTracker: LookupTracker? = null,
+        concurrentResolve: Boolean = false,
         init: FirSessionConfigurator.() -> Unit = {}
     ): FirJavaModuleBasedSession {
         return FirJavaModuleBasedSession(moduleInfo, sessionProvider).apply {
-            registerThreadUnsafeCaches()
+            if (concurrentResolve) registerConcurrentCaches() else registerThreadUnsafeCaches()
             registerCommonComponents(languageVersionSettings)
             registerResolveComponents(lookupTracker)
             registerJavaSpecificResolveComponents()
@@ -124,9 +125,10 @@ object FirSessionFactory {
         project: Project,
         packagePartProvider: PackagePartProvider,
         languageVersionSettings: LanguageVersionSettings = LanguageVersionSettingsImpl.DEFAULT,
+        concurrentResolve: Boolean = false,
     ): FirLibrarySession {
         return FirLibrarySession(moduleInfo, sessionProvider).apply {
-            registerThreadUnsafeCaches()
+            if (concurrentResolve) registerConcurrentCaches() else registerThreadUnsafeCaches()
             registerCommonComponents(languageVersionSettings)
             registerSealedClassInheritorsProvider()
 
@@ -28,6 +28,7 @@ fun createSessionWithDependencies(
     lookupTracker: LookupTracker?,
     getPackagePartProvider: (GlobalSearchScope) -> PackagePartProvider,
     getAdditionalModulePackagePartProvider: (GlobalSearchScope) -> PackagePartProvider?,
+    concurrentResolve: Boolean = false,
     sessionConfigurator: FirSessionFactory.FirSessionConfigurator.() -> Unit = {}
 ): FirSession {
     return createSessionWithDependencies(
@@ -39,6 +40,7 @@ fun createSessionWithDependencies(
         lookupTracker,
         getPackagePartProvider,
         getAdditionalModulePackagePartProvider,
+        concurrentResolve,
         sessionConfigurator
     ) {
         FirJvmModuleInfo(name, it, friendPaths, outputDirectory)
@@ -54,6 +56,7 @@ fun createSessionWithDependencies(
     lookupTracker: LookupTracker?,
     getPackagePartProvider: (GlobalSearchScope) -> PackagePartProvider,
     getAdditionalModulePackagePartProvider: (GlobalSearchScope) -> PackagePartProvider?,
+    concurrentResolve: Boolean = false,
     sessionConfigurator: FirSessionFactory.FirSessionConfigurator.() -> Unit = {}
 ): FirSession {
     return createSessionWithDependencies(
@@ -65,6 +68,7 @@ fun createSessionWithDependencies(
         lookupTracker,
         getPackagePartProvider,
         getAdditionalModulePackagePartProvider,
+        concurrentResolve,
         sessionConfigurator
     ) {
         FirJvmModuleInfo(module, it)
@@ -80,6 +84,7 @@ private inline fun createSessionWithDependencies(
     lookupTracker: LookupTracker?,
     getPackagePartProvider: (GlobalSearchScope) -> PackagePartProvider,
     getAdditionalModulePackagePartProvider: (GlobalSearchScope) -> PackagePartProvider?,
+    concurrentResolve: Boolean,
     noinline sessionConfigurator: FirSessionFactory.FirSessionConfigurator.() -> Unit,
     moduleInfoProvider: (dependencies: List<ModuleInfo>) -> ModuleInfo,
 ): FirSession {
@@ -87,7 +92,8 @@ private inline fun createSessionWithDependencies(
     val librariesModuleInfo = FirJvmModuleInfo.createForLibraries(moduleName)
     FirSessionFactory.createLibrarySession(
         librariesModuleInfo, provider, librariesScope,
-        project, getPackagePartProvider(librariesScope)
+        project, getPackagePartProvider(librariesScope),
+        concurrentResolve = concurrentResolve
     )
     return FirSessionFactory.createJavaModuleBasedSession(
         moduleInfoProvider(listOf(librariesModuleInfo)),
@@ -98,6 +104,7 @@ private inline fun createSessionWithDependencies(
         additionalScope = librariesScope,
         languageVersionSettings = languageVersionSettings,
         lookupTracker = lookupTracker,
+        concurrentResolve = concurrentResolve,
         init = sessionConfigurator
     )
 }
@@ -42,6 +42,7 @@ import org.jetbrains.kotlin.resolve.jvm.KotlinJavaPsiFacade
 import org.jetbrains.kotlin.types.Variance.INVARIANT
 import org.jetbrains.kotlin.util.OperatorNameConventions
 import org.jetbrains.kotlin.utils.addIfNotNull
+import java.util.concurrent.ConcurrentHashMap
 
 @ThreadSafeMutableState
 class JavaSymbolProvider(
@@ -68,7 +69,7 @@ class JavaSymbolProvider(
     private val scopeProvider = JavaScopeProvider(this)
 
     private val facade: KotlinJavaPsiFacade get() = KotlinJavaPsiFacade.getInstance(project)
-    private val parentClassTypeParameterStackCache = mutableMapOf<FirRegularClassSymbol, JavaTypeParameterStack>()
+    private val parentClassTypeParameterStackCache = ConcurrentHashMap<FirRegularClassSymbol, JavaTypeParameterStack>()
 
     private fun findClass(
         classId: ClassId,
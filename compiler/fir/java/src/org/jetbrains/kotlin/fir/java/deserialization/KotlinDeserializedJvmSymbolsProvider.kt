@@ -29,14 +29,12 @@ import org.jetbrains.kotlin.metadata.ProtoBuf
 import org.jetbrains.kotlin.metadata.deserialization.Flags
 import org.jetbrains.kotlin.metadata.jvm.deserialization.JvmMetadataVersion
 import org.jetbrains.kotlin.metadata.jvm.deserialization.JvmNameResolver
-import org.jetbrains.kotlin.metadata.jvm.deserialization.JvmProtoBufUtil
 import org.jetbrains.kotlin.name.ClassId
 import org.jetbrains.kotlin.name.FqName
 import org.jetbrains.kotlin.name.Name
 import org.jetbrains.kotlin.name.isOneSegmentFQN
 import org.jetbrains.kotlin.resolve.jvm.JvmClassName
 import org.jetbrains.kotlin.serialization.deserialization.IncompatibleVersionErrorData
-import org.jetbrains.kotlin.serialization.deserialization.getName
 import org.jetbrains.kotlin.utils.addToStdlib.firstNotNullResult
 
 @ThreadSafeMutableState
@@ -66,23 +64,21 @@ class KotlinDeserializedJvmSymbolsProvider(
 
     private val knownNameInPackageCache = KnownNameInPackageCache(session, javaClassFinder)
 
+    private val metadataCacheRoots = SharedJvmMetadataCache.Roots()
+
 
     private class PackagePartsCacheData(
-        val proto: ProtoBuf.Package,
+        private val data: SharedJvmMetadataCache.PackagePartData,
         val context: FirDeserializationContext,
     ) {
-        val topLevelFunctionNameIndex by lazy {
-            proto.functionList.withIndex()
-                .groupBy({ context.nameResolver.getName(it.value.name) }) { (index) -> index }
-        }
-        val topLevelPropertyNameIndex by lazy {
-            proto.propertyList.withIndex()
-                .groupBy({ context.nameResolver.getName(it.value.name) }) { (index) -> index }
-        }
-        val typeAliasNameIndex by lazy {
-            proto.typeAliasList.withIndex()
-                .groupBy({ context.nameResolver.getName(it.value.name) }) { (index) -> index }
-        }
+        val proto: ProtoBuf.Package
+            get() = data.proto
+        val topLevelFunctionNameIndex: Map<Name, List<Int>>
+            get() = data.topLevelFunctionNameIndex
+        val topLevelPropertyNameIndex: Map<Name, List<Int>>
+            get() = data.topLevelPropertyNameIndex
+        val typeAliasNameIndex: Map<Name, List<Int>>
+            get() = data.typeAliasNameIndex
     }
 
 
@@ -98,10 +94,9 @@ class KotlinDeserializedJvmSymbolsProvider(
             val facadeFqName = facadeName?.let { JvmClassName.byInternalName(it).fqNameForTopLevelClassMaybeWithDollars }
             val facadeBinaryClass = facadeFqName?.let { kotlinClassFinder.findKotlinClass(ClassId.topLevel(it)) }
 
-            val header = kotlinJvmBinaryClass.classHeader
-            val data = header.data ?: header.incompatibleData ?: return@mapNotNull null
-            val strings = header.strings ?: return@mapNotNull null
-            val (nameResolver, packageProto) = JvmProtoBufUtil.readPackageDataFrom(data, strings)
+            val packagePartData = SharedJvmMetadataCache.getPackagePartData(kotlinJvmBinaryClass, metadataCacheRoots) ?: return@mapNotNull null
+            val nameResolver = packagePartData.nameResolver
+            val packageProto = packagePartData.proto
 
             val source = JvmPackagePartSource(
                 kotlinJvmBinaryClass, packageProto, nameResolver,
@@ -109,7 +104,7 @@ class KotlinDeserializedJvmSymbolsProvider(
             )
 
             PackagePartsCacheData(
-                packageProto,
+                packagePartData,
                 FirDeserializationContext.createForPackage(
                     packageFqName, packageProto, nameResolver, session,
                     JvmBinaryAnnotationDeserializer(session, kotlinJvmBinaryClass, kotlinClassFinder, byteContent),
@@ -151,9 +146,8 @@ class KotlinDeserializedJvmSymbolsProvider(
     }
 
     private fun KotlinJvmBinaryClass.readClassDataFrom(): Pair<JvmNameResolver, ProtoBuf.Class>? {
-        val data = classHeader.data ?: return null
-        val strings = classHeader.strings ?: return null
-        return JvmProtoBufUtil.readClassDataFrom(data, strings)
+        val classData = SharedJvmMetadataCache.getClassData(this, metadataCacheRoots) ?: return null
+        return classData.nameResolver to classData.proto
     }
 
 
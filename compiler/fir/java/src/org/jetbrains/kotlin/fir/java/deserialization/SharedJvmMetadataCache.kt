@@ -0,0 +1,119 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.fir.java.deserialization
+
+import com.intellij.util.io.URLUtil
+import org.jetbrains.kotlin.load.kotlin.KotlinJvmBinaryClass
+import org.jetbrains.kotlin.metadata.ProtoBuf
+import org.jetbrains.kotlin.metadata.jvm.deserialization.JvmNameResolver
+import org.jetbrains.kotlin.metadata.jvm.deserialization.JvmProtoBufUtil
+import org.jetbrains.kotlin.name.Name
+import org.jetbrains.kotlin.serialization.deserialization.getName
+import java.io.File
+import java.lang.ref.SoftReference
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Parsed metadata of Kotlin classes and package parts from library jars, shared by all compilations in the process (e.g. in the daemon),
+ * so that metadata of the same library classes isn't decoded and parsed again by each FIR session.
+ *
+ * Entries are keyed by the identity of the jar a class was loaded from (its path, size and modification time) and the location
+ * of the class in it, so a changed jar never gets stale metadata. Each FIR session checks the identity of a jar once, via its own
+ * [Roots], so a hit is a single map lookup. Classes which are not loaded from jars (e.g. output directories of other modules)
+ * are not cached, because they change too often. Parsed protobuf messages and name resolvers are immutable, so several
+ * compilations may use them at once. Entries are kept via soft references, and when there are too many of them, collected
+ * and then arbitrary ones are removed; the daemon removes all of them when it clears its jar caches.
+ */
+object SharedJvmMetadataCache {
+    private const val MAX_ENTRIES = 100_000
+
+    class ClassData(val nameResolver: JvmNameResolver, val proto: ProtoBuf.Class)
+
+    class PackagePartData(val nameResolver: JvmNameResolver, val proto: ProtoBuf.Package) {
+        val topLevelFunctionNameIndex: Map<Name, List<Int>> by lazy {
+            proto.functionList.withIndex().groupBy({ nameResolver.getName(it.value.name) }) { (index) -> index }
+        }
+        val topLevelPropertyNameIndex: Map<Name, List<Int>> by lazy {
+            proto.propertyList.withIndex().groupBy({ nameResolver.getName(it.value.name) }) { (index) -> index }
+        }
+        val typeAliasNameIndex: Map<Name, List<Int>> by lazy {
+            proto.typeAliasList.withIndex().groupBy({ nameResolver.getName(it.value.name) }) { (index) -> index }
+        }
+    }
+
+    internal data class RootIdentity(val path: String, val size: Long, val lastModified: Long)
+
+    /**
+     * Identities of the jars used by a FIR session, each of them is checked on the first access to one of its classes.
+     */
+    class Roots {
+        private val identities = ConcurrentHashMap<String, RootIdentity>()
+
+        internal fun identityOf(location: String): RootIdentity? {
+            val separatorIndex = location.indexOf(URLUtil.JAR_SEPARATOR)
+            if (separatorIndex < 0) return null
+            val identity = identities.getOrPut(location.substring(0, separatorIndex)) {
+                val jar = File(location.substring(0, separatorIndex))
+                if (jar.isFile) RootIdentity(jar.path, jar.length(), jar.lastModified()) else NOT_A_JAR
+            }
+            return identity.takeIf { it !== NOT_A_JAR }
+        }
+    }
+
+    private val NOT_A_JAR = RootIdentity("", -1, -1)
+
+    private data class Key(val root: RootIdentity, val location: String, val isPackage: Boolean)
+
+    private val entries = ConcurrentHashMap<Key, SoftReference<Any>>()
+
+    fun getClassData(kotlinClass: KotlinJvmBinaryClass, roots: Roots): ClassData? {
+        val header = kotlinClass.classHeader
+        val data = header.data ?: return null
+        val strings = header.strings ?: return null
+        return getOrParse(roots, kotlinClass.location, false) {
+            val (nameResolver, proto) = JvmProtoBufUtil.readClassDataFrom(data, strings)
+            ClassData(nameResolver, proto)
+        }
+    }
+
+    fun getPackagePartData(kotlinClass: KotlinJvmBinaryClass, roots: Roots): PackagePartData? {
+        val header = kotlinClass.classHeader
+        val data = header.data ?: header.incompatibleData ?: return null
+        val strings = header.strings ?: return null
+        return getOrParse(roots, kotlinClass.location, true) {
+            val (nameResolver, proto) = JvmProtoBufUtil.readPackageDataFrom(data, strings)
+            PackagePartData(nameResolver, proto)
+        }
+    }
+
+    fun clear() {
+        entries.clear()
+    }
+
+    private inline fun <T : Any> getOrParse(roots: Roots, location: String, isPackage: Boolean, parse: () -> T): T {
+        val root = roots.identityOf(location) ?: return parse()
+        val key = Key(root, location, isPackage)
+        @Suppress("UNCHECKED_CAST")
+        (entries[key]?.get() as T?)?.let { return it }
+        // if several threads parse the same class at once, one of the results is kept
+        val value = parse()
+        entries[key] = SoftReference(value)
+        if (entries.size > MAX_ENTRIES) {
+            shrink()
+        }
+        return value
+    }
+
+    // removes entries down to 3/4 of the limit, so that the entries aren't walked on each new one
+    private fun shrink() {
+        entries.values.removeIf { it.get() == null }
+        val iterator = entries.values.iterator()
+        while (entries.size > MAX_ENTRIES / 4 * 3 && iterator.hasNext()) {
+            iterator.next()
+            iterator.remove()
+        }
+    }
+}
@@ -49,6 +49,7 @@ internal val SEPARATE_PASS_DUMP = System.getProperty("fir.bench.dump.separate_pa
 private val APPEND_ERROR_REPORTS = System.getProperty("fir.bench.report.errors.append", "false").toBooleanLenient()!!
 private val RUN_CHECKERS = System.getProperty("fir.bench.run.checkers", "false").toBooleanLenient()!!
 private val USE_LIGHT_TREE = System.getProperty("fir.bench.use.light.tree", "false").toBooleanLenient()!!
+private val RAW_FIR_THREADS = System.getProperty("fir.bench.raw.fir.threads")?.toInt() ?: 1
 private val DUMP_MEMORY = System.getProperty("fir.bench.dump.memory", "false").toBooleanLenient()!!
 
 private val ASYNC_PROFILER_LIB = System.getProperty("fir.bench.use.async.profiler.lib")
@@ -186,7 +187,7 @@ class FirResolveModularizedTotalKotlinTest : AbstractModularizedTest() {
             }.filter {
                 it.extension == "kt"
             }
-            bench.buildFiles(lightTree2Fir, allSourceFiles)
+            bench.buildFiles(lightTree2Fir, allSourceFiles, RAW_FIR_THREADS)
         } else {
             val builder = RawFirBuilder(session, firProvider.kotlinScopeProvider)
             bench.buildFiles(builder, ktFiles)
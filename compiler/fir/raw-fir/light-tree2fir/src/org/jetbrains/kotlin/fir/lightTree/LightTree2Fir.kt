@@ -20,6 +20,10 @@ import org.jetbrains.kotlin.parsing.KotlinLightParser
 import org.jetbrains.kotlin.parsing.KotlinParserDefinition
 import java.io.File
 import java.nio.file.Path
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import kotlin.system.measureNanoTime
 
 class LightTree2Fir(
     val session: FirSession,
@@ -30,7 +34,10 @@ class LightTree2Fir(
 
     companion object {
         private val parserDefinition = KotlinParserDefinition()
-        private val lexer = KotlinLexer()
+
+        // lexers are stateful, files may be parsed by several threads, see buildFirFiles
+        private val lexerForThread = ThreadLocal.withInitial { KotlinLexer() }
+        private val lexer: KotlinLexer get() = lexerForThread.get()
 
         fun buildLightTreeBlockExpression(code: String): FlyweightCapableTreeStructure<LighterASTNode> {
             val builder = PsiBuilderFactoryImpl().createBuilder(parserDefinition, lexer, code)
@@ -56,6 +63,54 @@ class LightTree2Fir(
         return buildFirFile(code, file.name)
     }
 
+    /**
+     * Builds raw FIR of [files] using up to [threads] threads: each file is read, parsed and converted by one thread,
+     * which only reads the session. Files are returned, and [onFileBuilt] is called on the calling thread,
+     * in the order of [files], so the result doesn't depend on the number of threads.
+     * [onFileBuilt] gets the text of the file and the time spent on the file in nanoseconds.
+     */
+    fun buildFirFiles(
+        files: List<File>,
+        threads: Int,
+        onFileBuilt: (file: File, firFile: FirFile, code: String, timeNanos: Long) -> Unit = { _, _, _, _ -> }
+    ): List<FirFile> {
+        class BuiltFile(val firFile: FirFile, val code: String, val timeNanos: Long)
+
+        fun build(file: File): BuiltFile {
+            val code: String
+            val firFile: FirFile
+            val time = measureNanoTime {
+                code = FileUtil.loadFile(file, CharsetToolkit.UTF8, true)
+                firFile = buildFirFile(code, file.name)
+            }
+            return BuiltFile(firFile, code, time)
+        }
+
+        fun BuiltFile.report(file: File): FirFile {
+            onFileBuilt(file, firFile, code, timeNanos)
+            return firFile
+        }
+
+        if (threads <= 1 || files.size <= 1) {
+            return files.map { build(it).report(it) }
+        }
+
+        val executor = Executors.newFixedThreadPool(minOf(threads, files.size))
+        try {
+            val futures = files.map { file -> executor.submit(Callable { build(file) }) }
+            return files.zip(futures) { file, future ->
+                val builtFile = try {
+                    future.get()
+                } catch (e: ExecutionException) {
+                    throw e.cause ?: e
+                }
+                builtFile.report(file)
+            }
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
     fun buildLightTree(code: String): FlyweightCapableTreeStructure<LighterASTNode> {
         val builder = PsiBuilderFactoryImpl().createBuilder(parserDefinition, lexer, code)
         //KotlinParser(project).parse(null, builder, ktDummyFile)
@@ -87,8 +87,11 @@ fun lookupSuperTypes(
     }
 }
 
-inline fun <reified ID : Any, reified FS : FirScope> scopeSessionKey(): ScopeSessionKey<ID, FS> {
-    return object : ScopeSessionKey<ID, FS>() {}
+inline fun <reified ID : Any, reified FS : FirScope> scopeSessionKey(rebuildable: Boolean = false): ScopeSessionKey<ID, FS> {
+    return object : ScopeSessionKey<ID, FS>() {
+        override val rebuildable: Boolean
+            get() = rebuildable
+    }
 }
 
 val USE_SITE = scopeSessionKey<FirClassSymbol<*>, FirTypeScope>()
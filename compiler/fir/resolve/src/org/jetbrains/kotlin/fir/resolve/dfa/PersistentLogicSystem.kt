@@ -33,15 +33,15 @@ data class PersistentTypeStatement(
     }
 }
 
-typealias PersistentApprovedTypeStatements = PersistentMap<RealVariable, PersistentTypeStatement>
-typealias PersistentImplications = PersistentMap<DataFlowVariable, PersistentList<Implication>>
+typealias PersistentApprovedTypeStatements = PersistentVariableMap<RealVariable, PersistentTypeStatement>
+typealias PersistentImplications = PersistentVariableMap<DataFlowVariable, PersistentList<Implication>>
 
 class PersistentFlow : Flow {
     val previousFlow: PersistentFlow?
     var approvedTypeStatements: PersistentApprovedTypeStatements
     var logicStatements: PersistentImplications
     val level: Int
-    var approvedTypeStatementsDiff: PersistentApprovedTypeStatements = persistentHashMapOf()
+    var approvedTypeStatementsDiff: PersistentApprovedTypeStatements = persistentVariableMapOf()
     var updatedAliasDiff: PersistentSet<RealVariable> = persistentSetOf()
 
     /*
@@ -54,7 +54,7 @@ class PersistentFlow : Flow {
     override var directAliasMap: PersistentMap<RealVariable, RealVariableAndType>
     override var backwardsAliasMap: PersistentMap<RealVariable, PersistentList<RealVariable>>
 
-    override var assignmentIndex: PersistentMap<RealVariable, Int>
+    override var assignmentIndex: PersistentVariableMap<RealVariable, Int>
 
     constructor(previousFlow: PersistentFlow) {
         this.previousFlow = previousFlow
@@ -69,13 +69,13 @@ class PersistentFlow : Flow {
 
     constructor() {
         previousFlow = null
-        approvedTypeStatements = persistentHashMapOf()
-        logicStatements = persistentHashMapOf()
+        approvedTypeStatements = persistentVariableMapOf()
+        logicStatements = persistentVariableMapOf()
         level = 1
 
         directAliasMap = persistentMapOf()
         backwardsAliasMap = persistentMapOf()
-        assignmentIndex = persistentMapOf()
+        assignmentIndex = persistentVariableMapOf()
     }
 
     override fun getTypeStatement(variable: RealVariable): TypeStatement? {
@@ -133,7 +133,7 @@ abstract class PersistentLogicSystem(context: ConeInferenceContext) : LogicSyste
 
         val commonFlow = flows.reduce(::lowestCommonFlow)
 
-        val variables = flows.flatMap { it.approvedTypeStatements.keys }.toSet()
+        val variables = collectVariablesInTypeStatements(flows)
         for (variable in variables) {
             val info = mergeOperation(flows.map { it.getApprovedTypeStatements(variable, commonFlow) }) ?: continue
             removeTypeStatementsAboutVariable(commonFlow, variable)
@@ -149,6 +149,37 @@ abstract class PersistentLogicSystem(context: ConeInferenceContext) : LogicSyste
         return commonFlow
     }
 
+    // indexed by RealVariable.index, only holds variables while they are collected at a merge point
+    private var variablesByIndex = arrayOfNulls<RealVariable>(INITIAL_VARIABLES_CAPACITY)
+
+    // same as `flows.flatMap { it.approvedTypeStatements.keys }.toSet()`, but variables are deduplicated by their dense indices
+    // in an array which is reused between merges, so that a merge only touches the variables of the merged flows
+    private fun collectVariablesInTypeStatements(flows: Collection<PersistentFlow>): List<RealVariable> {
+        val result = mutableListOf<RealVariable>()
+        for (flow in flows) {
+            flow.approvedTypeStatements.forEachKey { variable ->
+                val index = variable.index
+                if (index >= variablesByIndex.size) {
+                    variablesByIndex = variablesByIndex.copyOf(maxOf(variablesByIndex.size * 2, index + 1))
+                }
+                val existing = variablesByIndex[index]
+                when {
+                    existing === variable -> {}
+                    existing == null -> {
+                        variablesByIndex[index] = variable
+                        result += variable
+                    }
+                    // variables created by different storages may have the same index
+                    result.none { it === variable } -> result += variable
+                }
+            }
+        }
+        for (variable in result) {
+            variablesByIndex[variable.index] = null
+        }
+        return result
+    }
+
     private fun RealVariable.hasDifferentReassignments(flows: Collection<PersistentFlow>): Boolean {
         val firstIndex = flows.first().assignmentIndex[this] ?: -1
         for (flow in flows) {
@@ -223,9 +254,19 @@ abstract class PersistentLogicSystem(context: ConeInferenceContext) : LogicSyste
                     result += it
                 }
             } else {
+                // forked flows share statements with their previous flows until they get new ones,
+                // and adding the same statement to the result again changes nothing
+                var lastStatements: PersistentApprovedTypeStatements? = null
+                var lastStatement: PersistentTypeStatement? = null
                 while (flow != parentFlow) {
-                    flow.approvedTypeStatements[variable]?.let {
-                        result += it
+                    val statements = flow.approvedTypeStatements
+                    if (statements !== lastStatements) {
+                        lastStatements = statements
+                        val statement = statements[variable]
+                        if (statement != null && statement !== lastStatement) {
+                            lastStatement = statement
+                            result += statement
+                        }
                     }
                     flow = flow.previousFlow!!
                 }
@@ -450,6 +491,8 @@ abstract class PersistentLogicSystem(context: ConeInferenceContext) : LogicSyste
     // --------------------------------------------------------------------\
 }
 
+private const val INITIAL_VARIABLES_CAPACITY = 64
+
 private fun lowestCommonFlow(left: PersistentFlow, right: PersistentFlow): PersistentFlow {
     val level = minOf(left.level, right.level)
 
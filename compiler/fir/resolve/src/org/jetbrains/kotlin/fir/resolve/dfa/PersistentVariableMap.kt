@@ -0,0 +1,167 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.fir.resolve.dfa
+
+import kotlinx.collections.immutable.PersistentMap
+import kotlinx.collections.immutable.persistentHashMapOf
+
+fun <K : DataFlowVariable, V : Any> persistentVariableMapOf(): PersistentVariableMap<K, V> {
+    @Suppress("UNCHECKED_CAST")
+    return PersistentVariableMap.EMPTY as PersistentVariableMap<K, V>
+}
+
+/**
+ * Persistent map from data flow variables to values, addressed by [DataFlowVariable.index].
+ *
+ * Entries are stored in a trie of arrays of [BRANCHING_FACTOR] slots, and the slot of a variable on each level is given
+ * by the bits of its index, so neither lookups nor updates hash variables. An update copies the nodes on the path to the slot
+ * of the variable and shares all other nodes with the original map, so flows forked from each other share all statements
+ * except the ones they changed.
+ *
+ * Indices are only unique among variables of one [VariableStorage], so a variable whose slot is taken by another variable
+ * is kept in [collisions].
+ */
+class PersistentVariableMap<K : DataFlowVariable, V : Any> private constructor(
+    private val root: Array<Any?>?,
+    private val shift: Int,
+    override val size: Int,
+    private val collisions: PersistentMap<K, V>
+) : AbstractMap<K, V>() {
+    private class Entry<K, V>(override val key: K, override val value: V) : Map.Entry<K, V> {
+        override fun equals(other: Any?): Boolean {
+            return other is Map.Entry<*, *> && other.key == key && other.value == value
+        }
+
+        override fun hashCode(): Int {
+            return key.hashCode() xor value.hashCode()
+        }
+
+        override fun toString(): String {
+            return "$key=$value"
+        }
+    }
+
+    override fun get(key: K): V? {
+        val entry = findEntry(key.index)
+        if (entry != null && entry.key === key) return entry.value
+        return if (collisions.isEmpty()) null else collisions[key]
+    }
+
+    override fun containsKey(key: K): Boolean {
+        return get(key) != null
+    }
+
+    fun put(key: K, value: V): PersistentVariableMap<K, V> {
+        val index = key.index
+        val existing = findEntry(index)
+        if (existing != null && existing.key !== key) {
+            val newSize = if (key in collisions) size else size + 1
+            return PersistentVariableMap(root, shift, newSize, collisions.put(key, value))
+        }
+        if (existing != null && existing.value === value) return this
+
+        var newRoot = root
+        var newShift = shift
+        while (index ushr newShift >= BRANCHING_FACTOR) {
+            val child = newRoot
+            if (child != null) {
+                newRoot = arrayOfNulls<Any?>(BRANCHING_FACTOR).also { it[0] = child }
+            }
+            newShift += BITS
+        }
+        newRoot = newRoot.withEntry(newShift, index, Entry(key, value))
+
+        if (existing != null) return PersistentVariableMap(newRoot, newShift, size, collisions)
+        // the variable may have been kept in collisions while its slot was taken
+        if (collisions.isNotEmpty() && key in collisions) return PersistentVariableMap(newRoot, newShift, size, collisions.remove(key))
+        return PersistentVariableMap(newRoot, newShift, size + 1, collisions)
+    }
+
+    fun remove(key: K): PersistentVariableMap<K, V> {
+        val entry = findEntry(key.index)
+        if (entry != null && entry.key === key) {
+            val newRoot = root!!.withoutEntry(shift, key.index)
+            return PersistentVariableMap(newRoot, if (newRoot == null) 0 else shift, size - 1, collisions)
+        }
+        if (collisions.isEmpty() || key !in collisions) return this
+        return PersistentVariableMap(root, shift, size - 1, collisions.remove(key))
+    }
+
+    operator fun minus(key: K): PersistentVariableMap<K, V> {
+        return remove(key)
+    }
+
+    fun forEachKey(action: (K) -> Unit) {
+        forEachEntry { action(it.key) }
+        collisions.keys.forEach(action)
+    }
+
+    override val entries: Set<Map.Entry<K, V>>
+        get() = object : AbstractSet<Map.Entry<K, V>>() {
+            override val size: Int
+                get() = this@PersistentVariableMap.size
+
+            override fun iterator(): Iterator<Map.Entry<K, V>> {
+                val result = ArrayList<Map.Entry<K, V>>(size)
+                forEachEntry { result += it }
+                result += collisions.entries
+                return result.iterator()
+            }
+        }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun findEntry(index: Int): Entry<K, V>? {
+        if (index ushr shift >= BRANCHING_FACTOR) return null
+        var node = root ?: return null
+        var shift = shift
+        while (shift > 0) {
+            node = node[(index ushr shift) and MASK] as Array<Any?>? ?: return null
+            shift -= BITS
+        }
+        return node[index and MASK] as Entry<K, V>?
+    }
+
+    private fun forEachEntry(action: (Entry<K, V>) -> Unit) {
+        root?.forEachEntry(shift, action)
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun Array<Any?>.forEachEntry(shift: Int, action: (Entry<K, V>) -> Unit) {
+        for (child in this) {
+            if (child == null) continue
+            if (shift == 0) {
+                action(child as Entry<K, V>)
+            } else {
+                (child as Array<Any?>).forEachEntry(shift - BITS, action)
+            }
+        }
+    }
+
+    companion object {
+        private const val BITS = 5
+        private const val BRANCHING_FACTOR = 1 shl BITS
+        private const val MASK = BRANCHING_FACTOR - 1
+
+        internal val EMPTY = PersistentVariableMap<DataFlowVariable, Any>(null, 0, 0, persistentHashMapOf())
+
+        @Suppress("UNCHECKED_CAST")
+        private fun Array<Any?>?.withEntry(shift: Int, index: Int, entry: Any): Array<Any?> {
+            val result = this?.copyOf() ?: arrayOfNulls(BRANCHING_FACTOR)
+            val slot = (index ushr shift) and MASK
+            result[slot] = if (shift == 0) entry else (result[slot] as Array<Any?>?).withEntry(shift - BITS, index, entry)
+            return result
+        }
+
+        // returns null instead of a node without entries
+        @Suppress("UNCHECKED_CAST")
+        private fun Array<Any?>.withoutEntry(shift: Int, index: Int): Array<Any?>? {
+            val slot = (index ushr shift) and MASK
+            val child = if (shift == 0) null else (this[slot] as Array<Any?>).withoutEntry(shift - BITS, index)
+            if (child == null && this.indices.all { it == slot || this[it] == null }) return null
+            return copyOf().also { it[slot] = child }
+        }
+    }
+}
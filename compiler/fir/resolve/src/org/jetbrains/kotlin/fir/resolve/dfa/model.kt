@@ -30,11 +30,14 @@ data class Identifier(
     }
 }
 
-sealed class DataFlowVariable(private val variableIndexForDebug: Int) {
+/**
+ * [index] is unique among variables of a [VariableStorage], and variables of a storage are numbered densely starting from 1.
+ */
+sealed class DataFlowVariable(val index: Int) {
     abstract val isStable: Boolean
 
     final override fun toString(): String {
-        return "d$variableIndexForDebug"
+        return "d$index"
     }
 }
 
@@ -42,8 +45,8 @@ class RealVariable(
     val identifier: Identifier,
     val isThisReference: Boolean,
     val explicitReceiverVariable: DataFlowVariable?,
-    variableIndexForDebug: Int
-) : DataFlowVariable(variableIndexForDebug) {
+    index: Int
+) : DataFlowVariable(index) {
     override val isStable: Boolean by lazy {
         when (val symbol = identifier.symbol) {
             is FirPropertySymbol -> {
@@ -66,9 +69,7 @@ class RealVariable(
         return this === other
     }
 
-    private val _hashCode by lazy {
-        31 * identifier.hashCode() + (explicitReceiverVariable?.hashCode() ?: 0)
-    }
+    private val _hashCode = 31 * identifier.hashCode() + (explicitReceiverVariable?.hashCode() ?: 0)
 
     override fun hashCode(): Int {
         return _hashCode
@@ -95,7 +96,7 @@ class RealVariableAndType(val variable: RealVariable, val originalType: ConeKotl
     }
 }
 
-class SyntheticVariable(val fir: FirElement, variableIndexForDebug: Int) : DataFlowVariable(variableIndexForDebug) {
+class SyntheticVariable(val fir: FirElement, index: Int) : DataFlowVariable(index) {
     override val isStable: Boolean get() = true
 
     override fun equals(other: Any?): Boolean {
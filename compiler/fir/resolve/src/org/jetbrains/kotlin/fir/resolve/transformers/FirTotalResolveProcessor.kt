@@ -9,9 +9,27 @@ import org.jetbrains.kotlin.fir.FirSession
 import org.jetbrains.kotlin.fir.declarations.FirFile
 import org.jetbrains.kotlin.fir.declarations.FirResolvePhase
 import org.jetbrains.kotlin.fir.resolve.ScopeSession
+import org.jetbrains.kotlin.fir.resolve.transformers.body.resolve.FirBodyResolveProcessor
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
 
-class FirTotalResolveProcessor(session: FirSession) {
-    val scopeSession: ScopeSession = ScopeSession()
+/**
+ * Runs all resolve phases over [files].
+ *
+ * If [bodyResolveThreads] is greater than one, bodies of different files are resolved in parallel: at this point
+ * all declarations already have resolved signatures (including implicit return types), so files are independent.
+ * All other phases may resolve declarations of other files on demand and are always run sequentially.
+ * The session must be created with concurrent caches in this mode.
+ *
+ * [softRebuildableScopes] allows GC to collect scopes which can be built again, see [ScopeSession].
+ */
+class FirTotalResolveProcessor(
+    private val session: FirSession,
+    private val bodyResolveThreads: Int = 1,
+    softRebuildableScopes: Boolean = false
+) {
+    val scopeSession: ScopeSession = ScopeSession(softRebuildableScopes)
 
     private val processors: List<FirResolveProcessor> = createAllCompilerResolveProcessors(session, scopeSession)
 
@@ -19,8 +37,12 @@ class FirTotalResolveProcessor(session: FirSession) {
         for (processor in processors) {
             when (processor) {
                 is FirTransformerBasedResolveProcessor -> {
-                    for (file in files) {
-                        processor.processFile(file)
+                    if (processor is FirBodyResolveProcessor && bodyResolveThreads > 1 && files.size > 1) {
+                        resolveBodiesInParallel(files)
+                    } else {
+                        for (file in files) {
+                            processor.processFile(file)
+                        }
                     }
                 }
                 is FirGlobalResolveProcessor -> {
@@ -29,6 +51,24 @@ class FirTotalResolveProcessor(session: FirSession) {
             }
         }
     }
+
+    private fun resolveBodiesInParallel(files: List<FirFile>) {
+        // transformers keep the state of the file being resolved, so each thread needs its own processor
+        val processorForThread = ThreadLocal.withInitial { FirBodyResolveProcessor(session, scopeSession) }
+        val executor = Executors.newWorkStealingPool(bodyResolveThreads)
+        try {
+            val tasks = files.map { file -> Callable { processorForThread.get().processFile(file) } }
+            for (future in executor.invokeAll(tasks)) {
+                try {
+                    future.get()
+                } catch (e: ExecutionException) {
+                    throw e.cause ?: e
+                }
+            }
+        } finally {
+            executor.shutdownNow()
+        }
+    }
 }
 
 fun createAllCompilerResolveProcessors(
@@ -13,32 +13,36 @@ import org.jetbrains.kotlin.fir.scopes.impl.*
 import org.jetbrains.kotlin.fir.symbols.ConeClassLikeLookupTag
 import org.jetbrains.kotlin.name.FqName
 
-private val INVISIBLE_DEFAULT_STAR_IMPORT = scopeSessionKey<DefaultImportPriority, FirDefaultStarImportingScope>()
-private val VISIBLE_DEFAULT_STAR_IMPORT = scopeSessionKey<DefaultImportPriority, FirDefaultStarImportingScope>()
-private val DEFAULT_SIMPLE_IMPORT = scopeSessionKey<DefaultImportPriority, FirDefaultSimpleImportingScope>()
-val PACKAGE_MEMBER = scopeSessionKey<FqName, FirPackageMemberScope>()
-private val ALL_IMPORTS = scopeSessionKey<FirFile, ListStorageFirScope>()
+// default imports and package members are looked up in symbol providers, so these scopes may be built again at any time
+private val INVISIBLE_DEFAULT_STAR_IMPORT = scopeSessionKey<DefaultImportPriority, FirDefaultStarImportingScope>(rebuildable = true)
+private val VISIBLE_DEFAULT_STAR_IMPORT = scopeSessionKey<DefaultImportPriority, FirDefaultStarImportingScope>(rebuildable = true)
+private val DEFAULT_SIMPLE_IMPORT = scopeSessionKey<DefaultImportPriority, FirDefaultSimpleImportingScope>(rebuildable = true)
+val PACKAGE_MEMBER = scopeSessionKey<FqName, FirPackageMemberScope>(rebuildable = true)
 
-private class ListStorageFirScope(val result: List<FirScope>) : FirScope()
+// explicit importing scopes create copies of callables imported from objects, so they must be built only once
+private val EXPLICIT_IMPORTS = scopeSessionKey<FirFile, ExplicitImportingScopes>()
+
+private class ExplicitImportingScopes(
+    val invisibleStarImportingScope: FirScope,
+    val starImportingScope: FirScope,
+    val simpleImportingScope: FirScope
+) : FirScope()
 
 fun createImportingScopes(
     file: FirFile,
     session: FirSession,
     scopeSession: ScopeSession,
     useCaching: Boolean = true
-): List<FirScope> = if (useCaching) {
-    scopeSession.getOrBuild(file, ALL_IMPORTS) {
-        ListStorageFirScope(doCreateImportingScopes(file, session, scopeSession))
-    }.result
-} else {
-    doCreateImportingScopes(file, session, scopeSession)
-}
-
-private fun doCreateImportingScopes(
-    file: FirFile,
-    session: FirSession,
-    scopeSession: ScopeSession
 ): List<FirScope> {
+    // default importing scopes are not stored in the explicit ones, so that they can be collected if they are rebuildable
+    val explicitImportingScopes = if (useCaching) {
+        scopeSession.getOrBuild(file, EXPLICIT_IMPORTS) {
+            createExplicitImportingScopes(file, session, scopeSession)
+        }
+    } else {
+        createExplicitImportingScopes(file, session, scopeSession)
+    }
+
     return listOf(
         // from low priority to high priority
         scopeSession.getOrBuild(DefaultImportPriority.LOW, INVISIBLE_DEFAULT_STAR_IMPORT) {
@@ -47,7 +51,7 @@ private fun doCreateImportingScopes(
         scopeSession.getOrBuild(DefaultImportPriority.HIGH, INVISIBLE_DEFAULT_STAR_IMPORT) {
             FirDefaultStarImportingScope(session, scopeSession, FirImportingScopeFilter.INVISIBLE_CLASSES, DefaultImportPriority.HIGH)
         },
-        FirExplicitStarImportingScope(file.imports, session, scopeSession, FirImportingScopeFilter.INVISIBLE_CLASSES),
+        explicitImportingScopes.invisibleStarImportingScope,
         // TODO: invisible classes from current package should go before this point
         scopeSession.getOrBuild(DefaultImportPriority.LOW, VISIBLE_DEFAULT_STAR_IMPORT) {
             FirDefaultStarImportingScope(session, scopeSession, FirImportingScopeFilter.MEMBERS_AND_VISIBLE_CLASSES, DefaultImportPriority.LOW)
@@ -55,7 +59,7 @@ private fun doCreateImportingScopes(
         scopeSession.getOrBuild(DefaultImportPriority.HIGH, VISIBLE_DEFAULT_STAR_IMPORT) {
             FirDefaultStarImportingScope(session, scopeSession, FirImportingScopeFilter.MEMBERS_AND_VISIBLE_CLASSES, DefaultImportPriority.HIGH)
         },
-        FirExplicitStarImportingScope(file.imports, session, scopeSession, FirImportingScopeFilter.MEMBERS_AND_VISIBLE_CLASSES),
+        explicitImportingScopes.starImportingScope,
 
         scopeSession.getOrBuild(DefaultImportPriority.LOW, DEFAULT_SIMPLE_IMPORT) {
             FirDefaultSimpleImportingScope(session, scopeSession, priority = DefaultImportPriority.LOW)
@@ -67,10 +71,17 @@ private fun doCreateImportingScopes(
             FirPackageMemberScope(file.packageFqName, session)
         },
         // TODO: explicit simple importing scope should have highest priority (higher than inner scopes added in process)
-        FirExplicitSimpleImportingScope(file.imports, session, scopeSession)
+        explicitImportingScopes.simpleImportingScope
     )
 }
 
+private fun createExplicitImportingScopes(file: FirFile, session: FirSession, scopeSession: ScopeSession): ExplicitImportingScopes =
+    ExplicitImportingScopes(
+        FirExplicitStarImportingScope(file.imports, session, scopeSession, FirImportingScopeFilter.INVISIBLE_CLASSES),
+        FirExplicitStarImportingScope(file.imports, session, scopeSession, FirImportingScopeFilter.MEMBERS_AND_VISIBLE_CLASSES),
+        FirExplicitSimpleImportingScope(file.imports, session, scopeSession)
+    )
+
 fun ConeClassLikeLookupTag.getNestedClassifierScope(session: FirSession, scopeSession: ScopeSession): FirScope? {
     val klass = toSymbol(session)?.fir as? FirRegularClass ?: return null
     return klass.scopeProvider.getNestedClassifierScope(klass, session, scopeSession)
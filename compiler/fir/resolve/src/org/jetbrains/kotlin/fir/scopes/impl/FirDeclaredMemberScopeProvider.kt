@@ -14,12 +14,14 @@ import org.jetbrains.kotlin.fir.resolve.providers.FirSymbolProvider
 import org.jetbrains.kotlin.fir.scopes.FirScope
 import org.jetbrains.kotlin.name.ClassId
 import org.jetbrains.kotlin.name.Name
-import org.jetbrains.kotlin.utils.getOrPutNullable
+import java.util.concurrent.ConcurrentHashMap
 
 @ThreadSafeMutableState
 class FirDeclaredMemberScopeProvider : FirSessionComponent {
-    private val declaredMemberCache = mutableMapOf<FirClass<*>, FirClassDeclaredMemberScope>()
-    private val nestedClassifierCache = mutableMapOf<FirClass<*>, FirNestedClassifierScope?>()
+    private val declaredMemberCache = ConcurrentHashMap<FirClass<*>, FirClassDeclaredMemberScope>()
+
+    // values are either FirNestedClassifierScope or NoNestedClassifierScope, as ConcurrentHashMap doesn't allow null values
+    private val nestedClassifierCache = ConcurrentHashMap<FirClass<*>, Any>()
 
     fun getClassByClassId(classId: ClassId): FirClass<*>? {
         for ((clazz, _) in declaredMemberCache) {
@@ -51,10 +53,12 @@ class FirDeclaredMemberScopeProvider : FirSessionComponent {
     }
 
     fun nestedClassifierScope(klass: FirClass<*>): FirNestedClassifierScope? {
-        return nestedClassifierCache.getOrPutNullable(klass) {
-            FirNestedClassifierScope(klass).takeUnless { it.isEmpty() }
-        }
+        return nestedClassifierCache.getOrPut(klass) {
+            FirNestedClassifierScope(klass).takeUnless { it.isEmpty() } ?: NoNestedClassifierScope
+        } as? FirNestedClassifierScope
     }
+
+    private object NoNestedClassifierScope
 }
 
 fun declaredMemberScope(klass: FirClass<*>): FirClassDeclaredMemberScope {
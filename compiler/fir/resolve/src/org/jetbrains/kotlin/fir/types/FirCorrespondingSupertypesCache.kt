@@ -8,6 +8,8 @@ package org.jetbrains.kotlin.fir.types
 import org.jetbrains.kotlin.fir.FirSession
 import org.jetbrains.kotlin.fir.FirSessionComponent
 import org.jetbrains.kotlin.fir.ThreadSafeMutableState
+import org.jetbrains.kotlin.fir.caches.FirCache
+import org.jetbrains.kotlin.fir.caches.firCachesFactory
 import org.jetbrains.kotlin.fir.declarations.FirClassLikeDeclaration
 import org.jetbrains.kotlin.fir.declarations.FirTypeParameterRefsOwner
 import org.jetbrains.kotlin.fir.resolve.toSymbol
@@ -15,6 +17,7 @@ import org.jetbrains.kotlin.fir.symbols.ConeClassLikeLookupTag
 import org.jetbrains.kotlin.fir.symbols.impl.FirClassLikeSymbol
 import org.jetbrains.kotlin.fir.typeContext
 import org.jetbrains.kotlin.types.AbstractTypeCheckerContext
+import org.jetbrains.kotlin.types.CorrespondingSupertypesCacheStatistics
 import org.jetbrains.kotlin.types.model.CaptureStatus
 import org.jetbrains.kotlin.types.model.SimpleTypeMarker
 import org.jetbrains.kotlin.types.model.TypeConstructorMarker
@@ -22,7 +25,12 @@ import org.jetbrains.kotlin.types.model.TypeSystemContext
 
 @ThreadSafeMutableState
 class FirCorrespondingSupertypesCache(private val session: FirSession) : FirSessionComponent {
-    private val cache = HashMap<ConeClassLikeLookupTag, Map<ConeClassLikeLookupTag, List<ConeClassLikeType>>?>(1000, 0.5f)
+    // created lazily because caches factory may be registered in the session after this component
+    private val cache: FirCache<ConeClassLikeLookupTag, Map<ConeClassLikeLookupTag, List<ConeClassLikeType>>?, ConeTypeCheckerContext>
+            by lazy { session.firCachesFactory.createCache(::computeSupertypesMap) }
+
+    // set only while performance is reported
+    var statistics: CorrespondingSupertypesCacheStatistics? = null
 
     fun getCorrespondingSupertypes(
         type: ConeKotlinType,
@@ -37,11 +45,8 @@ class FirCorrespondingSupertypesCache(private val session: FirSession) : FirSess
 
         val lookupTag = type.lookupTag
         if (lookupTag == supertypeConstructor) return listOf(captureType(type, context.typeSystemContext))
-        if (lookupTag !in cache) {
-            cache[lookupTag] = computeSupertypesMap(lookupTag, context)
-        }
-
-        val resultTypes = cache[lookupTag]?.getOrDefault(supertypeConstructor, emptyList()) ?: return null
+        statistics?.recordQuery()
+        val resultTypes = cache.getValue(lookupTag, context)?.getOrDefault(supertypeConstructor, emptyList()) ?: return null
         if (type.typeArguments.isEmpty()) return resultTypes
 
         val capturedType = captureType(type, context.typeSystemContext)
@@ -58,6 +63,7 @@ class FirCorrespondingSupertypesCache(private val session: FirSession) : FirSess
         subtypeLookupTag: ConeClassLikeLookupTag,
         context: ConeTypeCheckerContext
     ): Map<ConeClassLikeLookupTag, List<ConeClassLikeType>>? {
+        statistics?.recordComputation()
         val resultingMap = HashMap<ConeClassLikeLookupTag, List<ConeClassLikeType>>()
 
         val subtypeFirClass: FirClassLikeDeclaration<*> = subtypeLookupTag.toSymbol(session)?.fir ?: return null
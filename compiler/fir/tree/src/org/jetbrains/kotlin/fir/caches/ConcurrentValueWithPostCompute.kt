@@ -0,0 +1,74 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.fir.caches
+
+/**
+ * Lazily calculated value which is computed under its own lock, the same way as ValueWithPostCompute of the IDE caches.
+ * [postCompute] runs in the same thread as [calculate] and may read the value: until it's finished,
+ * only the computing thread sees the value, other threads wait for the lock of this holder
+ */
+internal class ConcurrentValueWithPostCompute<KEY, VALUE, DATA>(
+    // final field written in constructor guarantees safe publication of the holder
+    private val key: KEY,
+    calculate: (KEY) -> Pair<VALUE, DATA>,
+    postCompute: ((KEY, VALUE, DATA) -> Unit)?
+) {
+    private var _calculate: ((KEY) -> Pair<VALUE, DATA>)? = calculate
+    private var _postCompute: ((KEY, VALUE, DATA) -> Unit)? = postCompute
+
+    // one of ValueIsNotComputed, ValueIsPostComputingNow, ExceptionWasThrownDuringValueComputation or the computed value;
+    // written only under the lock of this holder
+    @Volatile
+    private var value: Any? = ValueIsNotComputed
+
+    @Suppress("UNCHECKED_CAST")
+    fun getValue(): VALUE {
+        when (val snapshot = value) {
+            is ValueIsPostComputingNow -> {
+                if (snapshot.threadId == Thread.currentThread().id) return snapshot.value as VALUE
+                synchronized(this) {
+                    return getComputedValue()
+                }
+            }
+            ValueIsNotComputed -> synchronized(this) {
+                if (value !== ValueIsNotComputed) return getComputedValue()
+                val calculatedValue = try {
+                    val (calculated, data) = _calculate!!(key)
+                    _postCompute?.let { postCompute ->
+                        value = ValueIsPostComputingNow(calculated, Thread.currentThread().id)
+                        postCompute(key, calculated, data)
+                    }
+                    calculated
+                } catch (e: Throwable) {
+                    value = ExceptionWasThrownDuringValueComputation(e)
+                    throw e
+                }
+                _calculate = null
+                _postCompute = null
+                value = calculatedValue
+                return calculatedValue
+            }
+            else -> return getComputedValue()
+        }
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    fun getValueIfComputed(): VALUE? = when (val snapshot = value) {
+        ValueIsNotComputed, is ValueIsPostComputingNow -> null
+        is ExceptionWasThrownDuringValueComputation -> throw snapshot.error
+        else -> snapshot as VALUE
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun getComputedValue(): VALUE = when (val snapshot = value) {
+        is ExceptionWasThrownDuringValueComputation -> throw snapshot.error
+        else -> snapshot as VALUE
+    }
+
+    private class ValueIsPostComputingNow(val value: Any?, val threadId: Long)
+    private class ExceptionWasThrownDuringValueComputation(val error: Throwable)
+    private object ValueIsNotComputed
+}
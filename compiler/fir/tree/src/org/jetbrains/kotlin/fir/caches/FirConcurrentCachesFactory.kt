@@ -0,0 +1,42 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.fir.caches
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Caches for sessions which are resolved by several threads at once (see FirTotalResolveProcessor).
+ * Computed values are read without locking. Each value is computed at most once under its own lock,
+ * so computations of different values don't block each other (see [ConcurrentValueWithPostCompute])
+ */
+object FirConcurrentCachesFactory : FirCachesFactory() {
+    override fun <K : Any, V, CONTEXT> createCache(createValue: (K, CONTEXT) -> V): FirCache<K, V, CONTEXT> =
+        FirConcurrentCache { key, context -> createValue(key, context) to null }
+
+    override fun <K : Any, V, CONTEXT, DATA> createCacheWithPostCompute(
+        createValue: (K, CONTEXT) -> Pair<V, DATA>,
+        postCompute: (K, V, DATA) -> Unit
+    ): FirCache<K, V, CONTEXT> =
+        FirConcurrentCache(createValue, postCompute)
+}
+
+private class FirConcurrentCache<K : Any, V, CONTEXT, DATA>(
+    private val createValue: (K, CONTEXT) -> Pair<V, DATA>,
+    private val postCompute: ((K, V, DATA) -> Unit)? = null
+) : FirCache<K, V, CONTEXT>() {
+    private val map = ConcurrentHashMap<K, ConcurrentValueWithPostCompute<K, V, DATA>>()
+
+    override fun getValue(key: K, context: CONTEXT): V {
+        // only a cheap holder is created inside computeIfAbsent, the value itself is computed outside of the map lock
+        val holder = map[key] ?: map.computeIfAbsent(key) {
+            ConcurrentValueWithPostCompute(key, { createValue(it, context) }, postCompute)
+        }
+        return holder.getValue()
+    }
+
+    override fun getValueIfComputed(key: K): V? =
+        map[key]?.getValueIfComputed()
+}
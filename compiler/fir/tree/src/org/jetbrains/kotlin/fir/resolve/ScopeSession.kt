@@ -6,22 +6,73 @@
 package org.jetbrains.kotlin.fir.resolve
 
 import org.jetbrains.kotlin.fir.PrivateForInline
+import java.lang.ref.SoftReference
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.LongAdder
 
-class ScopeSession {
-    private val scopes = hashMapOf<Any, HashMap<ScopeSessionKey<*, *>, Any>>()
+/**
+ * Cache of scopes, shared by all resolve phases and possibly by several threads resolving different files
+ * (see FirTotalResolveProcessor). Scopes are built outside of any lock, since building a scope may request other scopes:
+ * if several threads build the same scope at once, all of them get the scope which was published first.
+ * A scope is built again if it's [ScopeSessionKey.rebuildable] and was collected by GC:
+ * if [softRebuildableScopes] is set, such scopes are kept only via soft references.
+ */
+@OptIn(PrivateForInline::class)
+class ScopeSession(private val softRebuildableScopes: Boolean = false) {
+    private val scopes = ConcurrentHashMap<Any, ConcurrentHashMap<ScopeSessionKey<*, *>, ScopeHolder>>()
+
+    private val rebuiltScopesCounter = LongAdder()
+
+    @PrivateForInline
+    fun holder(id: Any, key: ScopeSessionKey<*, *>): ScopeHolder {
+        // get() is tried first because computeIfAbsent locks even if the value is present on JDK 8
+        val scopesForId = scopes[id] ?: scopes.computeIfAbsent(id) { ConcurrentHashMap() }
+        return scopesForId[key] ?: scopesForId.computeIfAbsent(key) { ScopeHolder(softRebuildableScopes && key.rebuildable) }
+    }
 
     @PrivateForInline
-    fun scopes() = scopes
+    fun publish(holder: ScopeHolder, scope: Any): Any =
+        holder.publish(scope, rebuiltScopesCounter)
 
-    @OptIn(PrivateForInline::class)
     inline fun <reified ID : Any, reified FS : Any> getOrBuild(id: ID, key: ScopeSessionKey<ID, FS>, build: () -> FS): FS {
-        return scopes().getOrPut(id) {
-            hashMapOf()
-        }.getOrPut(key) {
-            build()
-        } as FS
+        val holder = holder(id, key)
+        holder.value?.let { return it as FS }
+        return publish(holder, build()) as FS
     }
-}
 
-abstract class ScopeSessionKey<ID : Any, FS : Any>
+    // number of scopes which are currently held by this session
+    val size: Int
+        get() = scopes.values.sumBy { scopesForId -> scopesForId.values.count { it.value != null } }
 
+    // number of times a rebuildable scope was collected by GC and built again
+    val rebuiltScopes: Long
+        get() = rebuiltScopesCounter.sum()
+
+    @PrivateForInline
+    class ScopeHolder(private val soft: Boolean) {
+        @Volatile
+        private var strongValue: Any? = null
+
+        @Volatile
+        private var softValue: SoftReference<Any>? = null
+
+        val value: Any?
+            get() = strongValue ?: softValue?.get()
+
+        // only publishing is done under the lock, so no other locks are taken while holding it
+        @Synchronized
+        fun publish(newValue: Any, rebuiltScopesCounter: LongAdder): Any {
+            value?.let { return it }
+            if (softValue != null) rebuiltScopesCounter.increment()
+            if (soft) softValue = SoftReference(newValue) else strongValue = newValue
+            return newValue
+        }
+    }
+}
+
+abstract class ScopeSessionKey<ID : Any, FS : Any> {
+    // Scopes which only look up existing declarations (and don't create new symbols, like fake overrides)
+    // give the same results when built again, so they may be collected under memory pressure
+    open val rebuildable: Boolean
+        get() = false
+}
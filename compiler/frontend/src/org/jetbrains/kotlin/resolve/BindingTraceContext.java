@@ -91,7 +91,14 @@ public class BindingTraceContext implements BindingTrace {
     }
 
     public BindingTraceContext(BindingTraceFilter filter, boolean allowSliceRewrite) {
-        this(TRACK_REWRITES && !allowSliceRewrite ? new TrackingSlicedMap(TRACK_WITH_STACK_TRACES) : new SlicedMapImpl(allowSliceRewrite), filter);
+        this(filter, allowSliceRewrite, false);
+    }
+
+    /**
+     * @param perSliceMap store bindings in a {@link PerSliceSlicedMapImpl} instead of a {@link SlicedMapImpl}
+     */
+    public BindingTraceContext(BindingTraceFilter filter, boolean allowSliceRewrite, boolean perSliceMap) {
+        this(createMap(allowSliceRewrite, perSliceMap), filter);
     }
 
     private BindingTraceContext(@NotNull MutableSlicedMap map, BindingTraceFilter filter) {
@@ -102,6 +109,12 @@ public class BindingTraceContext implements BindingTrace {
                 : new MutableDiagnosticsWithSuppression(new BindingContextSuppressCache(bindingContext), Diagnostics.Companion.getEMPTY());
     }
 
+    @NotNull
+    private static MutableSlicedMap createMap(boolean allowSliceRewrite, boolean perSliceMap) {
+        if (TRACK_REWRITES && !allowSliceRewrite) return new TrackingSlicedMap(TRACK_WITH_STACK_TRACES);
+        return perSliceMap ? new PerSliceSlicedMapImpl(allowSliceRewrite) : new SlicedMapImpl(allowSliceRewrite);
+    }
+
     @TestOnly
     public static BindingTraceContext createTraceableBindingTrace() {
         return new BindingTraceContext(new TrackingSlicedMap(TRACK_WITH_STACK_TRACES), BindingTraceFilter.Companion.getACCEPT_ALL());
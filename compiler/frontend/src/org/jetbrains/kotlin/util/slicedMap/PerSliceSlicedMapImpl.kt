@@ -0,0 +1,96 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.util.slicedMap
+
+import com.google.common.collect.ArrayListMultimap
+import com.google.common.collect.ImmutableMap
+import com.google.common.collect.Multimap
+
+/**
+ * An alternative to [SlicedMapImpl] which keeps a separate open addressing table for each slice instead of a [com.intellij.util.keyFMap.KeyFMap]
+ * per key. Recording a binding doesn't copy the bindings already recorded for the same key. Each binding takes two slots
+ * of the table of its slice, which is at most half full, so about four references per binding, and a key bound in several
+ * slices is stored in each of their tables. Whether this is smaller than [SlicedMapImpl] depends on the number of bindings
+ * per key and hasn't been measured on real modules.
+ *
+ * Keys are compared with `equals` like in [SlicedMapImpl], which is the same as identity for PSI elements and descriptors.
+ */
+class PerSliceSlicedMapImpl(private val alwaysAllowRewrite: Boolean) : MutableSlicedMap {
+    private var tables: OpenAddressLinearProbingHashTable<KeyWithSlice<*, *, *>, OpenAddressLinearProbingHashTable<Any, Any>>? = null
+    private var collectiveSliceKeys: Multimap<WritableSlice<*, *>, Any?>? = null
+
+    override fun <K, V> put(slice: WritableSlice<K, V>, key: K, value: V) {
+        if (!slice.check(key, value)) return
+
+        val tables = tables ?: OpenAddressLinearProbingHashTable<KeyWithSlice<*, *, *>, OpenAddressLinearProbingHashTable<Any, Any>>()
+            .also { tables = it }
+        val sliceKey = slice.key
+        val table = tables[sliceKey] ?: OpenAddressLinearProbingHashTable<Any, Any>().also { tables[sliceKey] = it }
+
+        val rewritePolicy = slice.rewritePolicy
+        if (!alwaysAllowRewrite && rewritePolicy.rewriteProcessingNeeded(key)) {
+            @Suppress("UNCHECKED_CAST")
+            val oldValue = table[key as Any] as V?
+            if (oldValue != null && !rewritePolicy.processRewrite(slice, key, oldValue, value)) {
+                return
+            }
+        }
+
+        if (slice.isCollective) {
+            val collectiveSliceKeys = collectiveSliceKeys ?: ArrayListMultimap.create<WritableSlice<*, *>, Any?>().also { collectiveSliceKeys = it }
+            collectiveSliceKeys.put(slice, key)
+        }
+
+        // null values are kept in the table, like absent ones they aren't returned by `forEach` and `getSliceContents`
+        @Suppress("UNCHECKED_CAST")
+        (table as MutableMap<Any, Any?>)[key as Any] = value
+        slice.afterPut(this, key, value)
+    }
+
+    override fun clear() {
+        tables = null
+        collectiveSliceKeys = null
+    }
+
+    override fun <K, V> get(slice: ReadOnlySlice<K, V>, key: K): V? {
+        @Suppress("UNCHECKED_CAST")
+        val value = tables?.get(slice.key)?.get(key as Any) as V?
+        return slice.computeValue(this, key, value, value == null)
+    }
+
+    override fun <K, V> getKeys(slice: WritableSlice<K, V>): Collection<K> {
+        assert(slice.isCollective) { "Keys are not collected for slice $slice" }
+
+        @Suppress("UNCHECKED_CAST")
+        return collectiveSliceKeys?.get(slice) as Collection<K>? ?: emptyList()
+    }
+
+    override fun forEach(f: (WritableSlice<*, *>, Any?, Any?) -> Void?) {
+        tables?.forEach { sliceKey, table ->
+            // only writable slices are put into the map
+            val slice = sliceKey.slice as WritableSlice<*, *>
+            table.forEach { key, value ->
+                @Suppress("SENSELESS_COMPARISON")
+                if (value != null) {
+                    f(slice, key, value)
+                }
+            }
+        }
+    }
+
+    override fun <K, V> getSliceContents(slice: ReadOnlySlice<K, V>): ImmutableMap<K, V> {
+        val table = tables?.get(slice.key) ?: return ImmutableMap.of()
+
+        val builder = ImmutableMap.builder<K, V>()
+        table.forEach { key, value ->
+            @Suppress("SENSELESS_COMPARISON", "UNCHECKED_CAST")
+            if (value != null) {
+                builder.put(key as K, value as V)
+            }
+        }
+        return builder.build()
+    }
+}
@@ -17,17 +17,32 @@
 package org.jetbrains.kotlin.incremental.snapshots
 
 import java.io.File
+import java.nio.file.attribute.BasicFileAttributes
 import java.util.*
 
 class FileSnapshot(
     val file: File,
     val length: Long,
-    val hash: ByteArray
+    val hash: ByteArray,
+    // attributes of the file when the snapshot was taken, they are not compared by equals (only contents are)
+    val lastModified: Long = UNKNOWN_LAST_MODIFIED,
+    val fileKey: String? = null
 ) {
     init {
         assert(!file.isDirectory)
     }
 
+    /**
+     * True if the file wasn't changed since the snapshot was taken, judging by its attributes, so it doesn't have to be hashed again.
+     * Snapshots of files which were modified too shortly before the snapshot was taken (see [SimpleFileSnapshotProviderImpl])
+     * are never up to date, since the file could be modified again without changing its timestamp.
+     */
+    fun isUpToDate(attributes: BasicFileAttributes): Boolean =
+        lastModified != UNKNOWN_LAST_MODIFIED &&
+                lastModified == attributes.lastModifiedTime().toMillis() &&
+                length == attributes.size() &&
+                fileKey == attributes.fileKey()?.toString()
+
     override fun equals(other: Any?): Boolean {
         if (this === other) return true
         if (other == null || other::class.java != this::class.java) return false
@@ -51,4 +66,8 @@ class FileSnapshot(
     override fun toString(): String {
         return "FileSnapshot(file=$file, length=$length, hash=${Arrays.toString(hash)})"
     }
+
+    companion object {
+        const val UNKNOWN_LAST_MODIFIED = -1L
+    }
 }
@@ -18,6 +18,7 @@ package org.jetbrains.kotlin.incremental.snapshots
 
 import com.intellij.util.io.DataExternalizer
 import java.io.DataInput
+import java.io.DataInputStream
 import java.io.DataOutput
 import java.io.File
 
@@ -27,6 +28,9 @@ object FileSnapshotExternalizer : DataExternalizer<FileSnapshot> {
         out.writeLong(value.length)
         out.writeInt(value.hash.size)
         out.write(value.hash)
+        out.writeLong(value.lastModified)
+        out.writeBoolean(value.fileKey != null)
+        value.fileKey?.let(out::writeUTF)
     }
 
     override fun read(input: DataInput): FileSnapshot {
@@ -35,6 +39,11 @@ object FileSnapshotExternalizer : DataExternalizer<FileSnapshot> {
         val hashSize = input.readInt()
         val hash = ByteArray(hashSize)
         input.readFully(hash)
-        return FileSnapshot(file, length, hash)
+        // snapshots saved by older versions don't have attributes
+        if ((input as DataInputStream).available() == 0) return FileSnapshot(file, length, hash)
+
+        val lastModified = input.readLong()
+        val fileKey = if (input.readBoolean()) input.readUTF() else null
+        return FileSnapshot(file, length, hash, lastModified, fileKey)
     }
 }
\ No newline at end of file
@@ -21,7 +21,10 @@ import org.jetbrains.kotlin.incremental.storage.BasicStringMap
 import org.jetbrains.kotlin.incremental.storage.FileToPathConverter
 import org.jetbrains.kotlin.incremental.storage.PathStringDescriptor
 import java.io.File
+import java.nio.file.Files
+import java.nio.file.attribute.BasicFileAttributes
 import java.util.*
+import java.util.stream.Collectors
 
 class FileSnapshotMap(
     storageFile: File,
@@ -45,15 +48,25 @@ class FileSnapshotMap(
             }
         }
 
+        // files whose attributes didn't change since the previous snapshot are considered unchanged without reading them
+        val candidates = ArrayList<String>()
         for (path in newPaths) {
-            val file = pathConverter.toFile(path)
             val oldSnapshot = storage[path]
-            val newSnapshot = snapshotProvider[file]
+            val attributes = Files.readAttributes(pathConverter.toFile(path).toPath(), BasicFileAttributes::class.java)
+            if (oldSnapshot == null || !oldSnapshot.isUpToDate(attributes)) {
+                candidates.add(path)
+            }
+        }
 
+        val newSnapshots = candidates.parallelStream().map { snapshotProvider[pathConverter.toFile(it)] }.collect(Collectors.toList())
+
+        for ((path, newSnapshot) in candidates.zip(newSnapshots)) {
+            val oldSnapshot = storage[path]
             if (oldSnapshot == null || oldSnapshot != newSnapshot) {
-                newOrModified.add(file)
-                storage[path] = newSnapshot
+                newOrModified.add(newSnapshot.file)
             }
+            // the snapshot is updated even if contents are the same, so that its attributes are up to date
+            storage[path] = newSnapshot
         }
 
         return ChangedFiles.Known(newOrModified, removed)
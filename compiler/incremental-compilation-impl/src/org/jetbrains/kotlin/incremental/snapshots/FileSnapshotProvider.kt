@@ -17,6 +17,8 @@
 package org.jetbrains.kotlin.incremental.snapshots
 
 import java.io.File
+import java.nio.file.Files
+import java.nio.file.attribute.BasicFileAttributes
 
 interface FileSnapshotProvider {
     operator fun get(file: File): FileSnapshot
@@ -24,8 +26,22 @@ interface FileSnapshotProvider {
 
 class SimpleFileSnapshotProviderImpl : FileSnapshotProvider {
     override fun get(file: File): FileSnapshot {
-        val length = file.length()
+        // attributes are read before contents, so that a modification during hashing makes the snapshot outdated
+        val attributes = Files.readAttributes(file.toPath(), BasicFileAttributes::class.java)
+        val lastModified = attributes.lastModifiedTime().toMillis()
         val hash = file.md5
-        return FileSnapshot(file, length, hash)
+
+        // file systems may have coarse timestamps, so a file modified right before the snapshot
+        // could be modified again without changing its timestamp (and size)
+        val trustedLastModified =
+            if (System.currentTimeMillis() - lastModified < TIMESTAMP_GRANULARITY_MS) FileSnapshot.UNKNOWN_LAST_MODIFIED
+            else lastModified
+
+        return FileSnapshot(file, attributes.size(), hash, trustedLastModified, attributes.fileKey()?.toString())
+    }
+
+    private companion object {
+        // FAT has the coarsest timestamps of widely used file systems
+        const val TIMESTAMP_GRANULARITY_MS = 2000L
     }
 }
\ No newline at end of file
@@ -9,6 +9,8 @@ import org.jetbrains.kotlin.TestWithWorkingDir
 import org.junit.Assert.assertNotEquals
 import org.junit.Test
 import java.io.*
+import java.nio.file.Files
+import java.nio.file.attribute.BasicFileAttributes
 
 class FileSnapshotTest : TestWithWorkingDir() {
     private val fileSnapshotProvider: FileSnapshotProvider
@@ -72,6 +74,30 @@ class FileSnapshotTest : TestWithWorkingDir() {
         assertNotEquals(oldSnapshot, newSnapshot)
     }
 
+    @Test
+    fun testUpToDate() {
+        val file = File(workingDir, "1.txt").apply {
+            writeText("file")
+            setLastModified(System.currentTimeMillis() - 10000)
+        }
+        val snapshot = fileSnapshotProvider[file]
+        assertTrue(snapshot.isUpToDate(file.attributes()))
+        assertTrue(saveAndReadBack(snapshot).isUpToDate(file.attributes()))
+
+        file.writeText("file modified")
+        assertFalse(snapshot.isUpToDate(file.attributes()))
+    }
+
+    @Test
+    fun testNotUpToDateIfModifiedRecently() {
+        val file = File(workingDir, "1.txt").apply { writeText("file") }
+        val snapshot = fileSnapshotProvider[file]
+        assertFalse(snapshot.isUpToDate(file.attributes()))
+    }
+
+    private fun File.attributes(): BasicFileAttributes =
+        Files.readAttributes(toPath(), BasicFileAttributes::class.java)
+
     private fun saveAndReadBack(snapshot: FileSnapshot): FileSnapshot {
         val byteOut = ByteArrayOutputStream()
         DataOutputStream(byteOut).use { FileSnapshotExternalizer.save(it, snapshot) }
@@ -40,6 +40,10 @@ interface CommonBackendContext : BackendContext, LoggingContext {
 
     val mapping: Mapping
 
+    // Where to record how parallel lowering threads were loaded, if needed
+    val parallelLoweringStatistics: ParallelLoweringStatistics?
+        get() = null
+
     // Adjust internal structures after a deep copy of some declarations.
     fun handleDeepCopy(
         fileSymbolMap: MutableMap<IrFileSymbol, IrFileSymbol>,
@@ -47,6 +51,10 @@ interface CommonBackendContext : BackendContext, LoggingContext {
         functionSymbolMap: MutableMap<IrSimpleFunctionSymbol, IrSimpleFunctionSymbol>
     ) {}
 
+    // Adjust internal structures after copies of some classes were created to be used instead of the originals
+    // by other files, while the originals are lowered in place (see CrossFileShadows).
+    fun handleShadowCopy(classSymbolMap: Map<IrClassSymbol, IrClassSymbol>) {}
+
     fun isSideEffectFree(call: IrCall): Boolean {
         return false
     }
@@ -0,0 +1,400 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.backend.common.phaser
+
+import org.jetbrains.kotlin.ir.IrElement
+import org.jetbrains.kotlin.ir.IrStatement
+import org.jetbrains.kotlin.ir.declarations.*
+import org.jetbrains.kotlin.ir.expressions.*
+import org.jetbrains.kotlin.ir.expressions.impl.*
+import org.jetbrains.kotlin.ir.symbols.*
+import org.jetbrains.kotlin.ir.types.IrSimpleType
+import org.jetbrains.kotlin.ir.types.IrType
+import org.jetbrains.kotlin.ir.types.IrTypeProjection
+import org.jetbrains.kotlin.ir.util.*
+import org.jetbrains.kotlin.ir.visitors.IrElementTransformerVoid
+import org.jetbrains.kotlin.ir.visitors.IrElementVisitorVoid
+import org.jetbrains.kotlin.ir.visitors.acceptChildrenVoid
+import org.jetbrains.kotlin.ir.visitors.acceptVoid
+import org.jetbrains.kotlin.ir.visitors.transformChildrenVoid
+
+/*
+ * Parallel lowering of files requires that a lowering of one file never observes declarations of another file
+ * while they are being lowered. Instead of copying the whole module, each file is lowered in place, and references
+ * from other files are redirected to copies ("shadows") of the top-level declarations they refer to. Shadows are
+ * never changed by lowerings of their own file, so they play the role of the unlowered originals in the whole-module copy mode.
+ *
+ * Lowerings of other files don't need bodies of non-inline functions, so these bodies are not kept in shadows;
+ * declarations referenced from the kept parts of shadows (e.g. in signatures) are shadowed as well.
+ *
+ * After lowering, references to shadow classes (in types and expressions) and calls of shadow functions are redirected
+ * back to the lowered originals, see [redirectToOriginals]. References to other members of shadows (fields, including
+ * @JvmField ones, properties, constructors and enum entries) are kept: they are mapped to JVM by the names of the member
+ * and of its containing class, which are the same for shadows and originals. This matches the whole-module copy mode,
+ * where such references keep pointing to the unlowered originals.
+ */
+internal class CrossFileShadows(
+    val shadowToOriginalClasses: MutableMap<IrClassSymbol, IrClassSymbol>,
+    val shadowToOriginalFunctions: MutableMap<IrSimpleFunctionSymbol, IrSimpleFunctionSymbol>,
+    private val symbolRemapper: SymbolRemapper,
+    private val filesWithCrossFileReferences: Set<IrFile>,
+) {
+    val originalToShadowClasses: Map<IrClassSymbol, IrClassSymbol>
+        get() = shadowToOriginalClasses.entries.associate { (shadow, original) -> original to shadow }
+
+    // Redirects references to declarations of other files to their shadows
+    fun redirectCrossFileReferences(file: IrFile) {
+        if (file in filesWithCrossFileReferences) {
+            file.remapReferences(CrossFileSymbolRemapper(file, symbolRemapper))
+        }
+    }
+
+    // Redirects references to shadows back to the originals, [remappedFunctions] also maps stubs and replacements of shadow functions
+    fun redirectToOriginals(files: List<IrFile>, remappedFunctions: Map<IrSimpleFunctionSymbol, IrSimpleFunctionSymbol>) {
+        val symbolRemapper = ShadowToOriginalSymbolRemapper(shadowToOriginalClasses, remappedFunctions)
+        for (file in files) {
+            if (file in filesWithCrossFileReferences) {
+                file.remapReferences(symbolRemapper)
+            }
+        }
+    }
+}
+
+internal fun createCrossFileShadows(files: List<IrFile>): CrossFileShadows {
+    val moduleFiles = files.toSet()
+    val filesWithCrossFileReferences = mutableSetOf<IrFile>()
+    var pending: Set<IrDeclaration> = LinkedHashSet<IrDeclaration>().apply {
+        for (file in files) {
+            val referenced = LinkedHashSet<IrDeclaration>()
+            file.remapReferences(ReferencedDeclarationsCollector(moduleFiles, file, referenced))
+            if (referenced.isNotEmpty()) {
+                filesWithCrossFileReferences.add(file)
+                addAll(referenced)
+            }
+        }
+    }
+
+    // original top-level declaration to its shadow
+    val shadows = LinkedHashMap<IrDeclaration, IrDeclaration>()
+    val symbolRemappers = mutableListOf<DeepCopySymbolRemapperSavingFunctions>()
+    while (pending.isNotEmpty()) {
+        val symbolRemapper = DeepCopySymbolRemapperSavingFunctions()
+        val copies = pending.toList().deepCopySavingMetadata(symbolRemapper)
+        for (copy in copies) {
+            copy.acceptVoid(NonInlineFunctionBodiesRemover)
+        }
+        shadows.putAll(pending.zip(copies))
+        symbolRemappers.add(symbolRemapper)
+
+        // Shadows must not refer to declarations which can be lowered concurrently, so declarations referenced
+        // from kept parts of shadows are copied as well, until there are no references to unshadowed declarations
+        pending = LinkedHashSet<IrDeclaration>().apply {
+            for (copy in copies) {
+                copy.remapReferences(ReferencedDeclarationsCollector(moduleFiles, null, this))
+            }
+            removeAll(shadows.keys)
+        }
+    }
+
+    val symbolRemapper = CompositeSymbolRemapper(symbolRemappers)
+    if (symbolRemappers.size > 1) {
+        for (shadow in shadows.values) {
+            shadow.remapReferences(symbolRemapper)
+        }
+    }
+
+    val shadowToOriginalClasses = mutableMapOf<IrClassSymbol, IrClassSymbol>()
+    val shadowToOriginalFunctions = mutableMapOf<IrSimpleFunctionSymbol, IrSimpleFunctionSymbol>()
+    for (remapper in symbolRemappers) {
+        for (klass in remapper.declaredClasses) {
+            shadowToOriginalClasses[remapper.getReferencedClass(klass)] = klass
+        }
+        for (function in remapper.declaredFunctions) {
+            shadowToOriginalFunctions[remapper.getReferencedSimpleFunction(function)] = function
+        }
+    }
+
+    return CrossFileShadows(shadowToOriginalClasses, shadowToOriginalFunctions, symbolRemapper, filesWithCrossFileReferences)
+}
+
+private object NonInlineFunctionBodiesRemover : IrElementVisitorVoid {
+    override fun visitElement(element: IrElement) {
+        element.acceptChildrenVoid(this)
+    }
+
+    override fun visitFunction(declaration: IrFunction) {
+        // local declarations of inline functions are needed to inline them, so their bodies are kept as well
+        if (declaration.isInline) return
+        val body = declaration.body ?: return super.visitFunction(declaration)
+        declaration.body = declaration.factory.createBlockBody(body.startOffset, body.endOffset)
+        for (parameter in declaration.valueParameters) {
+            parameter.acceptVoid(this)
+        }
+    }
+
+    override fun visitAnonymousInitializer(declaration: IrAnonymousInitializer) {
+        declaration.body = declaration.factory.createBlockBody(declaration.body.startOffset, declaration.body.endOffset)
+    }
+}
+
+private fun IrElement.remapReferences(symbolRemapper: SymbolRemapper) {
+    transformChildrenVoid(ReferenceRemapper(symbolRemapper))
+    remapTypes(ChangedTypeRemapper(symbolRemapper))
+}
+
+// Unlike SimpleTypeRemapper, doesn't create new types if none of their classifiers are remapped, which is the case for most types
+private class ChangedTypeRemapper(private val symbolRemapper: SymbolRemapper) : TypeRemapper {
+    private val simpleTypeRemapper = SimpleTypeRemapper(symbolRemapper)
+
+    override fun enterScope(irTypeParametersContainer: IrTypeParametersContainer) {}
+
+    override fun leaveScope() {}
+
+    override fun remapType(type: IrType): IrType =
+        if (type.isRemapped()) simpleTypeRemapper.remapType(type) else type
+
+    private fun IrType.isRemapped(): Boolean {
+        if (this !is IrSimpleType) return false
+        var result = symbolRemapper.getReferencedClassifier(classifier) !== classifier
+        // all arguments are visited, so that the collector of referenced declarations sees all of them
+        for (argument in arguments) {
+            if (argument is IrTypeProjection && argument.type.isRemapped()) result = true
+        }
+        return result
+    }
+}
+
+// Collects top-level declarations of module files (except excludedFile) which are referenced from the visited code
+private class ReferencedDeclarationsCollector(
+    private val moduleFiles: Set<IrFile>,
+    private val excludedFile: IrFile?,
+    private val result: MutableSet<IrDeclaration>,
+) : SymbolRemapper.Empty() {
+    private fun <S : IrSymbol> S.record(): S = apply {
+        if (!isBound) return@apply
+        var declaration = owner as? IrDeclaration ?: return@apply
+        while (true) {
+            declaration = declaration.parent as? IrDeclaration ?: break
+        }
+        val file = declaration.parent as? IrFile ?: return@apply
+        if (file !== excludedFile && file in moduleFiles) {
+            result.add(declaration)
+        }
+    }
+
+    override fun getReferencedClass(symbol: IrClassSymbol): IrClassSymbol = symbol.record()
+    override fun getReferencedClassOrNull(symbol: IrClassSymbol?): IrClassSymbol? = symbol?.record()
+    override fun getReferencedEnumEntry(symbol: IrEnumEntrySymbol): IrEnumEntrySymbol = symbol.record()
+    override fun getReferencedField(symbol: IrFieldSymbol): IrFieldSymbol = symbol.record()
+    override fun getReferencedConstructor(symbol: IrConstructorSymbol): IrConstructorSymbol = symbol.record()
+    override fun getReferencedFunction(symbol: IrFunctionSymbol): IrFunctionSymbol = symbol.record()
+    override fun getReferencedProperty(symbol: IrPropertySymbol): IrPropertySymbol = symbol.record()
+    override fun getReferencedSimpleFunction(symbol: IrSimpleFunctionSymbol): IrSimpleFunctionSymbol = symbol.record()
+    override fun getReferencedClassifier(symbol: IrClassifierSymbol): IrClassifierSymbol = symbol.record()
+}
+
+// Remaps references to declarations of other files only, the file itself is lowered in place
+private class CrossFileSymbolRemapper(private val file: IrFile, private val shadows: SymbolRemapper) : SymbolRemapper.Empty() {
+    private inline fun <S : IrSymbol> S.remap(getShadow: SymbolRemapper.(S) -> S): S {
+        val shadow = shadows.getShadow(this)
+        return if (shadow === this || (owner as IrDeclaration).fileOrNull === file) this else shadow
+    }
+
+    override fun getReferencedClass(symbol: IrClassSymbol): IrClassSymbol = symbol.remap { getReferencedClass(it) }
+    override fun getReferencedClassOrNull(symbol: IrClassSymbol?): IrClassSymbol? = symbol?.remap { getReferencedClass(it) }
+    override fun getReferencedEnumEntry(symbol: IrEnumEntrySymbol): IrEnumEntrySymbol = symbol.remap { getReferencedEnumEntry(it) }
+    override fun getReferencedField(symbol: IrFieldSymbol): IrFieldSymbol = symbol.remap { getReferencedField(it) }
+    override fun getReferencedConstructor(symbol: IrConstructorSymbol): IrConstructorSymbol =
+        symbol.remap { getReferencedConstructor(it) }
+
+    override fun getReferencedFunction(symbol: IrFunctionSymbol): IrFunctionSymbol = symbol.remap { getReferencedFunction(it) }
+    override fun getReferencedProperty(symbol: IrPropertySymbol): IrPropertySymbol = symbol.remap { getReferencedProperty(it) }
+    override fun getReferencedSimpleFunction(symbol: IrSimpleFunctionSymbol): IrSimpleFunctionSymbol =
+        symbol.remap { getReferencedSimpleFunction(it) }
+
+    override fun getReferencedClassifier(symbol: IrClassifierSymbol): IrClassifierSymbol = symbol.remap { getReferencedClassifier(it) }
+}
+
+private class ShadowToOriginalSymbolRemapper(
+    private val classes: Map<IrClassSymbol, IrClassSymbol>,
+    private val functions: Map<IrSimpleFunctionSymbol, IrSimpleFunctionSymbol>,
+) : SymbolRemapper.Empty() {
+    override fun getReferencedClass(symbol: IrClassSymbol): IrClassSymbol = classes[symbol] ?: symbol
+    override fun getReferencedClassOrNull(symbol: IrClassSymbol?): IrClassSymbol? = symbol?.let { classes[it] ?: it }
+    override fun getReferencedClassifier(symbol: IrClassifierSymbol): IrClassifierSymbol =
+        (symbol as? IrClassSymbol)?.let { classes[it] } ?: symbol
+
+    override fun getReferencedFunction(symbol: IrFunctionSymbol): IrFunctionSymbol =
+        (symbol as? IrSimpleFunctionSymbol)?.let { functions[it] } ?: symbol
+
+    override fun getReferencedSimpleFunction(symbol: IrSimpleFunctionSymbol): IrSimpleFunctionSymbol = functions[symbol] ?: symbol
+}
+
+private class CompositeSymbolRemapper(private val remappers: List<SymbolRemapper>) : SymbolRemapper.Empty() {
+    private inline fun <S : IrSymbol> S.remap(getMapped: SymbolRemapper.(S) -> S): S {
+        for (remapper in remappers) {
+            val mapped = remapper.getMapped(this)
+            if (mapped !== this) return mapped
+        }
+        return this
+    }
+
+    override fun getReferencedClass(symbol: IrClassSymbol): IrClassSymbol = symbol.remap { getReferencedClass(it) }
+    override fun getReferencedClassOrNull(symbol: IrClassSymbol?): IrClassSymbol? = symbol?.remap { getReferencedClass(it) }
+    override fun getReferencedEnumEntry(symbol: IrEnumEntrySymbol): IrEnumEntrySymbol = symbol.remap { getReferencedEnumEntry(it) }
+    override fun getReferencedField(symbol: IrFieldSymbol): IrFieldSymbol = symbol.remap { getReferencedField(it) }
+    override fun getReferencedConstructor(symbol: IrConstructorSymbol): IrConstructorSymbol =
+        symbol.remap { getReferencedConstructor(it) }
+
+    override fun getReferencedFunction(symbol: IrFunctionSymbol): IrFunctionSymbol = symbol.remap { getReferencedFunction(it) }
+    override fun getReferencedProperty(symbol: IrPropertySymbol): IrPropertySymbol = symbol.remap { getReferencedProperty(it) }
+    override fun getReferencedSimpleFunction(symbol: IrSimpleFunctionSymbol): IrSimpleFunctionSymbol =
+        symbol.remap { getReferencedSimpleFunction(it) }
+
+    override fun getReferencedClassifier(symbol: IrClassifierSymbol): IrClassifierSymbol = symbol.remap { getReferencedClassifier(it) }
+}
+
+// Replaces references to declarations in place (types are remapped separately), expressions are recreated only if needed
+private class ReferenceRemapper(private val symbolRemapper: SymbolRemapper) : IrElementTransformerVoid() {
+    override fun visitSimpleFunction(declaration: IrSimpleFunction): IrStatement {
+        declaration.overriddenSymbols = declaration.overriddenSymbols.map { symbolRemapper.getReferencedSimpleFunction(it) }
+        return super.visitSimpleFunction(declaration)
+    }
+
+    override fun visitCall(expression: IrCall): IrExpression {
+        expression.transformChildrenVoid(this)
+        val symbol = symbolRemapper.getReferencedSimpleFunction(expression.symbol)
+        val superQualifierSymbol = symbolRemapper.getReferencedClassOrNull(expression.superQualifierSymbol)
+        if (symbol === expression.symbol && superQualifierSymbol === expression.superQualifierSymbol) return expression
+        return with(expression) {
+            IrCallImpl(
+                startOffset, endOffset, type, symbol, typeArgumentsCount, valueArgumentsCount, origin, superQualifierSymbol
+            ).copyArgumentsFrom(this)
+        }
+    }
+
+    override fun visitConstructorCall(expression: IrConstructorCall): IrExpression {
+        expression.transformChildrenVoid(this)
+        val symbol = symbolRemapper.getReferencedConstructor(expression.symbol)
+        if (symbol === expression.symbol) return expression
+        return with(expression) {
+            IrConstructorCallImpl(
+                startOffset, endOffset, type, symbol, typeArgumentsCount, constructorTypeArgumentsCount, valueArgumentsCount, origin
+            ).copyArgumentsFrom(this)
+        }
+    }
+
+    override fun visitDelegatingConstructorCall(expression: IrDelegatingConstructorCall): IrExpression {
+        expression.transformChildrenVoid(this)
+        val symbol = symbolRemapper.getReferencedConstructor(expression.symbol)
+        if (symbol === expression.symbol) return expression
+        return with(expression) {
+            IrDelegatingConstructorCallImpl(startOffset, endOffset, type, symbol, typeArgumentsCount, valueArgumentsCount)
+                .copyArgumentsFrom(this)
+        }
+    }
+
+    override fun visitEnumConstructorCall(expression: IrEnumConstructorCall): IrExpression {
+        expression.transformChildrenVoid(this)
+        val symbol = symbolRemapper.getReferencedConstructor(expression.symbol)
+        if (symbol === expression.symbol) return expression
+        return with(expression) {
+            IrEnumConstructorCallImpl(startOffset, endOffset, type, symbol, typeArgumentsCount, valueArgumentsCount)
+                .copyArgumentsFrom(this)
+        }
+    }
+
+    override fun visitFunctionReference(expression: IrFunctionReference): IrExpression {
+        expression.transformChildrenVoid(this)
+        val symbol = symbolRemapper.getReferencedFunction(expression.symbol)
+        val reflectionTarget = expression.reflectionTarget?.let { symbolRemapper.getReferencedFunction(it) }
+        if (symbol === expression.symbol && reflectionTarget === expression.reflectionTarget) return expression
+        return with(expression) {
+            IrFunctionReferenceImpl(
+                startOffset, endOffset, type, symbol, typeArgumentsCount, valueArgumentsCount, reflectionTarget, origin
+            ).copyArgumentsFrom(this)
+        }
+    }
+
+    override fun visitPropertyReference(expression: IrPropertyReference): IrExpression {
+        expression.transformChildrenVoid(this)
+        val symbol = symbolRemapper.getReferencedProperty(expression.symbol)
+        val field = expression.field?.let { symbolRemapper.getReferencedField(it) }
+        val getter = expression.getter?.let { symbolRemapper.getReferencedSimpleFunction(it) }
+        val setter = expression.setter?.let { symbolRemapper.getReferencedSimpleFunction(it) }
+        if (symbol === expression.symbol && field === expression.field && getter === expression.getter && setter === expression.setter) {
+            return expression
+        }
+        return with(expression) {
+            IrPropertyReferenceImpl(startOffset, endOffset, type, symbol, typeArgumentsCount, field, getter, setter, origin)
+                .copyArgumentsFrom(this)
+        }
+    }
+
+    override fun visitRawFunctionReference(expression: IrRawFunctionReference): IrExpression {
+        val symbol = symbolRemapper.getReferencedFunction(expression.symbol)
+        if (symbol === expression.symbol) return expression
+        return IrRawFunctionReferenceImpl(expression.startOffset, expression.endOffset, expression.type, symbol)
+            .copyAttributes(expression)
+    }
+
+    override fun visitGetField(expression: IrGetField): IrExpression {
+        expression.transformChildrenVoid(this)
+        val symbol = symbolRemapper.getReferencedField(expression.symbol)
+        val superQualifierSymbol = symbolRemapper.getReferencedClassOrNull(expression.superQualifierSymbol)
+        if (symbol === expression.symbol && superQualifierSymbol === expression.superQualifierSymbol) return expression
+        return with(expression) {
+            IrGetFieldImpl(startOffset, endOffset, symbol, type, origin, superQualifierSymbol).also {
+                it.receiver = receiver
+                it.copyAttributes(this)
+            }
+        }
+    }
+
+    override fun visitSetField(expression: IrSetField): IrExpression {
+        expression.transformChildrenVoid(this)
+        val symbol = symbolRemapper.getReferencedField(expression.symbol)
+        val superQualifierSymbol = symbolRemapper.getReferencedClassOrNull(expression.superQualifierSymbol)
+        if (symbol === expression.symbol && superQualifierSymbol === expression.superQualifierSymbol) return expression
+        return with(expression) {
+            IrSetFieldImpl(startOffset, endOffset, symbol, type, origin, superQualifierSymbol).also {
+                it.receiver = receiver
+                it.value = value
+                it.copyAttributes(this)
+            }
+        }
+    }
+
+    override fun visitGetObjectValue(expression: IrGetObjectValue): IrExpression {
+        val symbol = symbolRemapper.getReferencedClass(expression.symbol)
+        if (symbol === expression.symbol) return expression
+        return IrGetObjectValueImpl(expression.startOffset, expression.endOffset, expression.type, symbol).copyAttributes(expression)
+    }
+
+    override fun visitGetEnumValue(expression: IrGetEnumValue): IrExpression {
+        val symbol = symbolRemapper.getReferencedEnumEntry(expression.symbol)
+        if (symbol === expression.symbol) return expression
+        return IrGetEnumValueImpl(expression.startOffset, expression.endOffset, expression.type, symbol).copyAttributes(expression)
+    }
+
+    override fun visitClassReference(expression: IrClassReference): IrExpression {
+        val symbol = symbolRemapper.getReferencedClassifier(expression.symbol)
+        if (symbol === expression.symbol) return expression
+        return with(expression) {
+            IrClassReferenceImpl(startOffset, endOffset, type, symbol, classType).copyAttributes(this)
+        }
+    }
+
+    private fun <E : IrMemberAccessExpression<*>> E.copyArgumentsFrom(other: IrMemberAccessExpression<*>): E = apply {
+        copyTypeArgumentsFrom(other)
+        dispatchReceiver = other.dispatchReceiver
+        extensionReceiver = other.extensionReceiver
+        for (i in 0 until other.valueArgumentsCount) {
+            putValueArgument(i, other.getValueArgument(i))
+        }
+        copyAttributes(other)
+    }
+}
@@ -8,6 +8,7 @@ package org.jetbrains.kotlin.backend.common.phaser
 import org.jetbrains.kotlin.backend.common.CodegenUtil
 import org.jetbrains.kotlin.backend.common.CommonBackendContext
 import org.jetbrains.kotlin.config.CommonConfigurationKeys
+import org.jetbrains.kotlin.ir.IrElement
 import org.jetbrains.kotlin.ir.IrStatement
 import org.jetbrains.kotlin.ir.declarations.IrFile
 import org.jetbrains.kotlin.ir.declarations.IrModuleFragment
@@ -22,7 +23,11 @@ import org.jetbrains.kotlin.ir.util.DeepCopySymbolRemapperPreservingSignatures
 import org.jetbrains.kotlin.ir.util.copyTypeAndValueArgumentsFrom
 import org.jetbrains.kotlin.ir.util.deepCopySavingMetadata
 import org.jetbrains.kotlin.ir.visitors.IrElementTransformerVoid
+import org.jetbrains.kotlin.ir.visitors.IrElementVisitorVoid
+import org.jetbrains.kotlin.ir.visitors.acceptChildrenVoid
+import org.jetbrains.kotlin.ir.visitors.acceptVoid
 import org.jetbrains.kotlin.ir.visitors.transformChildrenVoid
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.Executors
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicReference
@@ -34,11 +39,12 @@ fun <Context : CommonBackendContext> performByIrFile(
     lower: List<CompilerPhase<Context, IrFile, IrFile>>,
 ): NamedCompilerPhase<Context, IrModuleFragment> =
     NamedCompilerPhase(
-        name, description, emptySet(), PerformByIrFilePhase(lower, copyBeforeLowering), emptySet(), emptySet(), emptySet(),
+        name, description, emptySet(), PerformByIrFilePhase(name, lower, copyBeforeLowering), emptySet(), emptySet(), emptySet(),
         setOf(defaultDumper), nlevels = 1,
     )
 
 private class PerformByIrFilePhase<Context : CommonBackendContext>(
+    private val name: String,
     private val lower: List<CompilerPhase<Context, IrFile, IrFile>>,
     private val copyBeforeLowering: Boolean,
 ) : SameTypeCompilerPhase<Context, IrModuleFragment> {
@@ -78,8 +84,9 @@ private class PerformByIrFilePhase<Context : CommonBackendContext>(
     ): IrModuleFragment {
         if (input.files.isEmpty()) return input
 
-        // We can only report one exception through ISE
-        val thrownFromThread = AtomicReference<Pair<Throwable, IrFile>?>(null)
+        if (copyBeforeLowering && context.configuration.getBoolean(CommonConfigurationKeys.PARALLEL_BACKEND_SHADOW_COPIES)) {
+            return invokeParallelWithShadows(phaseConfig, phaserState, context, input, nThreads)
+        }
 
         val remappedFiles = mutableMapOf<IrFileSymbol, IrFileSymbol>()
         val remappedFunctions = mutableMapOf<IrSimpleFunctionSymbol, IrSimpleFunctionSymbol>()
@@ -93,9 +100,65 @@ private class PerformByIrFilePhase<Context : CommonBackendContext>(
                 it to phaserState.copyOf()
         }
 
+        lowerInParallel(phaseConfig, phaserState, context, filesAndStates, nThreads)
+
+        // Repair after working on copied files.
+        if (copyBeforeLowering) {
+            input.files.clear()
+            input.files.addAll(filesAndStates.map { (irFile, _) -> irFile }.toMutableList())
+
+            adjustDefaultArgumentStubs(context, remappedFunctions)
+            context.handleDeepCopy(remappedFiles, remappedClasses, remappedFunctions)
+            input.transformChildrenVoid(CrossFileCallAdjuster(remappedFunctions))
+        }
+
+        // TODO: no guarantee that module identity is preserved by `lower`
+        return input
+    }
+
+    // Lowers files in place, see CrossFileShadows
+    private fun invokeParallelWithShadows(
+        phaseConfig: PhaseConfig, phaserState: PhaserState<IrModuleFragment>, context: Context, input: IrModuleFragment, nThreads: Int
+    ): IrModuleFragment {
+        val shadows = createCrossFileShadows(input.files)
+        context.handleShadowCopy(shadows.originalToShadowClasses)
+        for (irFile in input.files) {
+            shadows.redirectCrossFileReferences(irFile)
+        }
+
+        // Each thread needs its own copy of phaserState.alreadyDone
+        val filesAndStates = input.files.map { it to phaserState.copyOf() }
+        lowerInParallel(phaseConfig, phaserState, context, filesAndStates, nThreads)
+
+        // Redirect references to shadows back to the lowered originals, like calls to the originals are redirected to the lowered copies
+        val remappedFunctions = shadows.shadowToOriginalFunctions
+        adjustDefaultArgumentStubs(context, remappedFunctions)
+        context.handleDeepCopy(mutableMapOf(), shadows.shadowToOriginalClasses, remappedFunctions)
+        shadows.redirectToOriginals(input.files, remappedFunctions)
+
+        return input
+    }
+
+    private fun lowerInParallel(
+        phaseConfig: PhaseConfig,
+        phaserState: PhaserState<IrModuleFragment>,
+        context: Context,
+        filesAndStates: List<Pair<IrFile, PhaserState<IrModuleFragment>>>,
+        nThreads: Int
+    ) {
+        // We can only report one exception through ISE
+        val thrownFromThread = AtomicReference<Pair<Throwable, IrFile>?>(null)
+
+        // Files are taken from the queue of the executor as soon as a thread is free. Sizes of files differ a lot,
+        // so the biggest ones are lowered first, otherwise a big file taken at the end would be lowered by one thread alone.
+        val filesBySize = filesAndStates.map { it to it.first.countElements() }.sortedByDescending { it.second }.map { it.first }
+
+        val busyTimeByThread = ConcurrentHashMap<Thread, Long>()
+        val start = System.nanoTime()
         val executor = Executors.newFixedThreadPool(nThreads)
-        for ((irFile, state) in filesAndStates) {
+        for ((irFile, state) in filesBySize) {
             executor.execute {
+                val fileStart = System.nanoTime()
                 try {
                     val filePhaserState = state.changeType<IrModuleFragment, IrFile>()
                     for (phase in lower) {
@@ -103,37 +166,43 @@ private class PerformByIrFilePhase<Context : CommonBackendContext>(
                     }
                 } catch (e: Throwable) {
                     thrownFromThread.set(Pair(e, irFile))
+                } finally {
+                    busyTimeByThread.merge(Thread.currentThread(), System.nanoTime() - fileStart) { a, b -> a + b }
                 }
             }
         }
         executor.shutdown()
         executor.awaitTermination(1, TimeUnit.DAYS) // Wait long enough
 
+        context.parallelLoweringStatistics?.record(
+            name, filesAndStates.size, System.nanoTime() - start,
+            // threads which haven't got any file are not started by the executor at all
+            busyTimeByThread.values + List((nThreads - busyTimeByThread.size).coerceAtLeast(0)) { 0L }
+        )
+
         thrownFromThread.get()?.let { (e, irFile) ->
             CodegenUtil.reportBackendException(e, "Experimental parallel IR backend", irFile.fileEntry.name)
         }
 
         // Presumably each thread has run through the same list of phases.
         phaserState.alreadyDone.addAll(filesAndStates[0].second.alreadyDone)
-
-        // Repair after working on copied files.
-        if (copyBeforeLowering) {
-            input.files.clear()
-            input.files.addAll(filesAndStates.map { (irFile, _) -> irFile }.toMutableList())
-
-            adjustDefaultArgumentStubs(context, remappedFunctions)
-            context.handleDeepCopy(remappedFiles, remappedClasses, remappedFunctions)
-            input.transformChildrenVoid(CrossFileCallAdjuster(remappedFunctions))
-        }
-
-        // TODO: no guarantee that module identity is preserved by `lower`
-        return input
     }
 
     override fun getNamedSubphases(startDepth: Int): List<Pair<Int, NamedCompilerPhase<Context, *>>> =
         lower.flatMap { it.getNamedSubphases(startDepth) }
 }
 
+private fun IrFile.countElements(): Int {
+    var count = 0
+    acceptVoid(object : IrElementVisitorVoid {
+        override fun visitElement(element: IrElement) {
+            count++
+            element.acceptChildrenVoid(this)
+        }
+    })
+    return count
+}
+
 // We need to remap inline function calls after lowering files
 
 fun IrFile.copySavingMappings(
@@ -157,7 +226,7 @@ fun IrFile.copySavingMappings(
     return newIrFile
 }
 
-private class DeepCopySymbolRemapperSavingFunctions : DeepCopySymbolRemapperPreservingSignatures() {
+internal class DeepCopySymbolRemapperSavingFunctions : DeepCopySymbolRemapperPreservingSignatures() {
     val declaredFunctions = mutableSetOf<IrSimpleFunctionSymbol>()
     val declaredClasses = mutableSetOf<IrClassSymbol>()
 
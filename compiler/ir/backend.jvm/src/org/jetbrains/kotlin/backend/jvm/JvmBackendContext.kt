@@ -8,6 +8,7 @@ package org.jetbrains.kotlin.backend.jvm
 import org.jetbrains.kotlin.backend.common.CommonBackendContext
 import org.jetbrains.kotlin.backend.common.DefaultMapping
 import org.jetbrains.kotlin.backend.common.Mapping
+import org.jetbrains.kotlin.backend.common.ParallelLoweringStatistics
 import org.jetbrains.kotlin.backend.common.ir.Ir
 import org.jetbrains.kotlin.backend.common.lower.irThrow
 import org.jetbrains.kotlin.backend.common.phaser.PhaseConfig
@@ -204,6 +205,17 @@ class JvmBackendContext(
         super.handleDeepCopy(fileSymbolMap, classSymbolMap, functionSymbolMap)
     }
 
+    override val parallelLoweringStatistics: ParallelLoweringStatistics
+        get() = state.parallelLoweringStatistics
+
+    override fun handleShadowCopy(classSymbolMap: Map<IrClassSymbol, IrClassSymbol>) {
+        // references to shadows of file classes must be mapped to the same JVM names as references to the originals
+        for ((original, shadow) in classSymbolMap) {
+            classNameOverride[original.owner]?.let { classNameOverride[shadow.owner] = it }
+        }
+        super.handleShadowCopy(classSymbolMap)
+    }
+
     inner class JvmIr(
         irModuleFragment: IrModuleFragment,
         symbolTable: SymbolTable
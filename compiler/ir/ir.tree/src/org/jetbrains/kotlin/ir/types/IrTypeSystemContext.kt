@@ -83,7 +83,7 @@ interface IrTypeSystemContext : TypeSystemContext, TypeSystemCommonSuperTypesCon
     override fun SimpleTypeMarker.withNullability(nullable: Boolean): SimpleTypeMarker {
         val simpleType = this as IrSimpleType
         return if (simpleType.hasQuestionMark == nullable) simpleType
-        else simpleType.run { IrSimpleTypeImpl(classifier, nullable, arguments, annotations) }
+        else simpleType.run { makeSimpleType(classifier, nullable, arguments, annotations) }
     }
 
     override fun SimpleTypeMarker.typeConstructor(): TypeConstructorMarker = when (this) {
@@ -275,7 +275,7 @@ interface IrTypeSystemContext : TypeSystemContext, TypeSystemCommonSuperTypesCon
             }
         }
 
-        return IrSimpleTypeImpl(type.classifier, type.hasQuestionMark, newArguments, type.annotations)
+        return makeSimpleType(type.classifier, type.hasQuestionMark, newArguments, type.annotations)
     }
 
     override fun SimpleTypeMarker.asArgumentList() = this as IrSimpleType
@@ -317,7 +317,7 @@ interface IrTypeSystemContext : TypeSystemContext, TypeSystemCommonSuperTypesCon
     ): SimpleTypeMarker {
         val ourAnnotations = annotations?.filterIsInstance<IrConstructorCall>()
         require(ourAnnotations?.size == annotations?.size)
-        return IrSimpleTypeImpl(
+        return makeSimpleType(
             constructor as IrClassifierSymbol,
             nullable,
             arguments.map { it as IrTypeArgument },
@@ -8,6 +8,7 @@ package org.jetbrains.kotlin.ir.types.impl
 import org.jetbrains.kotlin.ir.expressions.IrConstructorCall
 import org.jetbrains.kotlin.ir.symbols.FqNameEqualityChecker
 import org.jetbrains.kotlin.ir.symbols.IrClassifierSymbol
+import org.jetbrains.kotlin.ir.symbols.IrDelegatingSymbol
 import org.jetbrains.kotlin.ir.types.*
 import org.jetbrains.kotlin.types.KotlinType
 import org.jetbrains.kotlin.types.Variance
@@ -24,7 +25,8 @@ abstract class IrAbstractSimpleType(kotlinType: KotlinType?) : IrTypeBase(kotlin
     abstract override val abbreviation: IrTypeAbbreviation?
 
     override fun equals(other: Any?): Boolean =
-        other is IrAbstractSimpleType &&
+        this === other ||
+                other is IrAbstractSimpleType &&
                 FqNameEqualityChecker.areEqual(classifier, other.classifier) &&
                 hasQuestionMark == other.hasQuestionMark &&
                 arguments == other.arguments
@@ -68,8 +70,48 @@ class IrSimpleTypeImpl(
         annotations: List<IrConstructorCall>,
         abbreviation: IrTypeAbbreviation? = null
     ) : this(null, classifier, hasQuestionMark, arguments, annotations, abbreviation)
+
+    // 0 if not computed yet or if it may change, e.g. when a classifier delegates to another symbol
+    private var hashCode = 0
+
+    override fun hashCode(): Int {
+        if (hashCode != 0) return hashCode
+        val hash = super.hashCode()
+        if (hasStableHashCode()) {
+            hashCode = hash
+        }
+        return hash
+    }
+
+    private fun hasStableHashCode(): Boolean =
+        classifier !is IrDelegatingSymbol<*, *, *> &&
+                arguments.all { it is IrStarProjection || it is IrTypeProjection && (it.type as? IrSimpleTypeImpl)?.hasStableHashCode() == true }
 }
 
+/**
+ * Creates a simple type, sharing instances of identical types without annotations, see [IrSimpleTypeInterner].
+ */
+fun makeSimpleType(
+    kotlinType: KotlinType?,
+    classifier: IrClassifierSymbol,
+    hasQuestionMark: Boolean,
+    arguments: List<IrTypeArgument>,
+    annotations: List<IrConstructorCall>,
+    abbreviation: IrTypeAbbreviation? = null
+): IrSimpleTypeImpl =
+    if (kotlinType == null && annotations.isEmpty() && abbreviation == null)
+        IrSimpleTypeInterner.intern(classifier, hasQuestionMark, arguments)
+    else
+        IrSimpleTypeImpl(kotlinType, classifier, hasQuestionMark, arguments, annotations, abbreviation)
+
+fun makeSimpleType(
+    classifier: IrClassifierSymbol,
+    hasQuestionMark: Boolean,
+    arguments: List<IrTypeArgument>,
+    annotations: List<IrConstructorCall> = emptyList()
+): IrSimpleTypeImpl =
+    makeSimpleType(null, classifier, hasQuestionMark, arguments, annotations)
+
 class IrSimpleTypeBuilder {
     var kotlinType: KotlinType? = null
     var classifier: IrClassifierSymbol? = null
@@ -91,7 +133,7 @@ fun IrSimpleType.toBuilder() =
     }
 
 fun IrSimpleTypeBuilder.buildSimpleType() =
-    IrSimpleTypeImpl(
+    makeSimpleType(
         kotlinType,
         classifier ?: throw AssertionError("Classifier not provided"),
         hasQuestionMark,
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.ir.types.impl
+
+import org.jetbrains.kotlin.ir.symbols.IrClassifierSymbol
+import org.jetbrains.kotlin.ir.types.IrTypeArgument
+import org.jetbrains.kotlin.types.Variance
+import java.lang.ref.ReferenceQueue
+import java.lang.ref.WeakReference
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Hash-consing table of simple types without annotations, abbreviations and original Kotlin types,
+ * so that identical types created by type remapping, substitution and copying share one instance.
+ *
+ * Types are keyed by the identity of their classifier symbols and arguments rather than by [IrAbstractSimpleType.equals],
+ * which compares classifiers by FqName: types of different IR modules are never shared, because their symbols differ.
+ *
+ * The table is shared by the whole process, so it must not keep IR of finished compilations: both interned types and
+ * the classifiers and arguments in their keys are weakly referenced, and entries are removed when their types are collected.
+ */
+internal object IrSimpleTypeInterner {
+    private abstract class Key {
+        abstract val hash: Int
+        abstract val hasQuestionMark: Boolean
+        abstract val size: Int
+
+        abstract fun classifier(): Any?
+        abstract fun argument(index: Int): Any?
+        abstract fun variance(index: Int): Variance?
+
+        override fun hashCode(): Int = hash
+
+        override fun equals(other: Any?): Boolean {
+            if (this === other) return true
+            if (other !is Key || hash != other.hash || hasQuestionMark != other.hasQuestionMark || size != other.size) return false
+            if (!isSame(classifier(), other.classifier())) return false
+            for (i in 0 until size) {
+                if (!isSame(argument(i), other.argument(i)) || variance(i) != other.variance(i)) return false
+            }
+            return true
+        }
+
+        // collected referents of stored keys are null and never match
+        private fun isSame(a: Any?, b: Any?): Boolean = a != null && a === b
+    }
+
+    // non-invariant projections are created anew each time, so they are compared by their interned types
+    private fun IrTypeArgument.identity(): Any = if (this is IrTypeProjectionImpl) type else this
+    private fun IrTypeArgument.projectionVariance(): Variance? = (this as? IrTypeProjectionImpl)?.variance
+
+    private class LookupKey(
+        val classifier: IrClassifierSymbol,
+        override val hasQuestionMark: Boolean,
+        val arguments: List<IrTypeArgument>
+    ) : Key() {
+        override val hash: Int = arguments.fold(System.identityHashCode(classifier) * 31 + hasQuestionMark.hashCode()) { hash, argument ->
+            (hash * 31 + System.identityHashCode(argument.identity())) * 31 + argument.projectionVariance().hashCode()
+        }
+
+        override val size: Int get() = arguments.size
+
+        override fun classifier(): Any = classifier
+        override fun argument(index: Int): Any = arguments[index].identity()
+        override fun variance(index: Int): Variance? = arguments[index].projectionVariance()
+    }
+
+    private class StoredKey(key: LookupKey) : Key() {
+        override val hash: Int = key.hash
+        override val hasQuestionMark: Boolean = key.hasQuestionMark
+        private val classifier = WeakReference(key.classifier)
+        private val arguments = Array(key.size) { WeakReference(key.argument(it)) }
+        private val variances = Array(key.size) { key.variance(it) }
+
+        override val size: Int get() = arguments.size
+
+        override fun classifier(): Any? = classifier.get()
+        override fun argument(index: Int): Any? = arguments[index].get()
+        override fun variance(index: Int): Variance? = variances[index]
+    }
+
+    private class Entry(val key: StoredKey, type: IrSimpleTypeImpl, queue: ReferenceQueue<IrSimpleTypeImpl>) :
+        WeakReference<IrSimpleTypeImpl>(type, queue)
+
+    private val types = ConcurrentHashMap<Key, Entry>()
+    private val collected = ReferenceQueue<IrSimpleTypeImpl>()
+
+    fun intern(classifier: IrClassifierSymbol, hasQuestionMark: Boolean, arguments: List<IrTypeArgument>): IrSimpleTypeImpl {
+        removeCollected()
+
+        val key = LookupKey(classifier, hasQuestionMark, arguments)
+        types[key]?.get()?.let { return it }
+
+        val type = IrSimpleTypeImpl(null, classifier, hasQuestionMark, arguments, emptyList(), null)
+        val storedKey = StoredKey(key)
+        val entry = Entry(storedKey, type, collected)
+        while (true) {
+            val existing = types.putIfAbsent(storedKey, entry) ?: return type
+            existing.get()?.let { return it }
+            // the type of the existing entry was collected, but the entry wasn't removed yet
+            types.remove(existing.key, existing)
+        }
+    }
+
+    private fun removeCollected() {
+        while (true) {
+            val entry = collected.poll() as Entry? ?: return
+            types.remove(entry.key, entry)
+        }
+    }
+}
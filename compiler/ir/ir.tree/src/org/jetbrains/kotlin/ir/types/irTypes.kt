@@ -118,7 +118,7 @@ fun IrType.getClass(): IrClass? =
     classOrNull?.owner
 
 fun IrClassSymbol.createType(hasQuestionMark: Boolean, arguments: List<IrTypeArgument>): IrSimpleType =
-    IrSimpleTypeImpl(
+    makeSimpleType(
         this,
         hasQuestionMark,
         arguments,
@@ -149,7 +149,7 @@ val IrClassifierSymbol.defaultType: IrType
     }
 
 val IrTypeParameter.defaultType: IrType
-    get() = IrSimpleTypeImpl(
+    get() = makeSimpleType(
         symbol,
         hasQuestionMark = false,
         arguments = emptyList(),
@@ -157,7 +157,7 @@ val IrTypeParameter.defaultType: IrType
     )
 
 val IrClassSymbol.starProjectedType: IrSimpleType
-    get() = IrSimpleTypeImpl(
+    get() = makeSimpleType(
         this,
         hasQuestionMark = false,
         arguments = owner.typeConstructorParameters.map { IrStarProjectionImpl }.toList(),
@@ -198,7 +198,7 @@ fun IrClassifierSymbol.typeWithParameters(parameters: List<IrTypeParameter>): Ir
 fun IrClassifierSymbol.typeWith(vararg arguments: IrType): IrSimpleType = typeWith(arguments.toList())
 
 fun IrClassifierSymbol.typeWith(arguments: List<IrType>): IrSimpleType =
-    IrSimpleTypeImpl(
+    makeSimpleType(
         this,
         false,
         arguments.map { makeTypeProjection(it, Variance.INVARIANT) },
@@ -206,7 +206,7 @@ fun IrClassifierSymbol.typeWith(arguments: List<IrType>): IrSimpleType =
     )
 
 fun IrClassifierSymbol.typeWithArguments(arguments: List<IrTypeArgument>): IrSimpleType =
-    IrSimpleTypeImpl(this, false, arguments, emptyList())
+    makeSimpleType(this, false, arguments, emptyList())
 
 fun IrClass.typeWith(arguments: List<IrType>) = this.symbol.typeWith(arguments)
 
@@ -20,6 +20,22 @@ fun <T : IrElement> T.deepCopySavingMetadata(
         .patchDeclarationParents(initialParent) as T
 }
 
+// Copies all declarations at once, so that references between them are remapped to the copies.
+// Copies have the same parents as the original declarations.
+fun <T : IrDeclaration> List<T>.deepCopySavingMetadata(
+    symbolRemapper: DeepCopySymbolRemapper = DeepCopySymbolRemapper()
+): List<T> {
+    for (declaration in this) {
+        declaration.acceptVoid(symbolRemapper)
+    }
+    val typeRemapper = DeepCopyTypeRemapper(symbolRemapper)
+    val copier = DeepCopySavingMetadata(symbolRemapper, typeRemapper, SymbolRenamer.DEFAULT)
+    @Suppress("UNCHECKED_CAST")
+    return map { declaration ->
+        declaration.transform(copier, null).patchDeclarationParents(declaration.parent) as T
+    }
+}
+
 private class DeepCopySavingMetadata(
     symbolRemapper: SymbolRemapper,
     typeRemapper: TypeRemapper,
@@ -8,8 +8,8 @@ package org.jetbrains.kotlin.ir.util
 import org.jetbrains.kotlin.ir.declarations.IrTypeParametersContainer
 import org.jetbrains.kotlin.ir.expressions.IrConstructorCall
 import org.jetbrains.kotlin.ir.types.*
-import org.jetbrains.kotlin.ir.types.impl.IrSimpleTypeImpl
 import org.jetbrains.kotlin.ir.types.impl.IrTypeAbbreviationImpl
+import org.jetbrains.kotlin.ir.types.impl.makeSimpleType
 import org.jetbrains.kotlin.ir.types.impl.makeTypeProjection
 
 class DeepCopyTypeRemapper(
@@ -30,7 +30,7 @@ class DeepCopyTypeRemapper(
         if (type !is IrSimpleType)
             type
         else
-            IrSimpleTypeImpl(
+            makeSimpleType(
                 null,
                 symbolRemapper.getReferencedClassifier(type.classifier),
                 type.hasQuestionMark,
@@ -9,8 +9,8 @@ import org.jetbrains.kotlin.ir.declarations.IrTypeParameter
 import org.jetbrains.kotlin.ir.declarations.IrTypeParametersContainer
 import org.jetbrains.kotlin.ir.symbols.IrClassifierSymbol
 import org.jetbrains.kotlin.ir.types.*
-import org.jetbrains.kotlin.ir.types.impl.IrSimpleTypeImpl
 import org.jetbrains.kotlin.ir.types.impl.IrTypeAbbreviationImpl
+import org.jetbrains.kotlin.ir.types.impl.makeSimpleType
 import org.jetbrains.kotlin.ir.types.impl.makeTypeProjection
 
 /* After moving an IrElement, some type parameter references within it may become out of scope.
@@ -26,7 +26,7 @@ class IrTypeParameterRemapper(
         if (type !is IrSimpleType)
             type
         else
-            IrSimpleTypeImpl(
+            makeSimpleType(
                 null,
                 type.classifier.remap(),
                 type.hasQuestionMark,
@@ -7,8 +7,8 @@ package org.jetbrains.kotlin.ir.util
 
 import org.jetbrains.kotlin.ir.declarations.IrTypeParametersContainer
 import org.jetbrains.kotlin.ir.types.*
-import org.jetbrains.kotlin.ir.types.impl.IrSimpleTypeImpl
 import org.jetbrains.kotlin.ir.types.impl.IrTypeAbbreviationImpl
+import org.jetbrains.kotlin.ir.types.impl.makeSimpleType
 import org.jetbrains.kotlin.ir.types.impl.makeTypeProjection
 
 class SimpleTypeRemapper(
@@ -30,7 +30,7 @@ class SimpleTypeRemapper(
             if (symbol == type.classifier && arguments == type.arguments)
                 type
             else {
-                IrSimpleTypeImpl(
+                makeSimpleType(
                     null,
                     symbol,
                     type.hasQuestionMark,
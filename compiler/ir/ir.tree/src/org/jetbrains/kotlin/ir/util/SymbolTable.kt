@@ -21,6 +21,7 @@ import org.jetbrains.kotlin.ir.types.IrType
 import org.jetbrains.kotlin.name.Name
 import org.jetbrains.kotlin.resolve.descriptorUtil.isEffectivelyExternal
 import org.jetbrains.kotlin.utils.threadLocal
+import java.util.concurrent.ConcurrentHashMap
 
 interface ReferenceSymbolTable {
     fun referenceClass(descriptor: ClassDescriptor): IrClassSymbol
@@ -71,6 +72,11 @@ class SymbolTable(
     @Suppress("LeakingThis")
     val lazyWrapper = IrLazySymbolTable(this)
 
+    /**
+     * Symbols are created and declared under [lock], but lookups of symbols which were already created are lock-free
+     * if the table is thread-safe for reading ([FlatSymbolTable]), so that threads which generate or lower IR in parallel
+     * contend only when a new symbol is created.
+     */
     private abstract class SymbolTableBase<D : DeclarationDescriptor, B : IrSymbolOwner, S : IrBindableSymbol<D, B>>(val lock: IrLock) {
         val unboundSymbols = linkedSetOf<S>()
 
@@ -78,6 +84,15 @@ class SymbolTable(
         abstract fun set(s: S)
         abstract fun get(sig: IdSignature): S?
 
+        // the signature by which the symbol of a descriptor is kept, if the table keeps symbols by signatures
+        open fun signatureOf(d: D): IdSignature? = null
+
+        // the same as get(d), for the signature which was already computed by signatureOf(d)
+        open fun get(d: D, sig: IdSignature?): S? = get(d)
+
+        // whether symbols may be looked up without holding the lock
+        open val isReadableConcurrently: Boolean get() = false
+
         inline fun declare(d: D, createSymbol: () -> S, createOwner: (S) -> B): B {
             synchronized(lock) {
                 @Suppress("UNCHECKED_CAST")
@@ -155,16 +170,22 @@ class SymbolTable(
             }
         }
 
-        inline fun referenced(d: D, orElse: () -> S): S {
+        // the signature is composed once and passed to orElse, since composing it is relatively expensive
+        inline fun referenced(d: D, orElse: (IdSignature?) -> S): S {
+            @Suppress("UNCHECKED_CAST")
+            val d0 = d.original as D
+            assert(d0 === d) {
+                "Non-original descriptor in declaration: $d\n\tExpected: $d0"
+            }
+            val sig = signatureOf(d0)
+            if (isReadableConcurrently) {
+                get(d0, sig)?.let { return it }
+            }
+
             synchronized(lock) {
-                @Suppress("UNCHECKED_CAST")
-                val d0 = d.original as D
-                assert(d0 === d) {
-                    "Non-original descriptor in declaration: $d\n\tExpected: $d0"
-                }
-                val s = get(d0)
+                val s = get(d0, sig)
                 if (s == null) {
-                    val new = orElse()
+                    val new = orElse(sig)
                     assert(unboundSymbols.add(new)) {
                         "Symbol for $new was already referenced"
                     }
@@ -177,6 +198,10 @@ class SymbolTable(
 
         @OptIn(ObsoleteDescriptorBasedAPI::class)
         inline fun referenced(sig: IdSignature, orElse: () -> S): S {
+            if (isReadableConcurrently) {
+                get(sig)?.let { return it }
+            }
+
             synchronized(lock) {
                 return get(sig) ?: run {
                     val new = orElse()
@@ -190,15 +215,28 @@ class SymbolTable(
         }
     }
 
+    // Maps are written only under the lock, but may be read concurrently.
+    // Insertion order of symbols is kept in separate lists, since it's observable (e.g. via forEachPublicSymbol).
     private open inner class FlatSymbolTable<D : DeclarationDescriptor, B : IrSymbolOwner, S : IrBindableSymbol<D, B>> :
         SymbolTableBase<D, B, S>(lock) {
-        val descriptorToSymbol = linkedMapOf<D, S>()
-        val idSigToSymbol = linkedMapOf<IdSignature, S>()
+        private val descriptorToSymbol = ConcurrentHashMap<D, S>()
+        private val idSigToSymbol = ConcurrentHashMap<IdSignature, S>()
 
-        protected open fun signature(descriptor: D): IdSignature? = signaturer.composeSignature(descriptor)
+        // guarded by lock
+        private val descriptors = ArrayList<D>()
+        private val idSignatures = ArrayList<IdSignature>()
 
-        override fun get(d: D): S? {
-            val sig = signature(d)
+        // in the order of insertion, should be called under the lock
+        val symbolsByDescriptor: List<S> get() = descriptors.map { descriptorToSymbol.getValue(it) }
+        val symbolsBySignature: List<S> get() = idSignatures.map { idSigToSymbol.getValue(it) }
+
+        override val isReadableConcurrently: Boolean get() = true
+
+        override fun signatureOf(d: D): IdSignature? = signaturer.composeSignature(d)
+
+        override fun get(d: D): S? = get(d, signatureOf(d))
+
+        override fun get(d: D, sig: IdSignature?): S? {
             return if (sig != null) {
                 idSigToSymbol[sig]
             } else {
@@ -210,9 +248,9 @@ class SymbolTable(
         override fun set(s: S) {
             val signature = s.signature
             if (signature != null) {
-                idSigToSymbol[signature] = s
+                if (idSigToSymbol.put(signature, s) == null) idSignatures.add(signature)
             } else if (s.hasDescriptor) {
-                descriptorToSymbol[s.descriptor] = s
+                if (descriptorToSymbol.put(s.descriptor, s) == null) descriptors.add(s.descriptor)
             }
         }
 
@@ -220,11 +258,11 @@ class SymbolTable(
     }
 
     private inner class EnumEntrySymbolTable : FlatSymbolTable<ClassDescriptor, IrEnumEntry, IrEnumEntrySymbol>() {
-        override fun signature(descriptor: ClassDescriptor): IdSignature? = signaturer.composeEnumEntrySignature(descriptor)
+        override fun signatureOf(d: ClassDescriptor): IdSignature? = signaturer.composeEnumEntrySignature(d)
     }
 
     private inner class FieldSymbolTable : FlatSymbolTable<PropertyDescriptor, IrField, IrFieldSymbol>() {
-        override fun signature(descriptor: PropertyDescriptor): IdSignature? = null
+        override fun signatureOf(d: PropertyDescriptor): IdSignature? = null
     }
 
     private inner class ScopedSymbolTable<D : DeclarationDescriptor, B : IrSymbolOwner, S : IrBindableSymbol<D, B>>
@@ -381,7 +419,7 @@ class SymbolTable(
             IrAnonymousInitializerSymbolImpl(descriptor)
         )
 
-    fun listExistedScripts() = scriptSymbolTable.descriptorToSymbol.map { it.value }
+    fun listExistedScripts() = synchronized(lock) { scriptSymbolTable.symbolsByDescriptor }
 
     fun declareScript(
         descriptor: ScriptDescriptor,
@@ -412,8 +450,11 @@ class SymbolTable(
         return scriptSymbolTable.referenced(descriptor) { IrScriptSymbolImpl(descriptor) }
     }
 
-    private fun createClassSymbol(descriptor: ClassDescriptor): IrClassSymbol {
-        return signaturer.composeSignature(descriptor)?.let { IrClassPublicSymbolImpl(it, descriptor) } ?: IrClassSymbolImpl(descriptor)
+    private fun createClassSymbol(
+        descriptor: ClassDescriptor,
+        signature: IdSignature? = signaturer.composeSignature(descriptor)
+    ): IrClassSymbol {
+        return signature?.let { IrClassPublicSymbolImpl(it, descriptor) } ?: IrClassSymbolImpl(descriptor)
     }
 
     fun declareClass(
@@ -454,7 +495,7 @@ class SymbolTable(
     }
 
     override fun referenceClass(descriptor: ClassDescriptor) =
-        classSymbolTable.referenced(descriptor) { createClassSymbol(descriptor) }
+        classSymbolTable.referenced(descriptor) { createClassSymbol(descriptor, it) }
 
     fun referenceClassIfAny(sig: IdSignature): IrClassSymbol? =
         classSymbolTable.get(sig)
@@ -467,8 +508,11 @@ class SymbolTable(
 
     val unboundClasses: Set<IrClassSymbol> get() = classSymbolTable.unboundSymbols
 
-    private fun createConstructorSymbol(descriptor: ClassConstructorDescriptor): IrConstructorSymbol {
-        return signaturer.composeSignature(descriptor)?.let { IrConstructorPublicSymbolImpl(it, descriptor) } ?: IrConstructorSymbolImpl(
+    private fun createConstructorSymbol(
+        descriptor: ClassConstructorDescriptor,
+        signature: IdSignature? = signaturer.composeSignature(descriptor)
+    ): IrConstructorSymbol {
+        return signature?.let { IrConstructorPublicSymbolImpl(it, descriptor) } ?: IrConstructorSymbolImpl(
             descriptor
         )
     }
@@ -503,7 +547,7 @@ class SymbolTable(
         )
 
     override fun referenceConstructor(descriptor: ClassConstructorDescriptor) =
-        constructorSymbolTable.referenced(descriptor) { createConstructorSymbol(descriptor) }
+        constructorSymbolTable.referenced(descriptor) { createConstructorSymbol(descriptor, it) }
 
     fun referenceConstructorIfAny(sig: IdSignature): IrConstructorSymbol? =
         constructorSymbolTable.get(sig)
@@ -530,8 +574,11 @@ class SymbolTable(
 
     val unboundConstructors: Set<IrConstructorSymbol> get() = constructorSymbolTable.unboundSymbols
 
-    private fun createEnumEntrySymbol(descriptor: ClassDescriptor): IrEnumEntrySymbol {
-        return signaturer.composeEnumEntrySignature(descriptor)?.let { IrEnumEntryPublicSymbolImpl(it, descriptor) }
+    private fun createEnumEntrySymbol(
+        descriptor: ClassDescriptor,
+        signature: IdSignature? = signaturer.composeEnumEntrySignature(descriptor)
+    ): IrEnumEntrySymbol {
+        return signature?.let { IrEnumEntryPublicSymbolImpl(it, descriptor) }
             ?: IrEnumEntrySymbolImpl(descriptor)
     }
 
@@ -572,7 +619,7 @@ class SymbolTable(
     }
 
     override fun referenceEnumEntry(descriptor: ClassDescriptor) =
-        enumEntrySymbolTable.referenced(descriptor) { createEnumEntrySymbol(descriptor) }
+        enumEntrySymbolTable.referenced(descriptor) { createEnumEntrySymbol(descriptor, it) }
 
     override fun referenceEnumEntryFromLinker(sig: IdSignature) =
         enumEntrySymbolTable.run {
@@ -659,8 +706,11 @@ class SymbolTable(
         @Suppress("DEPRECATION")
         propertyTable.getOrPut(descriptor, generate)
 
-    private fun createPropertySymbol(descriptor: PropertyDescriptor): IrPropertySymbol {
-        return signaturer.composeSignature(descriptor)?.let { IrPropertyPublicSymbolImpl(it, descriptor) } ?: IrPropertySymbolImpl(
+    private fun createPropertySymbol(
+        descriptor: PropertyDescriptor,
+        signature: IdSignature? = signaturer.composeSignature(descriptor)
+    ): IrPropertySymbol {
+        return signature?.let { IrPropertyPublicSymbolImpl(it, descriptor) } ?: IrPropertySymbolImpl(
             descriptor
         )
 
@@ -721,7 +771,7 @@ class SymbolTable(
     }
 
     override fun referenceProperty(descriptor: PropertyDescriptor): IrPropertySymbol =
-        propertySymbolTable.referenced(descriptor) { createPropertySymbol(descriptor) }
+        propertySymbolTable.referenced(descriptor) { createPropertySymbol(descriptor, it) }
 
     fun referencePropertyIfAny(sig: IdSignature): IrPropertySymbol? =
         propertySymbolTable.get(sig)
@@ -734,14 +784,17 @@ class SymbolTable(
 
     val unboundProperties: Set<IrPropertySymbol> get() = propertySymbolTable.unboundSymbols
 
-    private fun createTypeAliasSymbol(descriptor: TypeAliasDescriptor): IrTypeAliasSymbol {
-        return signaturer.composeSignature(descriptor)?.let { IrTypeAliasPublicSymbolImpl(it, descriptor) } ?: IrTypeAliasSymbolImpl(
+    private fun createTypeAliasSymbol(
+        descriptor: TypeAliasDescriptor,
+        signature: IdSignature? = signaturer.composeSignature(descriptor)
+    ): IrTypeAliasSymbol {
+        return signature?.let { IrTypeAliasPublicSymbolImpl(it, descriptor) } ?: IrTypeAliasSymbolImpl(
             descriptor
         )
     }
 
     override fun referenceTypeAlias(descriptor: TypeAliasDescriptor): IrTypeAliasSymbol =
-        typeAliasSymbolTable.referenced(descriptor) { createTypeAliasSymbol(descriptor) }
+        typeAliasSymbolTable.referenced(descriptor) { createTypeAliasSymbol(descriptor, it) }
 
     fun declareTypeAliasFromLinker(
         descriptor: TypeAliasDescriptor,
@@ -779,8 +832,11 @@ class SymbolTable(
 
     val unboundTypeAliases: Set<IrTypeAliasSymbol> get() = typeAliasSymbolTable.unboundSymbols
 
-    private fun createSimpleFunctionSymbol(descriptor: FunctionDescriptor): IrSimpleFunctionSymbol {
-        return signaturer.composeSignature(descriptor)?.let { IrSimpleFunctionPublicSymbolImpl(it, descriptor) }
+    private fun createSimpleFunctionSymbol(
+        descriptor: FunctionDescriptor,
+        signature: IdSignature? = signaturer.composeSignature(descriptor)
+    ): IrSimpleFunctionSymbol {
+        return signature?.let { IrSimpleFunctionPublicSymbolImpl(it, descriptor) }
             ?: IrSimpleFunctionSymbolImpl(descriptor)
     }
 
@@ -829,7 +885,7 @@ class SymbolTable(
     }
 
     override fun referenceSimpleFunction(descriptor: FunctionDescriptor) =
-        simpleFunctionSymbolTable.referenced(descriptor) { createSimpleFunctionSymbol(descriptor) }
+        simpleFunctionSymbolTable.referenced(descriptor) { createSimpleFunctionSymbol(descriptor, it) }
 
     fun referenceSimpleFunctionIfAny(sig: IdSignature): IrSimpleFunctionSymbol? =
         simpleFunctionSymbolTable.get(sig)
@@ -1057,7 +1113,8 @@ class SymbolTable(
     private inline fun <D : DeclarationDescriptor, IR : IrSymbolOwner, S : IrBindableSymbol<D, IR>> FlatSymbolTable<D, IR, S>.forEachPublicSymbolImpl(
         block: (IrSymbol) -> Unit
     ) {
-        idSigToSymbol.forEach { (_, sym) ->
+        val symbols = synchronized(lock) { symbolsBySignature }
+        symbols.forEach { sym ->
             assert(sym.isPublicApi)
             block(sym)
         }
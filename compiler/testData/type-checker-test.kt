@@ -53,4 +53,11 @@ interface SubStar<T : SubStar<T>> : Star<T>
 interface I
 class AI : I
 class BI : I
-class CI : I
\ No newline at end of file
+class CI : I
+
+interface Deep0<T>
+interface Deep1<T> : Deep0<T>
+interface Deep2<T> : Deep1<List<T>>
+open class DeepClass<T> : Deep2<T>
+class DeepSubclass : DeepClass<Int>()
+class WithErrorSupertype : Unresolved, Deep1<Int>
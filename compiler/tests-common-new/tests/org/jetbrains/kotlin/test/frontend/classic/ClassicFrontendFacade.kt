@@ -177,7 +177,7 @@ class ClassicFrontendFacade(
         val moduleVisibilityManager = ModuleVisibilityManager.SERVICE.getInstance(project)
         configuration.getList(JVMConfigurationKeys.FRIEND_PATHS).forEach { moduleVisibilityManager.addFriendPath(it) }
 
-        val moduleTrace = NoScopeRecordCliBindingTrace()
+        val moduleTrace = NoScopeRecordCliBindingTrace(configuration.getBoolean(JVMConfigurationKeys.COMPACT_BINDING_CONTEXT))
         if (!hasCommonModules) {
             return TopDownAnalyzerFacadeForJVM.analyzeFilesWithJavaIntegration(
                 project,
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.test.runners.codegen
+
+import org.jetbrains.kotlin.config.CommonConfigurationKeys
+import org.jetbrains.kotlin.config.CompilerConfiguration
+import org.jetbrains.kotlin.test.builders.TestConfigurationBuilder
+import org.jetbrains.kotlin.test.model.TestModule
+import org.jetbrains.kotlin.test.services.EnvironmentConfigurator
+import org.jetbrains.kotlin.test.services.TestServices
+
+// Box tests of the IR backend which lower files in parallel, copying only declarations referenced from other files
+open class AbstractIrBlackBoxCodegenWithParallelShadowCopiesTest : AbstractIrBlackBoxCodegenTest() {
+    override fun configure(builder: TestConfigurationBuilder) {
+        super.configure(builder)
+        builder.useConfigurators(::ParallelBackendShadowCopiesConfigurator)
+    }
+}
+
+class ParallelBackendShadowCopiesConfigurator(testServices: TestServices) : EnvironmentConfigurator(testServices) {
+    override fun configureCompilerConfiguration(configuration: CompilerConfiguration, module: TestModule) {
+        configuration.put(CommonConfigurationKeys.PARALLEL_BACKEND_THREADS, 4)
+        configuration.put(CommonConfigurationKeys.PARALLEL_BACKEND_SHADOW_COPIES, true)
+    }
+}
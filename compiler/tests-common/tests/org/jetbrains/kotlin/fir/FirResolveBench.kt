@@ -60,7 +60,8 @@ class FirResolveBench(val withProgress: Boolean, val listener: BenchListener? =
         val fileCount: Int,
         val totalLines: Int,
         val errorTypesReports: Map<String, ErrorTypeReport>,
-        val timePerTransformer: Map<String, Measure>
+        val timePerTransformer: Map<String, Measure>,
+        val rawFirTimePerFile: Map<String, Long>
     ) {
         val totalTypes: Int = unresolvedTypes + resolvedTypes
         val goodTypes: Int = resolvedTypes - errorTypes - implicitTypes
@@ -101,6 +102,8 @@ class FirResolveBench(val withProgress: Boolean, val listener: BenchListener? =
     var totalTime = 0L
     var totalLines = 0
 
+    // time of building raw FIR of each file, in nanoseconds
+    val rawFirTimePerFile = linkedMapOf<String, Long>()
 
     private val fails = mutableListOf<FailureInfo>()
     val hasFiles get() = fails.isNotEmpty()
@@ -122,6 +125,7 @@ class FirResolveBench(val withProgress: Boolean, val listener: BenchListener? =
             val after = vmStateSnapshot()
             val diff = after - before
             recordTime(builder::class, diff, time)
+            rawFirTimePerFile[file.virtualFilePath] = time
             totalLines += StringUtil.countNewLines(file.text)
             firFile
         }.also {
@@ -132,8 +136,11 @@ class FirResolveBench(val withProgress: Boolean, val listener: BenchListener? =
 
     fun buildFiles(
         builder: LightTree2Fir,
-        files: List<File>
+        files: List<File>,
+        threads: Int = 1
     ): List<FirFile> {
+        if (threads > 1) return buildFilesInParallel(builder, files, threads)
+
         listener?.before()
         return files.map { file ->
             val before = vmStateSnapshot()
@@ -147,6 +154,7 @@ class FirResolveBench(val withProgress: Boolean, val listener: BenchListener? =
             val after = vmStateSnapshot()
             val diff = after - before
             recordTime(builder::class, diff, time)
+            rawFirTimePerFile[file.path] = time
             totalLines += StringUtil.countNewLines(code)
             firFile
         }.also {
@@ -155,10 +163,29 @@ class FirResolveBench(val withProgress: Boolean, val listener: BenchListener? =
         }
     }
 
-    private fun recordTime(stageClass: KClass<*>, diff: VMCounters, time: Long) {
+    // Time of the stage is its wall time, times of files overlap
+    private fun buildFilesInParallel(builder: LightTree2Fir, files: List<File>, threads: Int): List<FirFile> {
+        listener?.before()
+        val before = vmStateSnapshot()
+        val firFiles: List<FirFile>
+        val time = measureNanoTime {
+            firFiles = builder.buildFirFiles(files, threads) { file, firFile, code, fileTime ->
+                (builder.session.firProvider as FirProviderImpl).recordFile(firFile)
+                rawFirTimePerFile[file.path] = fileTime
+                totalLines += StringUtil.countNewLines(code)
+            }
+        }
+        val after = vmStateSnapshot()
+        recordTime(builder::class, after - before, time, files.size)
+        listener?.after(builder::class)
+        totalTime = timePerTransformer.values.sumByLong { it.time }
+        return firFiles
+    }
+
+    private fun recordTime(stageClass: KClass<*>, diff: VMCounters, time: Long, files: Int = 1) {
         timePerTransformer.computeIfAbsent(stageClass) { Measure() }.apply {
             this.time += time
-            this.files += 1
+            this.files += files
             this.user += diff.userTime
             this.cpu += diff.cpuTime
             this.gcCollections += diff.gcInfo.values.sumBy { it.collections.toInt() }
@@ -356,7 +383,8 @@ class FirResolveBench(val withProgress: Boolean, val listener: BenchListener? =
         fileCount,
         totalLines,
         errorTypesReports,
-        timePerTransformer.mapKeys { (klass, _) -> klass.simpleName!!.toString() }
+        timePerTransformer.mapKeys { (klass, _) -> klass.simpleName!!.toString() },
+        LinkedHashMap(rawFirTimePerFile)
     )
 }
 
@@ -431,8 +459,26 @@ fun FirResolveBench.TotalStatistics.reportTimings(stream: PrintStream) {
             printMeasureAsTable(totalMeasure, this@reportTimings, "Total time")
         }
     }
+
+    if (rawFirTimePerFile.isNotEmpty()) {
+        printTable(stream) {
+            row {
+                cell("Slowest files to build raw FIR", LEFT)
+                cell("Time")
+            }
+            separator()
+            for ((file, time) in rawFirTimePerFile.entries.sortedByDescending { it.value }.take(SLOWEST_RAW_FIR_FILES_TO_REPORT)) {
+                row {
+                    cell(file, LEFT)
+                    timeCell(time)
+                }
+            }
+        }
+    }
 }
 
+private const val SLOWEST_RAW_FIR_FILES_TO_REPORT = 10
+
 fun FirResolveBench.TotalStatistics.report(stream: PrintStream, header: String) {
     with(stream) {
         infix fun Int.percentOf(other: Int): String {
@@ -19,7 +19,8 @@ fun createSessionForTests(
     librariesScope: GlobalSearchScope = GlobalSearchScope.notScope(sourceScope),
     moduleName: String = "TestModule",
     friendPaths: List<String> = emptyList(),
-    lookupTracker: LookupTracker? = null
+    lookupTracker: LookupTracker? = null,
+    concurrentResolve: Boolean = false
 ): FirSession = createSessionForTests(
     environment.project,
     sourceScope,
@@ -27,7 +28,8 @@ fun createSessionForTests(
     moduleName,
     friendPaths,
     lookupTracker,
-    environment::createPackagePartProvider
+    environment::createPackagePartProvider,
+    concurrentResolve = concurrentResolve
 )
 
 fun createSessionForTests(
@@ -38,7 +40,8 @@ fun createSessionForTests(
     friendPaths: List<String> = emptyList(),
     lookupTracker: LookupTracker? = null,
     getPackagePartProvider: (GlobalSearchScope) -> PackagePartProvider,
-    getAdditionalModulePackagePartProvider: (GlobalSearchScope) -> PackagePartProvider? = { null }
+    getAdditionalModulePackagePartProvider: (GlobalSearchScope) -> PackagePartProvider? = { null },
+    concurrentResolve: Boolean = false
 ): FirSession {
     return createSessionWithDependencies(
         Name.identifier(moduleName),
@@ -50,7 +53,8 @@ fun createSessionForTests(
         librariesScope,
         lookupTracker,
         getPackagePartProvider,
-        getAdditionalModulePackagePartProvider
+        getAdditionalModulePackagePartProvider,
+        concurrentResolve
     )
 }
 
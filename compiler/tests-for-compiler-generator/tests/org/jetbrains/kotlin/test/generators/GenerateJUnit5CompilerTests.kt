@@ -27,6 +27,11 @@ fun generateJUnit5CompilerTests(args: Array<String>) {
                 model("diagnostics/testsWithStdLib", excludedPattern = excludedFirTestdataPattern)
             }
 
+            testClass<AbstractDiagnosticWithCompactBindingContextTest> {
+                model("diagnostics/tests", pattern = "^(.*)\\.kts?$", excludedPattern = excludedFirTestdataPattern)
+                model("diagnostics/testsWithStdLib", excludedPattern = excludedFirTestdataPattern)
+            }
+
             testClass<AbstractDiagnosticUsingJavacTest> {
                 model("diagnostics/tests/javac", pattern = "^(.*)\\.kts?$", excludedPattern = excludedFirTestdataPattern)
             }
@@ -70,6 +75,10 @@ fun generateJUnit5CompilerTests(args: Array<String>) {
                 model("codegen/box")
             }
 
+            testClass<AbstractIrBlackBoxCodegenWithParallelShadowCopiesTest> {
+                model("codegen/box")
+            }
+
             testClass<AbstractJvmIrAgainstOldBoxTest> {
                 model("codegen/box/compileKotlinAgainstKotlin")
             }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.cli
+
+import org.jetbrains.kotlin.cli.common.ExitCode
+import org.jetbrains.kotlin.cli.jvm.K2JVMCompiler
+import org.jetbrains.kotlin.test.CompilerTestUtil
+import org.jetbrains.kotlin.test.TestCaseWithTmpdir
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class BytecodeOptimizationProfilingTest : TestCaseWithTmpdir() {
+    private class Row(val name: String, val methods: Long, val instructionsBefore: Long, val instructionsAfter: Long)
+
+    fun testReportHasRowForEachPass() {
+        val rows = compile("-Xprofile-bytecode-optimizations", "-Xreport-perf")
+        val names = rows.map { it.name }
+        assertEquals(names.distinct(), names, "Each pass should be reported once")
+
+        // verifiers of different pipelines are reported separately
+        assertTrue("Normalization #2 MethodVerifier" in names, names.toString())
+        assertTrue("Optimization #11 MethodVerifier" in names, names.toString())
+
+        // all methods of the class are normalized, and the verifier doesn't change them
+        val normalization = rows.first { it.name == "Normalization #1 FixStackWithLabelNormalizationMethodTransformer" }
+        assertTrue(normalization.methods >= 3, "Methods: ${normalization.methods}")
+        val verifier = rows.first { it.name == "Normalization #2 MethodVerifier" }
+        assertEquals(verifier.instructionsBefore, verifier.instructionsAfter)
+    }
+
+    fun testNoReportWithoutPerformanceReport() {
+        assertEquals(emptyList(), compile("-Xprofile-bytecode-optimizations").map { it.name })
+    }
+
+    private fun compile(vararg arguments: String): List<Row> {
+        val source = tmpdir.resolve("source.kt").apply {
+            writeText(
+                """
+                class A(val x: Int) {
+                    fun boxed(): Int {
+                        val y: Any = x
+                        return y as Int
+                    }
+
+                    fun branches(flag: Boolean): String = if (true) "a" else if (flag) "b" else "c"
+                }
+                """.trimIndent()
+            )
+        }
+        val (output, exitCode) = CompilerTestUtil.executeCompiler(
+            K2JVMCompiler(), listOf(source.path, "-d", tmpdir.resolve("out").path) + arguments
+        )
+        assertEquals(ExitCode.OK, exitCode, output)
+
+        return OPTIMIZATION_ROW.findAll(output).map { match ->
+            val (name, methods, before, after) = match.destructured
+            Row(name, methods.toLong(), before.toLong(), after.toLong())
+        }.toList()
+    }
+
+    private companion object {
+        val OPTIMIZATION_ROW = Regex("""PERF: OPTIMIZATION: (.+): \d+ ms, (\d+) methods \(\d+ changed\), (\d+) -> (\d+) instructions""")
+    }
+}
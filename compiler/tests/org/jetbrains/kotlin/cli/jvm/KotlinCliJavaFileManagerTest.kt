@@ -26,6 +26,7 @@ import org.jetbrains.kotlin.cli.jvm.compiler.EnvironmentConfigFiles
 import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCliJavaFileManagerImpl
 import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
 import org.jetbrains.kotlin.cli.jvm.index.JavaRoot
+import org.jetbrains.kotlin.cli.jvm.index.JvmDependenciesIndex
 import org.jetbrains.kotlin.cli.jvm.index.JvmDependenciesIndexImpl
 import org.jetbrains.kotlin.cli.jvm.index.SingleJavaFileRootsIndex
 import org.jetbrains.kotlin.config.LanguageFeature
@@ -41,7 +42,7 @@ import org.jetbrains.kotlin.test.TestJdkKind
 import org.jetbrains.kotlin.test.util.KtTestUtil
 import java.io.File
 
-class KotlinCliJavaFileManagerTest : KotlinTestWithEnvironment() {
+open class KotlinCliJavaFileManagerTest : KotlinTestWithEnvironment() {
     private lateinit var javaFilesDir: File
 
     fun testCommon() {
@@ -194,6 +195,8 @@ class KotlinCliJavaFileManagerTest : KotlinTestWithEnvironment() {
         return KotlinCoreEnvironment.createForTests(testRootDisposable, configuration, EnvironmentConfigFiles.JVM_CONFIG_FILES)
     }
 
+    protected open fun createIndex(roots: List<JavaRoot>): JvmDependenciesIndex = JvmDependenciesIndexImpl(roots)
+
     private fun configureManager(@Language("JAVA") text: String, className: String): KotlinCliJavaFileManagerImpl {
         val fooPackageDir = File(javaFilesDir, "foo")
         fooPackageDir.mkdir()
@@ -206,7 +209,7 @@ class KotlinCliJavaFileManagerTest : KotlinTestWithEnvironment() {
 
         val root = StandardFileSystems.local().findFileByPath(javaFilesDir.path)!!
         coreJavaFileManager.initialize(
-            JvmDependenciesIndexImpl(listOf(JavaRoot(root, JavaRoot.RootType.SOURCE))),
+            createIndex(listOf(JavaRoot(root, JavaRoot.RootType.SOURCE))),
             emptyList(),
             SingleJavaFileRootsIndex(emptyList()),
             usePsiClassFilesReading = false
@@ -0,0 +1,14 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.cli.jvm
+
+import org.jetbrains.kotlin.cli.jvm.index.JavaRoot
+import org.jetbrains.kotlin.cli.jvm.index.JvmDependenciesConcurrentIndexImpl
+import org.jetbrains.kotlin.cli.jvm.index.JvmDependenciesIndex
+
+class KotlinCliJavaFileManagerWithConcurrentIndexTest : KotlinCliJavaFileManagerTest() {
+    override fun createIndex(roots: List<JavaRoot>): JvmDependenciesIndex = JvmDependenciesConcurrentIndexImpl(roots)
+}
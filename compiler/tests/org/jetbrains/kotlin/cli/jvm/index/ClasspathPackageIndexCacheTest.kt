@@ -0,0 +1,123 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.cli.jvm.index
+
+import com.intellij.openapi.util.io.FileUtil
+import junit.framework.TestCase
+import java.io.File
+import java.io.FileOutputStream
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class ClasspathPackageIndexCacheTest : TestCase() {
+    private lateinit var tmpDir: File
+
+    override fun setUp() {
+        super.setUp()
+        tmpDir = FileUtil.createTempDirectory("ClasspathPackageIndexCacheTest", null)
+    }
+
+    override fun tearDown() {
+        FileUtil.delete(tmpDir)
+        super.tearDown()
+    }
+
+    private val cacheFile: File
+        get() = File(tmpDir, "cache/packages.bin")
+
+    // entries have the same size and fixed timestamps, so jars with files of the same name lengths have the same size
+    private fun writeJar(jar: File, vararg entries: String) {
+        ZipOutputStream(FileOutputStream(jar)).use { output ->
+            for (entry in entries) {
+                output.putNextEntry(ZipEntry(entry).apply { time = 0 })
+                output.write(1)
+                output.closeEntry()
+            }
+        }
+    }
+
+    fun testPackagesOfJar() {
+        val jar = File(tmpDir, "lib.jar").also { writeJar(it, "a/b/C.class", "d/E.class", "META-INF/MANIFEST.MF") }
+        assertEquals(setOf("a", "a.b", "d", "META-INF"), ClasspathPackageIndexCache(cacheFile).getJarPackages(jar))
+    }
+
+    fun testSaveAndLoad() {
+        val jar = File(tmpDir, "lib.jar").also { writeJar(it, "a/C.class") }
+        val lastModified = jar.lastModified()
+        ClasspathPackageIndexCache(cacheFile).apply {
+            getJarPackages(jar)
+            save()
+        }
+        assertTrue(cacheFile.isFile)
+
+        // the jar has the same size and modification time, so its packages are taken from the cache file
+        writeJar(jar, "b/C.class")
+        jar.setLastModified(lastModified)
+        assertEquals(setOf("a"), ClasspathPackageIndexCache(cacheFile).getJarPackages(jar))
+    }
+
+    fun testStaleEntryIsReindexed() {
+        val jar = File(tmpDir, "lib.jar").also { writeJar(it, "a/C.class") }
+        ClasspathPackageIndexCache(cacheFile).apply {
+            getJarPackages(jar)
+            save()
+        }
+
+        writeJar(jar, "b/C.class")
+        jar.setLastModified(jar.lastModified() + 10_000)
+        val cache = ClasspathPackageIndexCache(cacheFile)
+        assertEquals(setOf("b"), cache.getJarPackages(jar))
+        cache.save()
+
+        assertEquals(setOf("b"), ClasspathPackageIndexCache(cacheFile).getJarPackages(jar))
+    }
+
+    fun testCorruptedCacheFile() {
+        val jar = File(tmpDir, "lib.jar").also { writeJar(it, "a/C.class") }
+        ClasspathPackageIndexCache(cacheFile).apply {
+            getJarPackages(jar)
+            save()
+        }
+
+        // truncated file
+        cacheFile.writeBytes(cacheFile.readBytes().copyOf(cacheFile.length().toInt() - 3))
+        assertEquals(setOf("a"), ClasspathPackageIndexCache(cacheFile).getJarPackages(jar))
+
+        // garbage
+        cacheFile.writeBytes(ByteArray(100) { (it * 31).toByte() })
+        val cache = ClasspathPackageIndexCache(cacheFile)
+        assertEquals(setOf("a"), cache.getJarPackages(jar))
+        cache.save()
+
+        // the corrupted file is rewritten
+        val lastModified = jar.lastModified()
+        writeJar(jar, "b/C.class")
+        jar.setLastModified(lastModified)
+        assertEquals(setOf("a"), ClasspathPackageIndexCache(cacheFile).getJarPackages(jar))
+    }
+
+    fun testRemovedJarsAreDropped() {
+        val jar = File(tmpDir, "lib.jar").also { writeJar(it, "a/C.class") }
+        val other = File(tmpDir, "other.jar").also { writeJar(it, "b/C.class") }
+        ClasspathPackageIndexCache(cacheFile).apply {
+            getJarPackages(jar)
+            getJarPackages(other)
+            save()
+        }
+        val sizeWithBothJars = cacheFile.length()
+
+        assertTrue(other.delete())
+        writeJar(jar, "c/C.class")
+        jar.setLastModified(jar.lastModified() + 10_000)
+        ClasspathPackageIndexCache(cacheFile).apply {
+            getJarPackages(jar)
+            save()
+        }
+        assertTrue(cacheFile.length() < sizeWithBothJars)
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+@file:Suppress("unused")
+
+package org.jetbrains.kotlin.codegen
+
+// Methods whose bytecode is analyzed by BasicBlockFramesAnalyzerTest
+
+fun mergeOfDifferentTypes(flag: Boolean): Any {
+    val value: Any = if (flag) "string" else 42
+    return value
+}
+
+fun mergeOfDifferentLocals(flag: Boolean): Int {
+    if (flag) {
+        val s = "string"
+        println(s)
+    } else {
+        val d = 1.0
+        println(d)
+    }
+    return 0
+}
+
+fun loops(n: Int): Long {
+    var result = 0L
+    var i = 0
+    while (i < n) {
+        for (j in 0 until i) {
+            if (j % 3 == 0) continue
+            result += j
+            if (result > 1000) break
+        }
+        i++
+    }
+    return result
+}
+
+fun tableSwitch(x: Int): String =
+    when (x) {
+        0 -> "zero"
+        1 -> "one"
+        2 -> "two"
+        3 -> "three"
+        else -> "many"
+    }
+
+fun lookupSwitch(s: String): Int =
+    when (s) {
+        "a" -> 1
+        "bb" -> 2
+        "ccc" -> 3
+        else -> 0
+    }
+
+fun tryCatchFinally(s: String): Int {
+    var result = 0
+    try {
+        result = s.toInt()
+        if (result < 0) throw IllegalArgumentException()
+    } catch (e: NumberFormatException) {
+        result = -1
+    } catch (e: IllegalArgumentException) {
+        result = -2
+    } finally {
+        println(result)
+    }
+    return result
+}
+
+fun nestedTryCatch(values: List<String>): Int {
+    var count = 0
+    for (value in values) {
+        try {
+            try {
+                count += value.toInt()
+            } catch (e: NumberFormatException) {
+                if (value.isEmpty()) return -1
+                throw IllegalStateException(e)
+            }
+        } catch (e: IllegalStateException) {
+            count--
+        }
+    }
+    return count
+}
+
+fun tryCatchWithValueOnStack(s: String?): String =
+    "prefix" + try {
+        s!!.substring(1)
+    } catch (e: Exception) {
+        null
+    }
+
+fun unreachableAfterThrow(flag: Boolean): Int {
+    if (flag) return 1
+    throw IllegalStateException()
+}
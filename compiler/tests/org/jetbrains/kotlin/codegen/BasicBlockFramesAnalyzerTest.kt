@@ -0,0 +1,67 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.codegen.optimization.common.BasicBlockFramesAnalyzer
+import org.jetbrains.kotlin.codegen.optimization.common.OptimizationBasicInterpreter
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer
+import org.jetbrains.org.objectweb.asm.ClassReader
+import org.jetbrains.org.objectweb.asm.tree.ClassNode
+import org.jetbrains.org.objectweb.asm.tree.analysis.BasicInterpreter
+import org.jetbrains.org.objectweb.asm.tree.analysis.BasicValue
+import org.jetbrains.org.objectweb.asm.tree.analysis.Interpreter
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class BasicBlockFramesAnalyzerTest : TestCase() {
+    fun testSamples() {
+        val samples = readClass(SAMPLES_CLASS)
+        assertTrue(samples.methods.any { it.tryCatchBlocks.isNotEmpty() }, "Samples should contain try/catch blocks")
+        checkFrames(samples, BasicInterpreter())
+        checkFrames(samples, OptimizationBasicInterpreter())
+    }
+
+    fun testStdlibClasses() {
+        for (className in STDLIB_CLASSES) {
+            val classNode = readClass(className)
+            checkFrames(classNode, BasicInterpreter())
+            checkFrames(classNode, OptimizationBasicInterpreter())
+        }
+    }
+
+    private fun readClass(internalName: String): ClassNode {
+        val bytes = javaClass.classLoader.getResourceAsStream("$internalName.class")!!.use { it.readBytes() }
+        return ClassNode().also { ClassReader(bytes).accept(it, 0) }
+    }
+
+    private fun checkFrames(classNode: ClassNode, interpreter: Interpreter<BasicValue>) {
+        for (method in classNode.methods) {
+            if (method.instructions.size() == 0) continue
+            val methodName = "${classNode.name}.${method.name}${method.desc}"
+
+            val expected = MethodTransformer.analyze(classNode.name, method, interpreter)
+            val analyzer = BasicBlockFramesAnalyzer(classNode.name, method, interpreter).analyze()
+            val actual = arrayOfNulls<String>(expected.size)
+            analyzer.forEachFrame { index, frame -> actual[index] = frame.toString() }
+
+            for (index in expected.indices) {
+                assertEquals(expected[index] != null, analyzer.isReachable(index), "Reachability of #$index in $methodName")
+                assertEquals(expected[index]?.toString(), actual[index], "Frame of #$index in $methodName")
+            }
+        }
+    }
+
+    private companion object {
+        const val SAMPLES_CLASS = "org/jetbrains/kotlin/codegen/BasicBlockFramesAnalyzerSamplesKt"
+
+        val STDLIB_CLASSES = listOf(
+            "kotlin/text/StringsKt__StringsKt",
+            "kotlin/io/FilesKt__UtilsKt",
+            "kotlin/collections/CollectionsKt__MutableCollectionsKt"
+        )
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import com.intellij.openapi.util.io.FileUtil
+import junit.framework.TestCase
+import org.jetbrains.kotlin.codegen.inline.*
+import org.jetbrains.org.objectweb.asm.*
+import org.jetbrains.org.objectweb.asm.commons.Method
+import org.jetbrains.org.objectweb.asm.tree.MethodNode
+import org.jetbrains.org.objectweb.asm.util.Textifier
+import org.jetbrains.org.objectweb.asm.util.TraceMethodVisitor
+import java.io.File
+import java.io.PrintWriter
+import java.io.StringWriter
+import kotlin.test.assertEquals
+import kotlin.test.assertNotNull
+import kotlin.test.assertTrue
+
+class PersistentInlineFunctionCacheTest : TestCase() {
+    private lateinit var tmpDir: File
+
+    override fun setUp() {
+        super.setUp()
+        tmpDir = FileUtil.createTempDirectory("PersistentInlineFunctionCacheTest", null)
+    }
+
+    override fun tearDown() {
+        FileUtil.delete(tmpDir)
+        super.tearDown()
+    }
+
+    private val cacheDirectory: File
+        get() = File(tmpDir, "cache")
+
+    private val methodId = MethodId("test/AKt", Method("foo", "()I"))
+
+    private fun createClass(version: Int): ByteArray {
+        val main = FileMapping("A.kt", "test/AKt").apply { mapNewInterval(1, 1, 20) }
+        val inlined = FileMapping("B.kt", "test/BKt").apply { mapNewInterval(5, 21, 3) }
+
+        val writer = ClassWriter(0)
+        writer.visit(version, Opcodes.ACC_PUBLIC or Opcodes.ACC_SUPER, "test/AKt", null, "java/lang/Object", null)
+        writer.visitSource("A.kt", SMAPBuilder.build(listOf(main, inlined), backwardsCompatibleSyntax = false))
+        writer.visitMethod(Opcodes.ACC_PUBLIC or Opcodes.ACC_STATIC, "foo", "()I", null, null).apply {
+            visitCode()
+            val start = Label()
+            visitLabel(start)
+            visitLineNumber(10, start)
+            visitInsn(Opcodes.ICONST_1)
+            val inlinedCode = Label()
+            visitLabel(inlinedCode)
+            visitLineNumber(22, inlinedCode)
+            visitInsn(Opcodes.IRETURN)
+            visitMaxs(1, 0)
+            visitEnd()
+        }
+        writer.visitEnd()
+        return writer.toByteArray()
+    }
+
+    private fun readMethod(bytes: ByteArray): SMAPAndMethodNode {
+        var source: String? = null
+        var debug: String? = null
+        var node: MethodNode? = null
+        ClassReader(bytes).accept(object : ClassVisitor(Opcodes.API_VERSION) {
+            override fun visitSource(source1: String?, debug1: String?) {
+                source = source1
+                debug = debug1
+            }
+
+            override fun visitMethod(access: Int, name: String, desc: String, signature: String?, exceptions: Array<String>?) =
+                MethodNode(Opcodes.API_VERSION, access, name, desc, signature, exceptions).also { node = it }
+        }, ClassReader.SKIP_FRAMES)
+        return SMAPAndMethodNode(node!!, SMAPParser.parseOrCreateDefault(debug, source, "test/AKt", 10, 22))
+    }
+
+    private fun SMAPAndMethodNode.render(): String {
+        val textifier = Textifier()
+        node.accept(TraceMethodVisitor(textifier))
+        val text = StringWriter()
+        textifier.print(PrintWriter(text))
+        return text.toString() + SMAPBuilder.build(classSMAP.fileMappings, backwardsCompatibleSyntax = false)
+    }
+
+    private fun createJar(): File = File(tmpDir, "lib.jar").apply { writeBytes(ByteArray(10)) }
+
+    fun testStoreAndLoad() {
+        val jar = createJar()
+        val bytes = createClass(Opcodes.V1_8)
+        val computed = PersistentInlineFunctionCache(cacheDirectory).getOrPut(jar, methodId, { bytes }, ::readMethod)
+        assertNotNull(computed)
+
+        // a new instance, as in the next compilation
+        val cache = PersistentInlineFunctionCache(cacheDirectory)
+        val loaded = cache.getOrPut(jar, methodId, { error("Class should not be read") }) { error("Method should not be read") }
+        assertNotNull(loaded)
+        assertEquals(1, cache.hits)
+        assertEquals(computed.render(), loaded.render())
+    }
+
+    fun testClassVersionIsKept() {
+        val jar = createJar()
+        val bytes = createClass(Opcodes.V1_8)
+        PersistentInlineFunctionCache(cacheDirectory).getOrPut(jar, methodId, { bytes }, ::readMethod)
+
+        val stored = cacheDirectory.walk().single { it.isFile && it.name.endsWith(".class") }
+        var version = 0
+        ClassReader(stored.readBytes()).accept(object : ClassVisitor(Opcodes.API_VERSION) {
+            override fun visit(version1: Int, access: Int, name: String, signature: String?, superName: String?, interfaces: Array<String>?) {
+                version = version1
+            }
+        }, ClassReader.SKIP_CODE)
+        assertEquals(Opcodes.V1_8, version)
+    }
+
+    fun testChangedJarIsNotReused() {
+        val jar = createJar()
+        PersistentInlineFunctionCache(cacheDirectory).getOrPut(jar, methodId, { createClass(Opcodes.V1_8) }, ::readMethod)
+
+        jar.writeBytes(ByteArray(20))
+        val cache = PersistentInlineFunctionCache(cacheDirectory)
+        cache.getOrPut(jar, methodId, { createClass(Opcodes.V1_8) }, ::readMethod)
+        assertEquals(0, cache.hits)
+        assertEquals(1, cache.misses)
+    }
+
+    fun testCleanUpDeletesLeastRecentlyUsedJars() {
+        val jars = (0 until 3).map { index -> File(tmpDir, "lib$index.jar").apply { writeBytes(ByteArray(10)) } }
+        val cache = PersistentInlineFunctionCache(cacheDirectory)
+        for (jar in jars) {
+            cache.getOrPut(jar, methodId, { createClass(Opcodes.V1_8) }, ::readMethod)
+        }
+        val directories = cacheDirectory.listFiles { file -> file.isDirectory }!!.sortedBy { it.name }
+        assertEquals(3, directories.size)
+        for ((index, directory) in directories.withIndex()) {
+            directory.setLastModified(System.currentTimeMillis() - (index + 1) * 100_000L)
+        }
+        val directorySize = directories.first().listFiles()!!.single().length()
+
+        PersistentInlineFunctionCache(cacheDirectory, maxSize = directorySize).cleanUp()
+        val remaining = cacheDirectory.listFiles { file -> file.isDirectory }!!
+        assertEquals(listOf(directories.first().name), remaining.map { it.name })
+        assertTrue(File(cacheDirectory, "last-clean-up").exists())
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.codegen.inline.WeightedCache
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertTrue
+
+class WeightedCacheTest : TestCase() {
+    fun testHitsAndMisses() {
+        val cache = WeightedCache<String, String>("test", 100) { it.length.toLong() }
+        assertEquals("a", cache.getOrCompute("a") { it })
+        assertEquals("a", cache.getOrCompute("a") { error("Should not be recomputed") })
+        assertEquals(1, cache.hits)
+        assertEquals(1, cache.misses)
+        assertEquals(1, cache.weight)
+    }
+
+    fun testEvictionByWeight() {
+        val cache = WeightedCache<Int, ByteArray>("test", 10) { it.size.toLong() }
+        for (i in 0 until 5) {
+            cache.getOrCompute(i) { ByteArray(4) }
+        }
+        assertTrue(cache.weight <= 10, "Weight ${cache.weight} exceeds the limit")
+        assertEquals(3, cache.evictions)
+    }
+
+    fun testRecentlyUsedEntryGetsSecondChance() {
+        val cache = WeightedCache<Int, ByteArray>("test", 8) { it.size.toLong() }
+        cache.getOrCompute(0) { ByteArray(4) }
+        cache.getOrCompute(1) { ByteArray(4) }
+        cache.getOrCompute(0) { error("Should not be recomputed") }
+        cache.getOrCompute(2) { ByteArray(4) }
+
+        // 1 is evicted instead of 0 because 0 was used after it was put to the cache
+        cache.getOrCompute(0) { error("Should not be recomputed") }
+        assertEquals(1, cache.evictions)
+    }
+
+    fun testFailedComputationIsNotCached() {
+        val cache = WeightedCache<String, String>("test", 100) { it.length.toLong() }
+        assertFailsWith<IllegalStateException> {
+            cache.getOrCompute("a") { error("Failure") }
+        }
+        assertEquals(0, cache.weight)
+        assertEquals("a", cache.getOrCompute("a") { it })
+        assertEquals("a", cache.getOrCompute("a") { error("Should not be recomputed") })
+        assertEquals(1, cache.weight)
+    }
+
+    fun testValueIsComputedOnceUnderContention() {
+        val cache = WeightedCache<String, Any>("test", 100) { 1 }
+        val computations = AtomicInteger()
+        val threads = 8
+        val start = CountDownLatch(1)
+        val executor = Executors.newFixedThreadPool(threads)
+        try {
+            val results = (0 until threads).map {
+                executor.submit<Any> {
+                    start.await()
+                    cache.getOrCompute("key") {
+                        computations.incrementAndGet()
+                        Thread.sleep(10)
+                        Any()
+                    }
+                }
+            }
+            start.countDown()
+            assertEquals(1, results.map { it.get(10, TimeUnit.SECONDS) }.distinct().size)
+            assertEquals(1, computations.get())
+        } finally {
+            executor.shutdown()
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.ir
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.ir.symbols.IrClassSymbol
+import org.jetbrains.kotlin.ir.symbols.impl.IrClassSymbolImpl
+import org.jetbrains.kotlin.ir.types.impl.IrStarProjectionImpl
+import org.jetbrains.kotlin.ir.types.impl.makeSimpleType
+import org.jetbrains.kotlin.ir.types.impl.makeTypeProjection
+import org.jetbrains.kotlin.types.Variance
+import java.lang.ref.WeakReference
+import kotlin.test.assertNotSame
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+
+class IrSimpleTypeInternerTest : TestCase() {
+    fun testEqualTypesAreInterned() {
+        val list = IrClassSymbolImpl()
+        val string = IrClassSymbolImpl()
+
+        val stringType = makeSimpleType(string, false, emptyList())
+        assertSame(stringType, makeSimpleType(string, false, emptyList()))
+        assertNotSame(stringType, makeSimpleType(string, true, emptyList()))
+
+        val listOfString = makeSimpleType(list, false, listOf(stringType))
+        assertSame(listOfString, makeSimpleType(list, false, listOf(makeSimpleType(string, false, emptyList()))))
+
+        // projections are created anew, but types with equal projections are the same
+        val listOfOutString = makeSimpleType(list, false, listOf(makeTypeProjection(stringType, Variance.OUT_VARIANCE)))
+        assertSame(listOfOutString, makeSimpleType(list, false, listOf(makeTypeProjection(stringType, Variance.OUT_VARIANCE))))
+        assertNotSame(listOfOutString, listOfString)
+        assertNotSame(listOfOutString, makeSimpleType(list, false, listOf(makeTypeProjection(stringType, Variance.IN_VARIANCE))))
+
+        val listOfStar = makeSimpleType(list, false, listOf(IrStarProjectionImpl))
+        assertSame(listOfStar, makeSimpleType(list, false, listOf(IrStarProjectionImpl)))
+    }
+
+    fun testTypesOfDifferentSymbolsAreNotShared() {
+        val first = IrClassSymbolImpl()
+        val second = IrClassSymbolImpl()
+        assertNotSame(makeSimpleType(first, false, emptyList()), makeSimpleType(second, false, emptyList()))
+    }
+
+    fun testSymbolsAreCollectable() {
+        // as if the IR of a module which is no longer used
+        val symbol = internTypesOfNewSymbol()
+        for (i in 0 until 100) {
+            if (symbol.get() == null) break
+            System.gc()
+            Thread.sleep(10)
+        }
+        assertNull(symbol.get(), "The interner should not keep classifiers of interned types")
+
+        // the table still works after its entries were collected
+        val newSymbol = IrClassSymbolImpl()
+        assertSame(makeSimpleType(newSymbol, false, emptyList()), makeSimpleType(newSymbol, false, emptyList()))
+    }
+
+    private fun internTypesOfNewSymbol(): WeakReference<IrClassSymbol> {
+        val symbol = IrClassSymbolImpl()
+        val type = makeSimpleType(symbol, false, emptyList())
+        // the classifier is also an argument of an interned type which outlives it in the table until it is collected
+        makeSimpleType(IrClassSymbolImpl(), true, listOf(type, makeTypeProjection(type, Variance.OUT_VARIANCE)))
+        return WeakReference(symbol)
+    }
+}
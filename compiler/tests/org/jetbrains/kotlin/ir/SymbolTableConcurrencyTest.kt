@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.ir
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.builtins.DefaultBuiltIns
+import org.jetbrains.kotlin.descriptors.*
+import org.jetbrains.kotlin.descriptors.impl.ClassDescriptorImpl
+import org.jetbrains.kotlin.descriptors.impl.EmptyPackageFragmentDescriptor
+import org.jetbrains.kotlin.descriptors.impl.ModuleDescriptorImpl
+import org.jetbrains.kotlin.ir.declarations.impl.IrFactoryImpl
+import org.jetbrains.kotlin.ir.symbols.IrSymbol
+import org.jetbrains.kotlin.ir.util.IdSignature
+import org.jetbrains.kotlin.ir.util.IdSignatureComposer
+import org.jetbrains.kotlin.ir.util.SymbolTable
+import org.jetbrains.kotlin.name.FqName
+import org.jetbrains.kotlin.name.Name
+import org.jetbrains.kotlin.storage.LockBasedStorageManager
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.test.assertEquals
+import kotlin.test.assertSame
+
+class SymbolTableConcurrencyTest : TestCase() {
+    // classes named "Local*" have no signature, as local declarations
+    private class CountingSignaturer : IdSignatureComposer {
+        val composed = AtomicInteger()
+
+        override fun composeSignature(descriptor: DeclarationDescriptor): IdSignature? {
+            composed.incrementAndGet()
+            val name = descriptor.name.asString()
+            return if (name.startsWith("Local")) null else IdSignature.PublicSignature("test", name, null, 0)
+        }
+
+        override fun composeEnumEntrySignature(descriptor: ClassDescriptor): IdSignature? = null
+    }
+
+    private val storageManager = LockBasedStorageManager("SymbolTableConcurrencyTest")
+    private val packageFragment = EmptyPackageFragmentDescriptor(
+        ModuleDescriptorImpl(Name.special("<test>"), storageManager, DefaultBuiltIns.Instance), FqName("test")
+    )
+
+    fun testSignatureIsComposedOnceForNewSymbol() {
+        val signaturer = CountingSignaturer()
+        val symbolTable = SymbolTable(signaturer, IrFactoryImpl)
+        val classes = createClasses("C", 10)
+
+        classes.forEach { symbolTable.referenceClass(it) }
+        assertEquals(classes.size, signaturer.composed.get())
+
+        classes.forEach { symbolTable.referenceClass(it) }
+        assertEquals(classes.size * 2, signaturer.composed.get())
+    }
+
+    fun testConcurrentReferencesToDescriptors() {
+        val symbolTable = SymbolTable(CountingSignaturer(), IrFactoryImpl)
+        val classes = createClasses("C", COUNT) + createClasses("Local", COUNT)
+
+        val results = runConcurrently { classes.map { symbolTable.referenceClass(it) } }
+
+        checkSameSymbols(results)
+        assertEquals(classes.take(COUNT).map { it.name.asString() }, publicSymbolNames(symbolTable))
+    }
+
+    fun testConcurrentReferencesToSignatures() {
+        val symbolTable = SymbolTable(CountingSignaturer(), IrFactoryImpl)
+        val signatures = (0 until COUNT).map { IdSignature.PublicSignature("test", "f$it", null, 0) }
+
+        val results = runConcurrently { signatures.map { symbolTable.referenceSimpleFunctionFromLinker(it) } }
+
+        checkSameSymbols(results)
+        assertEquals(signatures.map { it.declarationFqName }, publicSymbolNames(symbolTable))
+    }
+
+    // each thread references declarations in the same order, so they are inserted into the table in this order
+    private fun <T> runConcurrently(action: () -> List<T>): List<List<T>> {
+        val executor = Executors.newFixedThreadPool(THREADS)
+        try {
+            val start = CountDownLatch(1)
+            val futures = (0 until THREADS).map {
+                executor.submit(Callable {
+                    start.await()
+                    action()
+                })
+            }
+            start.countDown()
+            return futures.map { it.get(30, TimeUnit.SECONDS) }
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    private fun checkSameSymbols(results: List<List<IrSymbol>>) {
+        val expected = results.first()
+        assertEquals(expected.size, expected.toSet().size, "Each declaration should have its own symbol")
+        for (result in results) {
+            for (i in expected.indices) {
+                assertSame(expected[i], result[i], "All threads should get the same symbol for #$i")
+            }
+        }
+    }
+
+    private fun publicSymbolNames(symbolTable: SymbolTable): List<String> {
+        val names = ArrayList<String>()
+        symbolTable.forEachPublicSymbol { names.add((it.signature as IdSignature.PublicSignature).declarationFqName) }
+        return names
+    }
+
+    private fun createClasses(prefix: String, count: Int): List<ClassDescriptor> =
+        (0 until count).map {
+            ClassDescriptorImpl(
+                packageFragment, Name.identifier("$prefix$it"), Modality.FINAL, ClassKind.CLASS, emptyList(),
+                SourceElement.NO_SOURCE, false, storageManager
+            )
+        }
+
+    private companion object {
+        const val THREADS = 8
+        const val COUNT = 1000
+    }
+}
@@ -335,6 +335,37 @@ public class KotlinTypeCheckerTest extends KotlinTestWithEnvironment {
         assertNotSubtype("Rec<*>", "Rec<out Any>");
     }
 
+    public void testCorrespondingSupertypes() {
+        // twice, so that the second time supertypes are taken from the cache
+        for (int i = 0; i < 2; i++) {
+            assertSubtype("DeepClass<Int>", "Deep0<List<Int>>");
+            assertNotSubtype("DeepClass<Int>", "Deep0<Int>");
+            assertSubtype("DeepClass<Int>", "Deep0<out Collection<Any>>");
+            assertSubtype("DeepClass<*>", "Deep0<out List<*>>");
+            assertNotSubtype("DeepClass<*>", "Deep0<List<Int>>");
+            assertSubtype("DeepSubclass", "Deep1<List<Int>>");
+            assertNotSubtype("DeepSubclass", "Deep1<List<String>>");
+        }
+    }
+
+    public void testCorrespondingSupertypesOfNullableTypes() {
+        for (int i = 0; i < 2; i++) {
+            assertSubtype("DeepClass<Int>?", "Deep0<List<Int>>?");
+            assertNotSubtype("DeepClass<Int>?", "Deep0<List<Int>>");
+            assertSubtype("DeepClass<Int>", "Deep0<List<Int>>?");
+            assertSubtype("DeepClass<String?>", "Deep0<List<String?>>");
+            assertNotSubtype("DeepClass<String?>", "Deep0<List<String>>");
+        }
+    }
+
+    public void testCorrespondingSupertypesWithErrorSupertype() {
+        for (int i = 0; i < 2; i++) {
+            assertSubtype("WithErrorSupertype", "Deep0<Int>");
+            assertNotSubtype("WithErrorSupertype", "Deep0<String>");
+            assertSubtype("WithErrorSupertype", "Any");
+        }
+    }
+
     public void testThis() {
         assertType("Derived_T<Int>", "this", "Derived_T<Int>");
 //        assertType("Derived_T<Int>", "super<Base_T>", "Base_T<Int>");
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.util.slicedMap
+
+import junit.framework.TestCase
+import kotlin.test.assertEquals
+
+// Checks that PerSliceSlicedMapImpl behaves exactly like SlicedMapImpl
+class PerSliceSlicedMapImplTest : TestCase() {
+    // allows to rewrite a value only with a greater one, and logs all rewrites it was asked about
+    private class IncreasingRewritePolicy : RewritePolicy {
+        val rewrites = ArrayList<String>()
+
+        override fun <K> rewriteProcessingNeeded(key: K): Boolean = key != "free"
+
+        override fun <K, V> processRewrite(slice: WritableSlice<K, V>, key: K, oldValue: V, newValue: V): Boolean {
+            rewrites.add("$key: $oldValue -> $newValue")
+            return (newValue as Int) > (oldValue as Int)
+        }
+    }
+
+    private class TestSlices {
+        val policy = IncreasingRewritePolicy()
+        val increasing = BasicWritableSlice<String, Int>(policy).apply { setDebugName("INCREASING") }
+        val collective = BasicWritableSlice<String, Int>(policy, true).apply { setDebugName("COLLECTIVE") }
+        val doNothing = BasicWritableSlice<String, Int>(RewritePolicy.DO_NOTHING).apply { setDebugName("DO_NOTHING") }
+        val set = SetSlice<String>(RewritePolicy.DO_NOTHING, true).apply { setDebugName("SET") }
+        val further = Slices.sliceBuilder<String, Int>()
+            .setFurtherLookupSlices(doNothing)
+            .setDebugName("FURTHER")
+            .build()
+
+        val writable: List<WritableSlice<String, *>> = listOf(increasing, collective, doNothing, set, further)
+    }
+
+    fun testRewritePolicies() {
+        checkParity { slices ->
+            put(slices.increasing, "a", 1)
+            put(slices.increasing, "a", 3)
+            put(slices.increasing, "a", 2)
+            put(slices.increasing, "free", 5)
+            put(slices.increasing, "free", 4)
+            put(slices.doNothing, "a", 10)
+            put(slices.doNothing, "a", 9)
+            put(slices.collective, "b", 1)
+            put(slices.collective, "b", 0)
+        }
+    }
+
+    fun testCollectiveKeys() {
+        checkParity { slices ->
+            put(slices.collective, "b", 1)
+            put(slices.collective, "a", 1)
+            // a rejected rewrite doesn't add the key again, an accepted one does
+            put(slices.collective, "b", 0)
+            put(slices.collective, "b", 2)
+            put(slices.set, "x", true)
+            put(slices.set, "y", false)
+            put(slices.set, "x", true)
+        }
+    }
+
+    fun testFurtherLookupSlices() {
+        checkParity { slices ->
+            put(slices.doNothing, "a", 1)
+            put(slices.doNothing, "b", 2)
+            put(slices.further, "b", 3)
+        }
+    }
+
+    fun testManyKeysAndSlices() {
+        checkParity { slices ->
+            for (i in 0 until 1000) {
+                put(slices.increasing, "k$i", i)
+                if (i % 2 == 0) put(slices.doNothing, "k$i", -i)
+                if (i % 3 == 0) put(slices.collective, "k$i", i)
+                if (i % 5 == 0) put(slices.set, "k$i", i % 10 == 0)
+            }
+            for (i in 0 until 1000 step 7) {
+                put(slices.increasing, "k$i", i + 1)
+                put(slices.increasing, "k$i", i - 1)
+            }
+        }
+    }
+
+    fun testClear() {
+        checkParity { slices ->
+            put(slices.increasing, "a", 1)
+            put(slices.collective, "b", 1)
+            put(slices.set, "c", true)
+            clear()
+            put(slices.increasing, "a", 0)
+        }
+    }
+
+    private fun checkParity(fill: MutableSlicedMap.(TestSlices) -> Unit) {
+        for (alwaysAllowRewrite in listOf(false, true)) {
+            val expectedSlices = TestSlices()
+            val expected = SlicedMapImpl(alwaysAllowRewrite).apply { fill(expectedSlices) }
+            val actualSlices = TestSlices()
+            val actual = PerSliceSlicedMapImpl(alwaysAllowRewrite).apply { fill(actualSlices) }
+
+            val message = "alwaysAllowRewrite = $alwaysAllowRewrite"
+            assertEquals(expectedSlices.policy.rewrites, actualSlices.policy.rewrites, message)
+            assertEquals(dump(expected, expectedSlices), dump(actual, actualSlices), message)
+        }
+    }
+
+    // slices are compared by their debug names, since each map has its own slices to log rewrites separately
+    private fun dump(map: MutableSlicedMap, slices: TestSlices): Map<String, Any?> {
+        val keys = sortedSetOf<String>()
+        map.forEach { _, key, _ -> keys.add(key as String); null }
+
+        val entries = mutableSetOf<Triple<String, Any?, Any?>>()
+        map.forEach { slice, key, value -> entries.add(Triple(slice.toString(), key, value)); null }
+
+        return linkedMapOf(
+            "forEach" to entries,
+            "get" to slices.writable.associate { slice -> slice.toString() to keys.associateWith { map.get(slice, it) } },
+            "getKeys" to listOf(slices.collective, slices.set).associate { it.toString() to map.getKeys(it).toList() },
+            "getSliceContents" to slices.writable.associate { it.toString() to map.getSliceContents(it) },
+        )
+    }
+}
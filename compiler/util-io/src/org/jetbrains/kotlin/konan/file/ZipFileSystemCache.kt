@@ -0,0 +1,102 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.konan.file
+
+import java.nio.file.FileSystem
+import java.nio.file.Files
+import java.nio.file.attribute.BasicFileAttributes
+
+/**
+ * Read-only zip file systems shared by all readers of the same zip file, so that the central directory of a zip file
+ * is read once rather than on each access. File systems are reused by subsequent compilations (e.g. in the daemon)
+ * while the zip file isn't modified; the least recently used ones are closed when there are too many of them,
+ * and all of them are closed by [clear] when the daemon clears its jar caches.
+ */
+object ZipFileSystemCache {
+    private const val MAX_OPEN_FILE_SYSTEMS = 256
+
+    // open zip files can't be deleted or replaced on Windows, so klibs couldn't be rebuilt while a file system is cached
+    private val isEnabled = !System.getProperty("os.name").startsWith("Windows", ignoreCase = true)
+
+    private class Entry(val fileSystem: FileSystem, val lastModified: Long, val size: Long) {
+        // guarded by ZipFileSystemCache
+        var users = 0
+        var evicted = false
+    }
+
+    // in access order, the least recently used first
+    private val entries = LinkedHashMap<String, Entry>(16, 0.75f, true)
+
+    fun <T> withZipFileSystem(zipFile: File, action: (FileSystem) -> T): T {
+        if (!isEnabled) return zipFile.withZipFileSystem(action)
+
+        val entry = acquire(zipFile)
+        try {
+            return action(entry.fileSystem)
+        } finally {
+            release(entry)
+        }
+    }
+
+    // file systems which are in use by other compilations are closed when they are released
+    @Synchronized
+    fun clear() {
+        for (entry in entries.values) {
+            evict(entry)
+        }
+        entries.clear()
+    }
+
+    @Synchronized
+    private fun acquire(zipFile: File): Entry {
+        val key = zipFile.absolutePath
+        val attributes = Files.readAttributes(zipFile.javaPath, BasicFileAttributes::class.java)
+        val lastModified = attributes.lastModifiedTime().toMillis()
+
+        var entry = entries[key]
+        if (entry != null && (entry.lastModified != lastModified || entry.size != attributes.size())) {
+            entries.remove(key)
+            evict(entry)
+            entry = null
+        }
+        if (entry == null) {
+            entry = Entry(zipFile.zipFileSystem(), lastModified, attributes.size())
+            entries[key] = entry
+            evictLeastRecentlyUsed()
+        }
+
+        entry.users++
+        return entry
+    }
+
+    @Synchronized
+    private fun release(entry: Entry) {
+        entry.users--
+        if (entry.evicted && entry.users == 0) {
+            entry.fileSystem.close()
+        }
+    }
+
+    private fun evictLeastRecentlyUsed() {
+        val iterator = entries.values.iterator()
+        while (entries.size > MAX_OPEN_FILE_SYSTEMS && iterator.hasNext()) {
+            val entry = iterator.next()
+            iterator.remove()
+            evict(entry)
+        }
+    }
+
+    // file systems which are in use are closed when they are released
+    private fun evict(entry: Entry) {
+        entry.evicted = true
+        if (entry.users == 0) {
+            entry.fileSystem.close()
+        }
+    }
+}
+
+fun <T> File.withSharedZipFileSystem(action: (FileSystem) -> T): T =
+    ZipFileSystemCache.withZipFileSystem(this, action)
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.konan.file
+
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeFalse
+import org.junit.Before
+import org.junit.Test
+import java.nio.file.FileSystem
+import java.nio.file.Files
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class ZipFileSystemCacheTest {
+    private lateinit var zipFile: File
+
+    @Before
+    fun setUp() {
+        zipFile = File(Files.createTempFile("zipFileSystemCache", ".klib"))
+    }
+
+    @After
+    fun tearDown() {
+        ZipFileSystemCache.clear()
+        zipFile.delete()
+    }
+
+    @Test
+    fun `rewritten zip file is picked up`() {
+        writeZip("a.txt" to "first")
+        assertEquals("first", readEntry("a.txt"))
+
+        writeZip("a.txt" to "second version", "b.txt" to "new")
+        // the size is different anyway, but the modification time may be the same within the timestamp resolution
+        java.io.File(zipFile.absolutePath).setLastModified(System.currentTimeMillis() + 10_000)
+        assertEquals("second version", readEntry("a.txt"))
+        assertEquals("new", readEntry("b.txt"))
+    }
+
+    @Test
+    fun `file system is reused by next compilation`() {
+        // file systems aren't cached on Windows
+        assumeFalse(System.getProperty("os.name").startsWith("Windows", ignoreCase = true))
+        writeZip("a.txt" to "text")
+        val fileSystem = zipFile.withSharedZipFileSystem { it }
+        assertTrue(fileSystem.isOpen)
+
+        // as if read by another compilation in the same process
+        assertSame(fileSystem, zipFile.withSharedZipFileSystem { it })
+        assertEquals("text", readEntry("a.txt"))
+        assertTrue(fileSystem.isOpen)
+    }
+
+    @Test
+    fun `clear closes file systems`() {
+        writeZip("a.txt" to "text")
+        val fileSystem = zipFile.withSharedZipFileSystem { it }
+        ZipFileSystemCache.clear()
+        assertFalse(fileSystem.isOpen)
+
+        // and the zip file can be used again
+        assertEquals("text", readEntry("a.txt"))
+    }
+
+    @Test
+    fun `file system in use is closed on release`() {
+        writeZip("a.txt" to "text")
+        val fileSystem = zipFile.withSharedZipFileSystem { fileSystem ->
+            ZipFileSystemCache.clear()
+            assertEquals("text", fileSystem.readEntry("a.txt"))
+            fileSystem
+        }
+        assertFalse(fileSystem.isOpen)
+    }
+
+    private fun writeZip(vararg entries: Pair<String, String>) {
+        ZipOutputStream(Files.newOutputStream(zipFile.javaPath)).use { output ->
+            for ((name, text) in entries) {
+                output.putNextEntry(ZipEntry(name))
+                output.write(text.toByteArray())
+                output.closeEntry()
+            }
+        }
+    }
+
+    private fun readEntry(name: String): String = zipFile.withSharedZipFileSystem { it.readEntry(name) }
+
+    private fun FileSystem.readEntry(name: String): String = String(Files.readAllBytes(getPath(name)))
+}
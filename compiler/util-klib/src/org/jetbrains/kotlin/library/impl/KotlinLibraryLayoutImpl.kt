@@ -2,7 +2,7 @@ package org.jetbrains.kotlin.library.impl
 
 import org.jetbrains.kotlin.konan.file.File
 import org.jetbrains.kotlin.konan.file.file
-import org.jetbrains.kotlin.konan.file.withZipFileSystem
+import org.jetbrains.kotlin.konan.file.withSharedZipFileSystem
 import org.jetbrains.kotlin.library.*
 import org.jetbrains.kotlin.util.removeSuffixIfPresent
 import java.nio.file.FileSystem
@@ -64,7 +64,7 @@ open class BaseLibraryAccess<L : KotlinLibraryLayout>(val klib: File, component:
 
     fun <T> inPlace(action: (L) -> T): T =
         if (layout.isZipped)
-            layout.klib.withZipFileSystem { zipFileSystem ->
+            layout.klib.withSharedZipFileSystem { zipFileSystem ->
                 action(layout.directlyFromZip(zipFileSystem) as L)
             }
         else
@@ -98,14 +98,14 @@ class FromZipIrLibraryImpl(zipped: IrLibraryLayoutImpl, zipFileSystem: FileSyste
  * This class and its children automatically extracts pieces of the library on first access. Use it if you need
  * to pass extracted files to an external tool. Otherwise, stick to [FromZipBaseLibraryImpl].
  */
-fun KotlinLibraryLayoutImpl.extract(file: File): File = this.klib.withZipFileSystem { zipFileSystem ->
+fun KotlinLibraryLayoutImpl.extract(file: File): File = this.klib.withSharedZipFileSystem { zipFileSystem ->
     val temporary = org.jetbrains.kotlin.konan.file.createTempFile(file.name)
     zipFileSystem.file(file).copyTo(temporary)
     temporary.deleteOnExit()
     temporary
 }
 
-fun KotlinLibraryLayoutImpl.extractDir(directory: File): File = this.klib.withZipFileSystem { zipFileSystem ->
+fun KotlinLibraryLayoutImpl.extractDir(directory: File): File = this.klib.withSharedZipFileSystem { zipFileSystem ->
     val temporary = org.jetbrains.kotlin.konan.file.createTempDir(directory.name)
     zipFileSystem.file(directory).recursiveCopyTo(temporary)
     temporary.deleteOnExitRecursively()
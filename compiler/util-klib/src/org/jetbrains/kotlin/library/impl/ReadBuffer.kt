@@ -8,6 +8,8 @@ package org.jetbrains.kotlin.library.impl
 import java.io.File
 import java.lang.ref.SoftReference
 import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
 
 sealed class ReadBuffer {
 
@@ -43,6 +45,12 @@ sealed class ReadBuffer {
 
     class DirectFileBuffer(file: File) : NIOReader(file.readBytes().buffer)
 
+    /**
+     * Contents of the file are mapped into memory, so they are held by the OS page cache rather than by the heap
+     * and aren't read again when memory is low. The mapping is released when the buffer is collected.
+     */
+    class MemoryMappedFileBuffer(file: File) : NIOReader(file.mapToMemory())
+
     class WeakFileBuffer(private val file: File) : ReadBuffer() {
         override val size: Int
             get() = file.length().toInt()
@@ -89,4 +97,18 @@ sealed class ReadBuffer {
 
         private var weakBuffer: SoftReference<ByteBuffer> = SoftReference(null)
     }
-}
\ No newline at end of file
+
+    companion object {
+        // mapped files can't be deleted or replaced on Windows until the mapping is collected
+        private val canMapFiles = !System.getProperty("os.name").startsWith("Windows", ignoreCase = true)
+
+        fun fileBuffer(file: File): ReadBuffer =
+            if (canMapFiles) MemoryMappedFileBuffer(file) else WeakFileBuffer(file)
+    }
+}
+
+private fun File.mapToMemory(): ByteBuffer =
+    FileChannel.open(toPath(), StandardOpenOption.READ).use { channel ->
+        // the mapping stays valid after the channel is closed
+        channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+    }
\ No newline at end of file
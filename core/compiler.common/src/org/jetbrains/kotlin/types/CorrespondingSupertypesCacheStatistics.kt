@@ -0,0 +1,36 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.types
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Hit rate of a cache of supertypes with given type constructors, see [AbstractTypeChecker.findCorrespondingSupertypes]
+ * and [org.jetbrains.kotlin.types.model.TypeSystemContext.fastCorrespondingSupertypes].
+ */
+class CorrespondingSupertypesCacheStatistics {
+    private val queries = AtomicLong()
+    private val computations = AtomicLong()
+
+    val queryCount: Long get() = queries.get()
+
+    // number of times supertypes of a class were collected, i.e. cache misses
+    val computationCount: Long get() = computations.get()
+
+    val hitRate: Double
+        get() = queryCount.let { if (it == 0L) 0.0 else (it - computationCount).toDouble() / it }
+
+    fun recordQuery() {
+        queries.incrementAndGet()
+    }
+
+    fun recordComputation() {
+        computations.incrementAndGet()
+    }
+
+    override fun toString(): String =
+        "queries: $queryCount, computations: $computationCount, hit rate: ${"%.1f".format(hitRate * 100)}%"
+}
@@ -27,6 +27,10 @@ import org.jetbrains.kotlin.types.refinement.TypeRefinement
 abstract class AbstractTypeConstructor(storageManager: StorageManager) : TypeConstructor {
     private var hashCode = 0
 
+    // supertypes of the default type of the class by their constructors, see ClassicCorrespondingSupertypes
+    @Volatile
+    internal var correspondingSupertypes: Map<TypeConstructor, List<SimpleType>>? = null
+
     override fun getSupertypes() = supertypes().supertypesWithoutCycles
 
     abstract override fun getDeclarationDescriptor(): ClassifierDescriptor
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010-2021 JetBrains s.r.o. and Kotlin Programming Language contributors.
+ * Use of this source code is governed by the Apache 2.0 license that can be found in the license/LICENSE.txt file.
+ */
+
+package org.jetbrains.kotlin.types.checker
+
+import org.jetbrains.kotlin.descriptors.ClassDescriptor
+import org.jetbrains.kotlin.types.*
+import org.jetbrains.kotlin.types.model.CaptureStatus
+import org.jetbrains.kotlin.utils.SmartList
+import java.util.*
+
+/**
+ * Supertypes of class types with given type constructors, which are otherwise found by [AbstractTypeChecker] walking
+ * the supertype graph on each query. Supertypes of the default type of a class (with its type parameters as arguments)
+ * are collected once and kept in its type constructor, so they live as long as the class descriptor does,
+ * and supertypes of other types of the class are obtained by substituting their arguments.
+ */
+object ClassicCorrespondingSupertypes {
+    // set only while performance is reported, since the object is shared by all compilations in the process
+    @Volatile
+    var statistics: CorrespondingSupertypesCacheStatistics? = null
+
+    // null if supertypes should be found by walking the supertype graph
+    fun getCorrespondingSupertypes(type: SimpleType, supertypeConstructor: TypeConstructor): List<SimpleType>? {
+        val constructor = type.constructor as? AbstractTypeConstructor ?: return null
+        val classDescriptor = constructor.declarationDescriptor as? ClassDescriptor ?: return null
+        if (classDescriptor.typeConstructor !== constructor || constructor == supertypeConstructor) return null
+
+        statistics?.recordQuery()
+        val supertypesByConstructor = constructor.correspondingSupertypes ?: run {
+            val collected = collectSupertypes(classDescriptor) ?: return null
+            if (collected.isCacheable) {
+                constructor.correspondingSupertypes = collected.supertypesByConstructor
+            }
+            collected.supertypesByConstructor
+        }
+
+        val supertypes = supertypesByConstructor[supertypeConstructor] ?: return emptyList()
+        if (type.arguments.isEmpty()) return supertypes
+
+        val substitutor = TypeConstructorSubstitution.create(captureFromArguments(type, CaptureStatus.FOR_SUBTYPING) ?: type).buildSubstitutor()
+        return supertypes.map { substitutor.safeSubstitute(it, Variance.INVARIANT).asSimpleType() }
+    }
+
+    private class CollectedSupertypes(val supertypesByConstructor: Map<TypeConstructor, List<SimpleType>>, val isCacheable: Boolean)
+
+    // Walks the supertype graph in the same order as AbstractTypeChecker.anySupertype does, so that supertypes
+    // with the same constructor are in the same order. If some supertype isn't a class type (e.g. an error type,
+    // which may be a stub for supertypes which are being computed), the result is correct only for the current query
+    // and isn't cached. Returns null if there are too many supertypes.
+    private fun collectSupertypes(classDescriptor: ClassDescriptor): CollectedSupertypes? {
+        statistics?.recordComputation()
+
+        val start = classDescriptor.defaultType
+        val result = HashMap<TypeConstructor, MutableList<SimpleType>>()
+        var isCacheable = true
+        val visited = HashSet<SimpleType>()
+        val deque = ArrayDeque<SimpleType>(4)
+
+        deque.push(start)
+        while (deque.isNotEmpty()) {
+            val current = deque.pop()
+            if (!visited.add(current)) continue
+            if (visited.size > MAX_SUPERTYPES) return null
+
+            val captured = captureFromArguments(current, CaptureStatus.FOR_SUBTYPING) ?: current
+            if (current !== start) {
+                result.getOrPut(captured.constructor) { SmartList() }.add(captured)
+            }
+            // error types have no supertypes, and their arguments don't correspond to type parameters
+            if (captured.isError || captured.constructor.declarationDescriptor !is ClassDescriptor) {
+                isCacheable = false
+                continue
+            }
+
+            val substitutor = if (captured.arguments.isEmpty()) null else TypeConstructorSubstitution.create(captured).buildSubstitutor()
+            for (supertype in captured.constructor.supertypes) {
+                val lowerBound = supertype.lowerIfFlexible()
+                deque.add(substitutor?.safeSubstitute(lowerBound, Variance.INVARIANT)?.asSimpleType() ?: lowerBound)
+            }
+        }
+
+        return CollectedSupertypes(result, isCacheable)
+    }
+
+    // AbstractTypeChecker reports an error if there are more supertypes
+    private const val MAX_SUPERTYPES = 1000
+}
@@ -261,6 +261,12 @@ interface ClassicTypeSystemContext : TypeSystemInferenceExtensionContext, TypeSy
         return org.jetbrains.kotlin.types.checker.captureFromArguments(type, status)
     }
 
+    override fun SimpleTypeMarker.fastCorrespondingSupertypes(constructor: TypeConstructorMarker): List<SimpleTypeMarker>? {
+        require(this is SimpleType, this::errorMessage)
+        require(constructor is TypeConstructor, constructor::errorMessage)
+        return ClassicCorrespondingSupertypes.getCorrespondingSupertypes(this, constructor)
+    }
+
     override fun TypeConstructorMarker.isAnyConstructor(): Boolean {
         require(this is TypeConstructor, this::errorMessage)
         return KotlinBuiltIns.isTypeConstructorForGivenClass(this, FqNames.any)
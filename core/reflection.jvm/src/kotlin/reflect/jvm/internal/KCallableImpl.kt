@@ -112,37 +112,39 @@ internal abstract class KCallableImpl<out R> : KCallable<R>, KTypeParameterOwner
         return if (isAnnotationConstructor) callAnnotationConstructor(args) else callDefaultMethod(args, null)
     }
 
-    // See ArgumentGenerator#generate
-    internal fun callDefaultMethod(args: Map<KParameter, Any?>, continuationArgument: Continuation<*>?): R {
+    // Everything about parameters which `callBy` needs, computed once so that calls don't inspect descriptors and types
+    private class DefaultCallLayout(
+        // values passed for absent arguments: default values of optional parameters, empty arrays for vararg parameters
+        val absentArguments: Array<Any?>,
+        val isOptional: BooleanArray,
+        val isRequired: BooleanArray,
+        // index of the bit of each parameter in the masks, i.e. the number of value parameters before it
+        val maskBits: IntArray,
+        val maskCount: Int
+    )
+
+    private val _defaultCallLayout = ReflectProperties.lazySoft {
         val parameters = parameters
-        val arguments = ArrayList<Any?>(parameters.size)
-        var mask = 0
-        val masks = ArrayList<Int>(1)
+        val absentArguments = arrayOfNulls<Any>(parameters.size)
+        val isOptional = BooleanArray(parameters.size)
+        val isRequired = BooleanArray(parameters.size)
+        val maskBits = IntArray(parameters.size)
         var index = 0
-        var anyOptional = false
-
-        for (parameter in parameters) {
-            if (index != 0 && index % Integer.SIZE == 0) {
-                masks.add(mask)
-                mask = 0
-            }
 
+        for ((i, parameter) in parameters.withIndex()) {
+            maskBits[i] = index
             when {
-                args.containsKey(parameter) -> {
-                    arguments.add(args[parameter])
-                }
                 parameter.isOptional -> {
                     // For inline class types, the javaType refers to the underlying type of the inline class,
                     // but we have to pass null in order to mark the argument as absent for InlineClassAwareCaller.
-                    arguments.add(if (parameter.type.isInlineClassType) null else defaultPrimitiveValue(parameter.type.javaType))
-                    mask = mask or (1 shl (index % Integer.SIZE))
-                    anyOptional = true
+                    absentArguments[i] = if (parameter.type.isInlineClassType) null else defaultPrimitiveValue(parameter.type.javaType)
+                    isOptional[i] = true
                 }
                 parameter.isVararg -> {
-                    arguments.add(defaultEmptyArray(parameter.type))
+                    absentArguments[i] = defaultEmptyArray(parameter.type)
                 }
                 else -> {
-                    throw IllegalArgumentException("No argument provided for a required parameter: $parameter")
+                    isRequired[i] = true
                 }
             }
 
@@ -151,26 +153,58 @@ internal abstract class KCallableImpl<out R> : KCallable<R>, KTypeParameterOwner
             }
         }
 
+        DefaultCallLayout(absentArguments, isOptional, isRequired, maskBits, maxOf(1, (index + Integer.SIZE - 1) / Integer.SIZE))
+    }
+
+    // See ArgumentGenerator#generate
+    internal fun callDefaultMethod(args: Map<KParameter, Any?>, continuationArgument: Continuation<*>?): R {
+        val parameters = parameters
+        val layout = _defaultCallLayout()
+        val argumentCount = if (continuationArgument != null) parameters.size + 1 else parameters.size
+        // arguments, the continuation, masks and DefaultConstructorMarker or MethodHandle
+        val arguments = arrayOfNulls<Any>(argumentCount + layout.maskCount + 1)
+        val masks = IntArray(layout.maskCount)
+        var anyOptional = false
+
+        for ((i, parameter) in parameters.withIndex()) {
+            when {
+                args.containsKey(parameter) -> {
+                    arguments[i] = args[parameter]
+                }
+                layout.isRequired[i] -> {
+                    throw IllegalArgumentException("No argument provided for a required parameter: $parameter")
+                }
+                else -> {
+                    arguments[i] = layout.absentArguments[i]
+                    if (layout.isOptional[i]) {
+                        val bit = layout.maskBits[i]
+                        masks[bit / Integer.SIZE] = masks[bit / Integer.SIZE] or (1 shl (bit % Integer.SIZE))
+                        anyOptional = true
+                    }
+                }
+            }
+        }
+
         if (continuationArgument != null) {
-            arguments.add(continuationArgument)
+            arguments[parameters.size] = continuationArgument
         }
 
         if (!anyOptional) {
-            return call(*arguments.toTypedArray())
+            @Suppress("UNCHECKED_CAST")
+            return reflectionCall {
+                caller.call(arguments.copyOf(argumentCount)) as R
+            }
         }
 
-        masks.add(mask)
-
         val caller = defaultCaller ?: throw KotlinReflectionInternalError("This callable does not support a default call: $descriptor")
 
-        arguments.addAll(masks)
-
-        // DefaultConstructorMarker or MethodHandle
-        arguments.add(null)
+        for (i in masks.indices) {
+            arguments[argumentCount + i] = masks[i]
+        }
 
         @Suppress("UNCHECKED_CAST")
         return reflectionCall {
-            caller.call(arguments.toTypedArray()) as R
+            caller.call(arguments) as R
         }
     }
 
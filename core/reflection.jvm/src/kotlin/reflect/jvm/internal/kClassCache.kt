@@ -16,54 +16,95 @@
 
 package kotlin.reflect.jvm.internal
 
+import java.lang.ref.ReferenceQueue
 import java.lang.ref.WeakReference
-import kotlin.reflect.jvm.internal.pcollections.HashPMap
+import java.util.concurrent.ConcurrentHashMap
 
-// TODO: collect nulls periodically
-// Key of the map is Class.getName(), each value is either a WeakReference<KClassImpl<*>> or an Array<WeakReference<KClassImpl<*>>>.
+// Key of the map is Class.getName(), each value is either a KClassReference or an Array<KClassReference>.
 // Arrays are needed because the same class can be loaded by different class loaders, which results in different Class instances.
-// This variable is not volatile intentionally: we don't care if there's a data race on it and some KClass instances will be lost.
-// We do care however about general performance on read access to it, thus no synchronization is done here whatsoever
-private var K_CLASS_CACHE = HashPMap.empty<String, Any>()
+// Keys are names rather than classes, and values are weak, so that the cache doesn't retain class loaders.
+// References to collected KClass instances are removed from the cache when a new instance is created.
+// ClassValue is not used because kotlin-reflect supports Java 6 and Android.
+private val K_CLASS_CACHE = ConcurrentHashMap<String, Any>()
+
+private val COLLECTED_K_CLASSES = ReferenceQueue<KClassImpl<*>>()
+
+private class KClassReference(kClass: KClassImpl<*>, val name: String) : WeakReference<KClassImpl<*>>(kClass, COLLECTED_K_CLASSES)
 
 // This function is invoked on each reflection access to Java classes, properties, etc. Performance is critical here.
 internal fun <T : Any> getOrCreateKotlinClass(jClass: Class<T>): KClassImpl<T> {
     val name = jClass.name
-    val cached = K_CLASS_CACHE[name]
-    if (cached is WeakReference<*>) {
+    findKotlinClass(K_CLASS_CACHE[name], jClass)?.let { return it }
+
+    removeCollectedKotlinClasses()
+
+    val newKClass = KClassImpl(jClass)
+    val newReference = KClassReference(newKClass, name)
+    while (true) {
+        val cached = K_CLASS_CACHE.putIfAbsent(name, newReference) ?: return newKClass
+
+        // Another thread might have created the class in the meantime
+        findKotlinClass(cached, jClass)?.let { return it }
+
+        // This is the most unlikely case: the same class was loaded by several class loaders
+        val newValue = withReference(cached, newReference)
+        if (K_CLASS_CACHE.replace(name, cached, newValue)) return newKClass
+    }
+}
+
+private fun <T : Any> findKotlinClass(cached: Any?, jClass: Class<T>): KClassImpl<T>? {
+    if (cached is KClassReference) {
         @Suppress("UNCHECKED_CAST")
         val kClass = cached.get() as KClassImpl<T>?
         if (kClass?.jClass == jClass) {
             return kClass
         }
     } else if (cached != null) {
-        // If the cached value is not a weak reference, it's an array of weak references
+        // If the cached value is not a reference, it's an array of references
         @Suppress("UNCHECKED_CAST")
-        (cached as Array<WeakReference<KClassImpl<T>>>)
-        for (ref in cached) {
-            val kClass = ref.get()
+        for (ref in cached as Array<KClassReference>) {
+            val kClass = ref.get() as KClassImpl<T>?
             if (kClass?.jClass == jClass) {
                 return kClass
             }
         }
-
-        // This is the most unlikely case: we found a cached array of references of length at least 2 (can't be 1 because
-        // the single element would be cached instead), and none of those classes is the one we're looking for
-        val size = cached.size
-        val newArray = arrayOfNulls<WeakReference<KClassImpl<*>>>(size + 1)
-        // Don't use Arrays.copyOf because it works reflectively
-        System.arraycopy(cached, 0, newArray, 0, size)
-        val newKClass = KClassImpl(jClass)
-        newArray[size] = WeakReference(newKClass)
-        K_CLASS_CACHE = K_CLASS_CACHE.plus(name, newArray)
-        return newKClass
     }
+    return null
+}
 
-    val newKClass = KClassImpl(jClass)
-    K_CLASS_CACHE = K_CLASS_CACHE.plus(name, WeakReference(newKClass))
-    return newKClass
+// Live references of the cached value with the given reference added
+private fun withReference(cached: Any, reference: KClassReference): Any {
+    val references = liveReferences(cached, except = null)
+    if (references.isEmpty()) return reference
+    // Don't use Arrays.copyOf because it works reflectively
+    val result = arrayOfNulls<KClassReference>(references.size + 1)
+    System.arraycopy(references, 0, result, 0, references.size)
+    result[references.size] = reference
+    return result
+}
+
+private fun liveReferences(cached: Any, except: KClassReference?): Array<KClassReference> {
+    @Suppress("UNCHECKED_CAST")
+    val references = if (cached is KClassReference) arrayOf(cached) else cached as Array<KClassReference>
+    return references.filter { it !== except && it.get() != null }.toTypedArray()
+}
+
+private fun removeCollectedKotlinClasses() {
+    while (true) {
+        val reference = COLLECTED_K_CLASSES.poll() as KClassReference? ?: return
+        while (true) {
+            val cached = K_CLASS_CACHE[reference.name] ?: break
+            val references = liveReferences(cached, except = reference)
+            val removed = when (references.size) {
+                0 -> K_CLASS_CACHE.remove(reference.name, cached)
+                1 -> K_CLASS_CACHE.replace(reference.name, cached, references[0])
+                else -> K_CLASS_CACHE.replace(reference.name, cached, references)
+            }
+            if (removed) break
+        }
+    }
 }
 
 internal fun clearKClassCache() {
-    K_CLASS_CACHE = HashPMap.empty()
+    K_CLASS_CACHE.clear()
 }